@@ -0,0 +1,30 @@
+package airplane.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of benchmarks.jar. Takes the usual JMH command line, and always
+ * adds the GC profiler so that every benchmark reports its allocation rate
+ * (gc.alloc.rate.norm is the number of bytes allocated per operation) next
+ * to its throughput.
+ *
+ * Run it from the repository root, since the simulator reads airplane.xml,
+ * logger.xml and the flights directory from the working directory.
+ */
+public final class BenchmarkMain {
+
+	public static final void main(String[] args) throws Exception {
+		CommandLineOptions cmd = new CommandLineOptions(args);
+		if (cmd.shouldHelp() || cmd.shouldList() || cmd.shouldListWithParams() || cmd.shouldListProfilers()
+				|| cmd.shouldListResultFormats()) {
+			org.openjdk.jmh.Main.main(args);
+			return;
+		}
+		Options options = new OptionsBuilder().parent(cmd).addProfiler(GCProfiler.class).build();
+		new Runner(options).run();
+	}
+}
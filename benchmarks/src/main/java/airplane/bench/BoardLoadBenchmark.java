@@ -0,0 +1,48 @@
+package airplane.bench;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import airplane.sim.Board;
+
+/**
+ * Board.load for the bundled flight files and for generated schedules.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardLoadBenchmark {
+
+	@Param({"Scramble.txt", "random-10000", "random-100000"})
+	public String board;
+
+	private File file;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		file = Boards.resolve(board);
+	}
+
+	@Benchmark
+	public Board load() throws Exception {
+		Board b = new Board();
+		b.load(file);
+		return b;
+	}
+}
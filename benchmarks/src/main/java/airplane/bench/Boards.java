@@ -0,0 +1,71 @@
+package airplane.bench;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+import airplane.sim.FlightScheduleGenerator;
+import airplane.sim.GameEngine;
+import airplane.sim.Player;
+
+/**
+ * Board files and engines shared by the benchmarks.
+ *
+ * A board parameter is either the name of a file in the flights directory
+ * (e.g. "Scramble.txt") or "random-N", a board with N flights written by
+ * FlightScheduleGenerator. The generated boards always use the same seed, so
+ * every run measures the same schedule.
+ */
+final class Boards {
+
+	private static final long SEED = 42;
+
+	private Boards() {
+	}
+
+	static File resolve(String board) throws IOException {
+		if (board.startsWith("random-"))
+			return generate(Integer.parseInt(board.substring("random-".length())));
+		File file = new File("flights", board);
+		if (!file.isFile())
+			throw new IOException("No such board: " + file.getAbsolutePath()
+					+ " (run the benchmarks from the repository root)");
+		return file;
+	}
+
+	private static File generate(int n) throws IOException {
+		File file = File.createTempFile("random-" + n + "-", ".txt");
+		file.deleteOnExit();
+		FlightScheduleGenerator generator = new FlightScheduleGenerator(n);
+		generator.setSeed(SEED);
+		generator.write(file);
+		return file;
+	}
+
+	/*
+	 * Creates an engine with the player and board, and sets up a game.
+	 */
+	static GameEngine newGame(Class<? extends Player> player, File board) {
+		// the players log every round at INFO, which would swamp the measurements
+		Logger.getRootLogger().setLevel(Level.WARN);
+		GameEngine engine = new GameEngine("airplane.xml");
+		engine.getConfig().setPlayerClass((Class<Player>) player);
+		engine.getConfig().setSelectedBoard(board);
+		if (!engine.setUpGame())
+			throw new IllegalStateException("Could not set up " + board);
+		return engine;
+	}
+
+	/*
+	 * Steps the game for up to the given number of rounds, so that there is
+	 * traffic in the air.
+	 */
+	static void advance(GameEngine engine, int rounds) {
+		for (int r = 0; r < rounds; r++) {
+			if (!engine.step())
+				break;
+		}
+	}
+}
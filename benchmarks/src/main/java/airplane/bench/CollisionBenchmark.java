@@ -0,0 +1,81 @@
+package airplane.bench;
+
+import java.awt.geom.Point2D;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import airplane.sim.CollisionGrid;
+import airplane.sim.GameConfig;
+
+/**
+ * The grid-based safety check used by GameEngine.step, against the pairwise
+ * check it replaced.
+ *
+ * The planes are placed on a jittered lattice that is never closer than the
+ * safety radius, so neither check can stop early. Because no more than a few
+ * hundred planes fit in the 100x100 board at that spacing, the airspace is
+ * enlarged with the fleet.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollisionBenchmark {
+
+	@Param({"10", "100", "1000", "10000"})
+	public int planes;
+
+	private double[] xs;
+	private double[] ys;
+	private CollisionGrid grid;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		Random random = new Random(42);
+		int side = (int) Math.ceil(Math.sqrt(planes));
+		double spacing = GameConfig.SAFETY_RADIUS * 1.5;
+		double jitter = GameConfig.SAFETY_RADIUS * 0.2;
+		xs = new double[planes];
+		ys = new double[planes];
+		for (int i = 0; i < planes; i++) {
+			xs[i] = (i % side) * spacing + random.nextDouble() * jitter;
+			ys[i] = (i / side) * spacing + random.nextDouble() * jitter;
+		}
+		grid = new CollisionGrid(GameConfig.SAFETY_RADIUS, side * spacing, side * spacing);
+	}
+
+	@Benchmark
+	public boolean pairwise() {
+		for (int i = 0; i < xs.length; i++) {
+			for (int j = 0; j < xs.length; j++) {
+				// same as the old check, including the Point2D per location
+				if (i != j && new Point2D.Double(xs[i], ys[i]).distance(new Point2D.Double(xs[j], ys[j])) < GameConfig.SAFETY_RADIUS)
+					return true;
+			}
+		}
+		return false;
+	}
+
+	@Benchmark
+	public boolean grid() {
+		grid.clear();
+		for (int i = 0; i < xs.length; i++)
+			grid.add(i, xs[i], ys[i]);
+		return grid.hasConflict();
+	}
+}
@@ -0,0 +1,101 @@
+package airplane.bench;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import airplane.sim.ConflictDetector;
+
+/**
+ * ConflictDetector against forecasting every plane round by round and
+ * comparing the forecast points of each pair, as the players used to.
+ *
+ * The planes fly random bearings from random positions in an airspace that
+ * grows with the fleet, so the number of planes near each plane stays about
+ * the same.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConflictDetectorBenchmark {
+
+	private static final double CONFLICT_DISTANCE = 13;
+
+	@Param({"10", "100", "1000"})
+	public int planes;
+
+	@Param({"9"})
+	public int horizon;
+
+	private double[] xs;
+	private double[] ys;
+	private double[] bearings;
+	private ConflictDetector detector;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		Random random = new Random(42);
+		double side = 10 * Math.sqrt(planes) * CONFLICT_DISTANCE;
+		xs = new double[planes];
+		ys = new double[planes];
+		bearings = new double[planes];
+		for (int i = 0; i < planes; i++) {
+			xs[i] = random.nextDouble() * side;
+			ys[i] = random.nextDouble() * side;
+			bearings[i] = random.nextDouble() * 360;
+		}
+		detector = new ConflictDetector(CONFLICT_DISTANCE);
+	}
+
+	@Benchmark
+	public int forecastPoints() {
+		List<List<Point2D.Double>> forecasts = new ArrayList<>();
+		for (int i = 0; i < planes; i++) {
+			List<Point2D.Double> locations = new ArrayList<>();
+			for (int k = 1; k <= horizon; k++) {
+				double x = xs[i] + Math.cos(Math.toRadians(bearings[i] - 90)) * k;
+				double y = ys[i] + Math.sin(Math.toRadians(bearings[i] - 90)) * k;
+				locations.add(new Point2D.Double(x, y));
+			}
+			forecasts.add(locations);
+		}
+		int conflicts = 0;
+		for (int i = 0; i < planes; i++) {
+			for (int j = i + 1; j < planes; j++) {
+				for (int k = 0; k < horizon; k++) {
+					if (forecasts.get(i).get(k).distance(forecasts.get(j).get(k)) < CONFLICT_DISTANCE) {
+						conflicts++;
+						break;
+					}
+				}
+			}
+		}
+		return conflicts;
+	}
+
+	@Benchmark
+	public int detector() {
+		detector.clear();
+		for (int i = 0; i < planes; i++)
+			detector.add(i, xs[i], ys[i], bearings[i], horizon);
+		return detector.findConflicts();
+	}
+}
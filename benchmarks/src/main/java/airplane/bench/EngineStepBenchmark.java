@@ -0,0 +1,60 @@
+package airplane.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import airplane.g0.SerializedPlayer;
+import airplane.sim.GameEngine;
+
+/**
+ * One round of GameEngine.step, driven by SerializedPlayer so that the
+ * player's own work stays small next to the engine's.
+ *
+ * When a game ends it is set up again outside the measured region.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineStepBenchmark {
+
+	@Param({"Simple.txt", "Scramble.txt", "random-1000", "random-10000"})
+	public String board;
+
+	private GameEngine engine;
+	private boolean running;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		engine = Boards.newGame(SerializedPlayer.class, Boards.resolve(board));
+		running = true;
+	}
+
+	@Setup(Level.Invocation)
+	public void restartIfOver() {
+		if (!running) {
+			engine.setUpGame();
+			running = true;
+		}
+	}
+
+	@Benchmark
+	public boolean step() {
+		running = engine.step();
+		return running;
+	}
+}
@@ -0,0 +1,74 @@
+package airplane.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import airplane.sim.FastMath;
+import airplane.sim.Player;
+
+/**
+ * FastMath against the exact math it can stand in for: the step of a move
+ * (a cosine and a sine of a bearing) and Player.calculateBearing, on random
+ * bearings and points on the board.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FastMathBenchmark {
+
+	private static final int SIZE = 1024;
+
+	private double[] bearings;
+	private double[] points;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		Random random = new Random(42);
+		bearings = new double[SIZE];
+		points = new double[4 * SIZE];
+		for (int i = 0; i < SIZE; i++)
+			bearings[i] = random.nextDouble() * 360;
+		for (int i = 0; i < points.length; i++)
+			points[i] = random.nextDouble() * 100;
+	}
+
+	@Benchmark
+	public double stepExact() {
+		double radialBearing = (bearings[next++ & (SIZE - 1)] - 90) * Math.PI / 180;
+		return Math.cos(radialBearing) + Math.sin(radialBearing);
+	}
+
+	@Benchmark
+	public double stepFast() {
+		double degrees = bearings[next++ & (SIZE - 1)] - 90;
+		return FastMath.cosDeg(degrees) + FastMath.sinDeg(degrees);
+	}
+
+	@Benchmark
+	public double bearingExact() {
+		int k = 4 * (next++ & (SIZE - 1));
+		return Player.calculateBearing(points[k], points[k + 1], points[k + 2], points[k + 3]);
+	}
+
+	@Benchmark
+	public double bearingFast() {
+		int k = 4 * (next++ & (SIZE - 1));
+		return Player.calculateBearingFast(points[k], points[k + 1], points[k + 2], points[k + 3]);
+	}
+}
@@ -0,0 +1,87 @@
+package airplane.bench;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import airplane.sim.FlightHistory;
+
+/**
+ * Recording the path of one plane over a long game and reading it back, as
+ * BoardPanel does when it draws the plane, with each FlightHistory policy
+ * and with the list of points Plane used to keep.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FlightHistoryBenchmark {
+
+	@Param({"5000"})
+	public int rounds;
+
+	@Param({"1000"})
+	public int ringLength;
+
+	private double[] xs;
+	private double[] ys;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		xs = new double[rounds];
+		ys = new double[rounds];
+		double x = 50, y = 50, bearing = 0;
+		for (int i = 0; i < rounds; i++) {
+			bearing = (bearing + 7) % 360;
+			x += Math.cos(Math.toRadians(bearing - 90));
+			y += Math.sin(Math.toRadians(bearing - 90));
+			xs[i] = x;
+			ys[i] = y;
+		}
+	}
+
+	@Benchmark
+	public double pointList() {
+		ArrayList<Point2D.Double> points = new ArrayList<Point2D.Double>();
+		for (int i = 0; i < rounds; i++)
+			points.add(new Point2D.Double(xs[i], ys[i]));
+		double sum = 0;
+		for (int k = 0; k < points.size(); k++)
+			sum += points.get(k).x + points.get(k).y;
+		return sum;
+	}
+
+	@Benchmark
+	public double ring() {
+		return recordAndRead(FlightHistory.ring(ringLength));
+	}
+
+	@Benchmark
+	public double compressed() {
+		return recordAndRead(FlightHistory.compressed());
+	}
+
+	private double recordAndRead(FlightHistory history) {
+		for (int i = 0; i < rounds; i++)
+			history.add(xs[i], ys[i]);
+		double sum = 0;
+		for (int k = 0; k < history.size(); k++)
+			sum += history.getX(k) + history.getY(k);
+		return sum;
+	}
+}
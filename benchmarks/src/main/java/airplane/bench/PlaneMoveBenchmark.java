@@ -0,0 +1,70 @@
+package airplane.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import airplane.sim.Plane;
+
+/**
+ * Plane.move and Plane.isLegalMove for a plane weaving around the middle of
+ * the board with legal bearing changes, and the checks for bearing changes
+ * that are rejected, as a player trying bearings out would make.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlaneMoveBenchmark {
+
+	private static final double[] BEARINGS = {90, 95, 100, 95, 90, 85, 80, 85};
+	// all too sharp a turn from 90, or not bearings at all
+	private static final double[] REJECTED = {120, 60, 270, 400, 0, 180, -5, 101};
+
+	private Plane plane;
+	private int next;
+
+	@Setup(Level.Iteration)
+	public void setUp() {
+		plane = new Plane(50, 50, 90, 90, 0, null);
+		plane.setBearing(90);
+		next = 0;
+	}
+
+	@Benchmark
+	public int move() {
+		double bearing = BEARINGS[next++ & 7];
+		// keep the plane in the middle of the board
+		if (plane.getX() > 90) {
+			plane.setX(10);
+		}
+		return plane.move(bearing);
+	}
+
+	@Benchmark
+	public boolean isLegalMove() {
+		return plane.isLegalMove(BEARINGS[next++ & 7]);
+	}
+
+	@Benchmark
+	public boolean isLegalMoveRejected() {
+		return plane.isLegalMove(REJECTED[next++ & 7]);
+	}
+
+	@Benchmark
+	public int checkMoveRejected() {
+		return plane.checkMove(REJECTED[next++ & 7]);
+	}
+}
@@ -0,0 +1,74 @@
+package airplane.bench;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import airplane.g4.Group4Player3;
+import airplane.sim.GameEngine;
+import airplane.sim.Plane;
+import airplane.sim.Player;
+
+/**
+ * One call to updatePlanes for each bundled player.
+ *
+ * Every player sees the same traffic: the state Group4Player3 reaches after a
+ * number of rounds, with the engine's departure schedule. The bearings are
+ * copied back before each call so the player always starts from the same
+ * round.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlayerUpdateBenchmark {
+
+	@Param({"airplane.g0.SerializedPlayer", "airplane.g4.Group4Player", "airplane.g4.Group4Player2",
+			"airplane.g4.Group4Player3", "airplane.g4.Group4Player4", "airplane.g17.GroupSeventeenPlayer",
+			"airplane.g17.GroupSeventeenPlayerScramble"})
+	public String player;
+
+	@Param({"Scramble.txt", "random-1000"})
+	public String board;
+
+	private Player instance;
+	private ArrayList<Plane> planes;
+	private int round;
+	private double[] bearings;
+	private double[] scratch;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		GameEngine engine = Boards.newGame(Group4Player3.class, Boards.resolve(board));
+		Boards.advance(engine, 40);
+		// the round the engine's departure schedule is at
+		round = engine.getCurrentRound();
+		planes = engine.getBoard().getPlanes();
+		bearings = engine.getBoard().bearings.clone();
+		scratch = new double[bearings.length];
+
+		instance = (Player) Class.forName(player).getDeclaredConstructor().newInstance();
+		instance.setDepartures(engine.getBoard().getDepartures());
+		instance.startNewGame(planes);
+	}
+
+	@Benchmark
+	public double[] updatePlanes() {
+		System.arraycopy(bearings, 0, scratch, 0, bearings.length);
+		return instance.updatePlanes(planes, round, scratch);
+	}
+}
@@ -0,0 +1,108 @@
+package airplane.bench;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import airplane.g17.GroupSeventeenPlayer;
+import airplane.g4.Group4Player3;
+import airplane.sim.GameEngine;
+import airplane.sim.Plane;
+import airplane.sim.SimulationContext;
+import airplane.sim.SimulationResult;
+
+/**
+ * Player.startSimulation, both the copying version and the one that reuses
+ * a SimulationContext.
+ *
+ * The traffic is what Group4Player3 has in the air after a number of rounds,
+ * and each simulation runs GroupSeventeenPlayer's strategy for a fixed number
+ * of rounds, with the planes moved with exact math or with FastMath.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimulationBenchmark {
+
+	@Param({"Scramble.txt", "random-1000"})
+	public String board;
+
+	@Param({"20"})
+	public int horizon;
+
+	@Param({"false", "true"})
+	public boolean fastMath;
+
+	private ArrayList<Plane> planes;
+	private int round;
+	private SimulatingPlayer player;
+	private SimulationContext context;
+
+	/*
+	 * Exposes the protected simulation methods, and stops each simulation
+	 * after the horizon.
+	 */
+	public static class SimulatingPlayer extends GroupSeventeenPlayer {
+		int stopRound;
+
+		void useFastMath(boolean fastMath) {
+			setFastMath(fastMath);
+		}
+
+		SimulationResult simulate(ArrayList<Plane> planes, int round) {
+			return startSimulation(planes, round);
+		}
+
+		SimulationResult simulate(SimulationContext context, ArrayList<Plane> planes, int round) {
+			return startSimulation(context, planes, round);
+		}
+
+		@Override
+		protected double[] simulateUpdate(ArrayList<Plane> planes, int round, double[] bearings) {
+			if (round >= stopRound)
+				stopSimulation();
+			return super.simulateUpdate(planes, round, bearings);
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		GameEngine engine = Boards.newGame(Group4Player3.class, Boards.resolve(board));
+		Boards.advance(engine, 40);
+		round = engine.getCurrentRound();
+		planes = new ArrayList<Plane>();
+		for (Plane p : engine.getBoard().getPlanes())
+			planes.add(new Plane(p));
+		player = new SimulatingPlayer();
+		player.startNewGame(planes);
+		player.stopRound = round + horizon;
+		player.useFastMath(fastMath);
+		context = new SimulationContext();
+		context.setFastMath(fastMath);
+	}
+
+	@Benchmark
+	public SimulationResult startSimulation() {
+		return player.simulate(planes, round);
+	}
+
+	@Benchmark
+	public SimulationResult startSimulationWithContext() {
+		return player.simulate(context, planes, round);
+	}
+}
@@ -0,0 +1,105 @@
+package airplane.bench;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import airplane.g4.Group4Player3;
+import airplane.sim.GameEngine;
+import airplane.sim.Plane;
+import airplane.sim.SimulationContext;
+
+/**
+ * Trying out one branch of a search: playing a few rounds from a state and
+ * going back to it, either by starting the simulation again from a copy of
+ * the planes or by restoring a snapshot, in a SimulationContext and in the
+ * GameEngine itself.
+ *
+ * The traffic is what Group4Player3 has in the air after a number of rounds,
+ * and the branch keeps every plane on its bearing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnapshotBenchmark {
+
+	@Param({"Scramble.txt", "random-1000"})
+	public String board;
+
+	@Param({"1", "5"})
+	public int depth;
+
+	private ArrayList<Plane> planes;
+	private int round;
+	private double[] bearings;
+	private double[] branch;
+	private SimulationContext context;
+	private SimulationContext.Snapshot contextSnapshot;
+	private GameEngine engine;
+	private GameEngine.Snapshot engineSnapshot;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		engine = Boards.newGame(Group4Player3.class, Boards.resolve(board));
+		Boards.advance(engine, 40);
+		round = engine.getCurrentRound();
+		planes = new ArrayList<Plane>();
+		for (Plane p : engine.getBoard().getPlanes())
+			planes.add(new Plane(p));
+		bearings = new double[planes.size()];
+		for (int i = 0; i < bearings.length; i++)
+			bearings[i] = planes.get(i).getBearing();
+		branch = new double[bearings.length];
+		context = new SimulationContext();
+		context.start(planes, round);
+		contextSnapshot = context.snapshot();
+		engineSnapshot = engine.snapshot();
+	}
+
+	@Benchmark
+	public int restartFromCopy() {
+		context.start(planes, round);
+		return playBranch();
+	}
+
+	@Benchmark
+	public int restoreSnapshot() {
+		context.restore(contextSnapshot);
+		return playBranch();
+	}
+
+	@Benchmark
+	public int engineRestoreSnapshot() {
+		engine.restore(engineSnapshot);
+		for (int d = 0; d < depth; d++) {
+			System.arraycopy(bearings, 0, branch, 0, branch.length);
+			if (!engine.step(branch))
+				break;
+		}
+		return engine.getPower();
+	}
+
+	private int playBranch() {
+		for (int d = 0; d < depth; d++) {
+			System.arraycopy(bearings, 0, branch, 0, branch.length);
+			if (!context.step(branch))
+				break;
+		}
+		return context.getNumLanded();
+	}
+}
@@ -0,0 +1,88 @@
+package airplane.bench;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import airplane.sim.IntUnionFind;
+
+/**
+ * Grouping planes into conflict groups with IntUnionFind, against the
+ * HashMap-based union-find the g4 players used to build every round.
+ *
+ * Each round adds the airborne planes, joins a fixed list of random pairs
+ * (about one per plane, as in a busy airspace) and lists the groups.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UnionFindBenchmark {
+
+	@Param({"100", "1000", "10000"})
+	public int planes;
+
+	private int[] pairs;
+	private IntUnionFind unionFind;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		Random random = new Random(42);
+		pairs = new int[2 * planes];
+		for (int k = 0; k < pairs.length; k++)
+			pairs[k] = random.nextInt(planes);
+		unionFind = new IntUnionFind(planes);
+	}
+
+	@Benchmark
+	public int hashMap() {
+		Map<Long, Long> parent = new HashMap<>();
+		for (int i = 0; i < planes; i++)
+			parent.putIfAbsent((long) i, (long) i);
+		for (int k = 0; k < pairs.length; k += 2) {
+			Long rootX = find(parent, (long) pairs[k]);
+			Long rootY = find(parent, (long) pairs[k + 1]);
+			if (!Objects.equals(rootX, rootY))
+				parent.put(rootX, rootY);
+		}
+		Map<Long, Set<Long>> components = new HashMap<>();
+		for (Long x : parent.keySet())
+			components.computeIfAbsent(find(parent, x), v -> new HashSet<>()).add(x);
+		return components.size();
+	}
+
+	private static Long find(Map<Long, Long> parent, Long x) {
+		if (!Objects.equals(parent.get(x), x))
+			parent.put(x, find(parent, parent.get(x)));
+		return parent.get(x);
+	}
+
+	@Benchmark
+	public int intUnionFind() {
+		unionFind.reset();
+		for (int i = 0; i < planes; i++)
+			unionFind.add(i);
+		for (int k = 0; k < pairs.length; k += 2)
+			unionFind.union(pairs[k], pairs[k + 1]);
+		return unionFind.computeComponents();
+	}
+}
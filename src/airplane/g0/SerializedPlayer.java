@@ -2,6 +2,7 @@ package airplane.g0;
 
 import java.util.ArrayList;
 import org.apache.log4j.Logger;
+import airplane.sim.DepartureSchedule;
 import airplane.sim.Plane;
 import airplane.sim.Player;
 
@@ -9,6 +10,8 @@ import airplane.sim.Player;
 public class SerializedPlayer extends Player {
 
 	private Logger logger = Logger.getLogger(this.getClass()); // for logging
+	// the plane that took off last; it is the only one that can be in the air
+	private int inFlight = -1;
 	
 	@Override
 	public String getName() {
@@ -23,7 +26,7 @@ public class SerializedPlayer extends Player {
 	@Override
 	public void startNewGame(ArrayList<Plane> planes) {
 		logger.info("Starting new game!");
-
+		inFlight = -1;
 	}
 	
 	/*
@@ -36,26 +39,29 @@ public class SerializedPlayer extends Player {
 	public double[] updatePlanes(ArrayList<Plane> planes, int round, double[] bearings) {
 				
 		// if any plane is in the air, then just keep things as-is
-		for (Plane p : planes) {
-		    if (p.getBearing() != -1 && p.getBearing() != -2) return bearings;
+		if (inFlight >= 0) {
+			double bearing = planes.get(inFlight).getBearing();
+			if (bearing != -1 && bearing != -2) return bearings;
 		}
 
-		// if no plane is in the air, find the one with the earliest 
-		// departure time and move that one in the right direction
+		// if no plane is in the air, find the one that is ready to go with the
+		// earliest departure time and move that one in the right direction
+		DepartureSchedule departures = getDepartures(planes, round);
 		int minTime = 10000;
-		int minIndex = 10000;
-		for (int i = 0; i < planes.size(); i++) {
+		int minIndex = -1;
+		for (int i = departures.nextReady(0); i >= 0; i = departures.nextReady(i + 1)) {
 			Plane p = planes.get(i);
-		    if (p.getDepartureTime() < minTime && p.getBearing() == -1 && p.dependenciesHaveLanded(bearings)) {
+		    if (p.getDepartureTime() < minTime && departures.dependenciesHaveLanded(i)) {
 				minIndex = i;
 				minTime = p.getDepartureTime();
 		    }
 		}
 		
-		// if it's not too early, then take off and head straight for the destination
-		if (round >= minTime) {
+		// take off and head straight for the destination
+		if (minIndex >= 0) {
 		    Plane p = planes.get(minIndex);
-		    bearings[minIndex] = calculateBearing(p.getLocation(), p.getDestination());
+		    bearings[minIndex] = calculateBearing(p);
+		    inFlight = minIndex;
 		}
 		
 		
@@ -28,7 +28,9 @@ public class GroupSeventeenPlayer extends Player {
 
     @Override
     public double[] updatePlanes(ArrayList<Plane> planes, int round, double[] bearings) {
-        logger.info("Updating planes for round " + round);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Updating planes for round " + round);
+        }
 
         for (int i = 0; i < planes.size(); i++) {
             Plane plane = planes.get(i);
@@ -36,27 +38,22 @@ public class GroupSeventeenPlayer extends Player {
 
             if (plane.getBearing() == -1 && round >= plane.getDepartureTime() + delay) {
                 // Plane is on the ground and ready to take off (considering delay)
-                Point2D.Double destination = plane.getDestination();
-                double initialBearing = calculateBearing(plane.getLocation(), destination);
+                double initialBearing = calculateBearing(plane);
                 bearings[i] = initialBearing;
             } else if (plane.getBearing() >= 0 && plane.getBearing() != -2) {
                 // Plane is in the air
-                Point2D.Double currentLocation = plane.getLocation();
-                Point2D.Double destination = plane.getDestination();
-
-                double targetBearing = calculateBearing(currentLocation, destination);
+                double targetBearing = calculateBearing(plane);
                 double currentBearing = plane.getBearing();
 
                 // Check for potential collisions with other planes
                 for (int j = 0; j < planes.size(); j++) {
                     if (i != j && planes.get(j).getBearing() >= 0 && planes.get(j).getBearing() != -2) {
                         Plane otherPlane = planes.get(j);
-                        Point2D.Double otherLocation = otherPlane.getLocation();
-                        double distanceToOtherPlane = currentLocation.distance(otherLocation);
+                        double distanceToOtherPlane = plane.distanceTo(otherPlane);
 
                         if (distanceToOtherPlane <= 15) {
                             // Planes are too close, adjust course
-                            double bearingToOtherPlane = calculateBearing(currentLocation, otherLocation);
+                            double bearingToOtherPlane = calculateBearing(plane.getX(), plane.getY(), otherPlane.getX(), otherPlane.getY());
                             double avoidanceBearing = (bearingToOtherPlane + 90) % 360; // Turn 90 degrees relative to other plane
                             targetBearing = avoidanceBearing;
                             break; // Exit the loop after finding a nearby plane
@@ -1,19 +1,30 @@
 package airplane.g17;
 
+import airplane.sim.ConflictDetector;
+import airplane.sim.DepartureSchedule;
 import airplane.sim.Plane;
 import airplane.sim.Player;
+import airplane.sim.Tunable;
 import org.apache.log4j.Logger;
 
-import java.awt.geom.Point2D;
 import java.util.*;
 
 public class GroupSeventeenPlayerScramble extends Player {
 
     private Logger logger = Logger.getLogger(this.getClass());
+    @Tunable(min = 5, max = 40, step = 5)
     private int delayRound = 20;
+    @Tunable(min = 2, max = 14, step = 2)
     private int forecastRound = 9;
+    @Tunable(min = 5, max = 20, step = 2.5)
     private double conflictDistance = 13;
-    private Map<String, Integer> planeArrivalRound;
+    // no plane is on its way to the destination
+    private static final int NO_ARRIVAL = Integer.MIN_VALUE;
+    // the destination id of each plane, see Player.getDestinationIds
+    private int[] destinationIds;
+    // by destination id, the estimated arrival round of the last plane to leave for it
+    private int[] planeArrivalRound;
+    private ConflictDetector conflictDetector;
 
     @Override
     public String getName() {
@@ -23,30 +34,37 @@ public class GroupSeventeenPlayerScramble extends Player {
     @Override
     public void startNewGame(ArrayList<Plane> planes) {
         logger.info("Starting new game!");
-        this.planeArrivalRound = new HashMap<>();
+        this.destinationIds = getDestinationIds(planes);
+        this.planeArrivalRound = new int[planes.size()];
+        Arrays.fill(planeArrivalRound, NO_ARRIVAL);
+        this.conflictDetector = new ConflictDetector(conflictDistance);
     }
 
     @Override
     public double[] updatePlanes(ArrayList<Plane> planes, int round, double[] bearings) {
-        logger.info("Before round: " + round + ", bearings: " + Arrays.toString(bearings));
+        if (logger.isDebugEnabled()) {
+            logger.debug("Before round: " + round + ", bearings: " + Arrays.toString(bearings));
+        }
 
         handleDepartures(planes, round, bearings);
         handleAirbornePlanes(planes, round, bearings);
         handleArrivals(planes, bearings);
 
-        logger.info("After round: " + round + ", bearings: " + Arrays.toString(bearings));
+        if (logger.isDebugEnabled()) {
+            logger.debug("After round: " + round + ", bearings: " + Arrays.toString(bearings));
+        }
         return bearings;
     }
 
     private void handleDepartures(ArrayList<Plane> planes, int round, double[] bearings) {
         boolean departureThisRound = false;
-        for (int i = 0; i < planes.size(); i++) {
+        DepartureSchedule departures = getDepartures(planes, round);
+        for (int i = departures.nextReady(0); i >= 0; i = departures.nextReady(i + 1)) {
             Plane plane = planes.get(i);
-            if (plane.getBearing() == -1 && round >= plane.getDepartureTime() + 1 && !departureThisRound) {
+            if (round >= plane.getDepartureTime() + 1 && !departureThisRound) {
                 if (canTakeOff(planes, plane)) {
-                    String destinationKey = plane.getDestination().toString();
-                    if (!planeArrivalRound.containsKey(destinationKey) ||
-                            round - planeArrivalRound.get(destinationKey) >= delayRound) {
+                    int lastArrival = planeArrivalRound[destinationIds[i]];
+                    if (lastArrival == NO_ARRIVAL || round - lastArrival >= delayRound) {
                         initiateTakeoff(plane, i, round, bearings);
                         departureThisRound = true;
                     }
@@ -58,7 +76,7 @@ public class GroupSeventeenPlayerScramble extends Player {
     private boolean canTakeOff(ArrayList<Plane> planes, Plane plane) {
         for (Plane otherPlane : planes) {
             if (otherPlane != plane && otherPlane.getBearing() >= 0 && otherPlane.getBearing() != -2
-                    && otherPlane.getLocation().distance(plane.getLocation()) <= 30) {
+                    && otherPlane.distanceTo(plane) <= 30) {
                 return false;
             }
         }
@@ -66,15 +84,18 @@ public class GroupSeventeenPlayerScramble extends Player {
     }
 
     private void initiateTakeoff(Plane plane, int index, int round, double[] bearings) {
-        bearings[index] = calculateBearing(plane.getLocation(), plane.getDestination());
-        double distance = plane.getLocation().distance(plane.getDestination());
-        planeArrivalRound.put(plane.getDestination().toString(), (int) (round + distance));
-        logger.info("Plane " + index + " taking off at round " + round);
+        bearings[index] = calculateBearing(plane);
+        double distance = plane.distanceToDestination();
+        planeArrivalRound[destinationIds[index]] = (int) (round + distance);
+        if (logger.isInfoEnabled()) {
+            logger.info("Plane " + index + " taking off at round " + round);
+        }
     }
 
     private void handleAirbornePlanes(ArrayList<Plane> planes, int round, double[] bearings) {
-        Map<Integer, List<Point2D.Double>> forecastLocations = calculateForecastLocations(planes, bearings);
-        List<Set<Integer>> conflictGroups = findConflictGroups(forecastLocations);
+        Map<Integer, Set<Integer>> conflicts = new HashMap<>();
+        Set<Integer> airborne = findConflicts(planes, bearings, conflicts);
+        List<Set<Integer>> conflictGroups = findConflictGroups(airborne, conflicts);
 
         for (Set<Integer> group : conflictGroups) {
             if (group.size() > 1) {
@@ -85,29 +106,37 @@ public class GroupSeventeenPlayerScramble extends Player {
         }
     }
 
-    private Map<Integer, List<Point2D.Double>> calculateForecastLocations(ArrayList<Plane> planes, double[] bearings) {
-        Map<Integer, List<Point2D.Double>> forecastLocations = new HashMap<>();
+    // Forecasts every airborne plane up to forecastRound rounds ahead (or until it
+    // reaches its destination) and records which pairs come within conflictDistance
+    // in the same round.
+    private Set<Integer> findConflicts(ArrayList<Plane> planes, double[] bearings, Map<Integer, Set<Integer>> conflicts) {
+        Set<Integer> airborne = new HashSet<>();
+        conflictDetector.clear();
         for (int i = 0; i < planes.size(); i++) {
             Plane plane = planes.get(i);
             if (plane.getBearing() >= 0 && plane.getBearing() != -2) {
-                List<Point2D.Double> locations = new ArrayList<>();
-                Point2D.Double currentLocation = plane.getLocation();
-                double arrivalLeftRound = currentLocation.distance(plane.getDestination());
-                for (int k = 1; k <= Math.min(arrivalLeftRound, forecastRound); k++) {
-                    locations.add(calculateNextLocation(currentLocation, bearings[i], k));
-                }
-                forecastLocations.put(i, locations);
+                double arrivalLeftRound = plane.distanceToDestination();
+                int horizon = (int) Math.min(Math.floor(arrivalLeftRound), forecastRound);
+                conflictDetector.add(i, plane.getX(), plane.getY(), bearings[i], horizon);
+                airborne.add(i);
             }
         }
-        return forecastLocations;
+        int conflictCount = conflictDetector.findConflicts();
+        for (int k = 0; k < conflictCount; k++) {
+            int a = conflictDetector.getConflictA(k);
+            int b = conflictDetector.getConflictB(k);
+            conflicts.computeIfAbsent(a, v -> new HashSet<>()).add(b);
+            conflicts.computeIfAbsent(b, v -> new HashSet<>()).add(a);
+        }
+        return airborne;
     }
 
-    private List<Set<Integer>> findConflictGroups(Map<Integer, List<Point2D.Double>> forecastLocations) {
+    private List<Set<Integer>> findConflictGroups(Set<Integer> airborne, Map<Integer, Set<Integer>> conflicts) {
         List<Set<Integer>> conflictGroups = new ArrayList<>();
-        for (int i : forecastLocations.keySet()) {
+        for (int i : airborne) {
             boolean added = false;
             for (Set<Integer> group : conflictGroups) {
-                if (isInConflict(i, forecastLocations, group)) {
+                if (isInConflict(i, conflicts, group)) {
                     group.add(i);
                     added = true;
                     break;
@@ -122,14 +151,10 @@ public class GroupSeventeenPlayerScramble extends Player {
         return conflictGroups;
     }
 
-    private boolean isInConflict(int planeId, Map<Integer, List<Point2D.Double>> forecastLocations, Set<Integer> group) {
-        List<Point2D.Double> locations = forecastLocations.get(planeId);
-        for (int otherPlaneId : group) {
-            List<Point2D.Double> otherLocations = forecastLocations.get(otherPlaneId);
-            for (int i = 0; i < Math.min(locations.size(), otherLocations.size()); i++) {
-                if (locations.get(i).distance(otherLocations.get(i)) < conflictDistance) {
-                    return true;
-                }
+    private boolean isInConflict(int planeId, Map<Integer, Set<Integer>> conflicts, Set<Integer> group) {
+        for (int otherPlaneId : conflicts.getOrDefault(planeId, Collections.emptySet())) {
+            if (group.contains(otherPlaneId)) {
+                return true;
             }
         }
         return false;
@@ -151,8 +176,8 @@ public class GroupSeventeenPlayerScramble extends Player {
         Plane plane1 = planes.get(planeId1);
         Plane plane2 = planes.get(planeId2);
 
-        double distanceToDestination1 = plane1.getLocation().distance(plane1.getDestination());
-        double distanceToDestination2 = plane2.getLocation().distance(plane2.getDestination());
+        double distanceToDestination1 = plane1.distanceToDestination();
+        double distanceToDestination2 = plane2.distanceToDestination();
 
         int planeToAdjust = (distanceToDestination1 > distanceToDestination2) ? planeId1 : planeId2;
 
@@ -168,7 +193,7 @@ public class GroupSeventeenPlayerScramble extends Player {
         for (int id1 : group) {
             for (int id2 : group) {
                 if (id1 != id2) {
-                    double distance = planes.get(id1).getLocation().distance(planes.get(id2).getLocation());
+                    double distance = planes.get(id1).distanceTo(planes.get(id2));
                     if (distance < minDistance) {
                         minDistance = distance;
                         planeId1 = id1;
@@ -182,8 +207,8 @@ public class GroupSeventeenPlayerScramble extends Player {
             Plane plane1 = planes.get(planeId1);
             Plane plane2 = planes.get(planeId2);
 
-            double distanceToDestination1 = plane1.getLocation().distance(plane1.getDestination());
-            double distanceToDestination2 = plane2.getLocation().distance(plane2.getDestination());
+            double distanceToDestination1 = plane1.distanceToDestination();
+            double distanceToDestination2 = plane2.distanceToDestination();
 
             int planeToAdjust = (distanceToDestination1 > distanceToDestination2) ? planeId1 : planeId2;
             bearings[planeToAdjust] = (bearings[planeToAdjust] + 9.9 + 360) % 360;
@@ -192,7 +217,7 @@ public class GroupSeventeenPlayerScramble extends Player {
 
     private void adjustBearingToDestination(ArrayList<Plane> planes, double[] bearings, int planeId) {
         Plane plane = planes.get(planeId);
-        double targetBearing = calculateBearing(plane.getLocation(), plane.getDestination());
+        double targetBearing = calculateBearing(plane);
         double currentBearing = bearings[planeId];
 
         if (Math.abs(currentBearing - targetBearing) > 9) {
@@ -210,16 +235,10 @@ public class GroupSeventeenPlayerScramble extends Player {
 
     private void handleArrivals(ArrayList<Plane> planes, double[] bearings) {
         for (int i = 0; i < planes.size(); i++) {
-            if (planes.get(i).getLocation().distance(planes.get(i).getDestination()) <= 0.5) {
+            if (planes.get(i).distanceToDestination() <= 0.5) {
                 bearings[i] = -2;
-                planeArrivalRound.remove(planes.get(i).getDestination().toString());
+                planeArrivalRound[destinationIds[i]] = NO_ARRIVAL;
             }
         }
     }
-
-    private Point2D.Double calculateNextLocation(Point2D.Double currentLocation, double bearing, int round) {
-        double x = currentLocation.x + Math.cos(Math.toRadians(bearing - 90)) * round;
-        double y = currentLocation.y + Math.sin(Math.toRadians(bearing - 90)) * round;
-        return new Point2D.Double(x, y);
-    }
-}
\ No newline at end of file
+}
@@ -31,8 +31,8 @@ public class Group4Player extends Player {
         originBearings = new Double[planes.size()];
         for(int i = 0; i < planes.size(); i++){
             Plane p = planes.get(i);
-            distance = p.getLocation().distance(p.getDestination());
-            originBearings[i] = calculateBearing(p.getLocation(), p.getDestination());
+            distance = p.distanceToDestination();
+            originBearings[i] = calculateBearing(p);
         }
         for(int i = 10 * prepareStep; i >= 10; i = i - 10){
             prepareDistance += Math.cos(Math.toRadians(i));
@@ -56,7 +56,7 @@ public class Group4Player extends Player {
                     bearings[i] = originBearings[i];
                 }else{
                     // End phase
-                    double desBearing = calculateBearing(p.getLocation(), p.getDestination());
+                    double desBearing = calculateBearing(p);
                     // If the difference between desBearing and current bearing is greater than 10,
                     // add 10 to the current bearing
                     // otherwise do not change the bearing
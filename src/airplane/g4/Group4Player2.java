@@ -16,11 +16,20 @@ public class Group4Player2 extends Player {
     private int forecastRound = 7;
 
     private int conflictDistance = 6;
+    // no plane has left for the destination yet
+    private static final int NO_ARRIVAL = Integer.MIN_VALUE;
+    // the destination id of each plane, see Player.getDestinationIds
+    private int[] destinationIds;
     /**
-     * String: destination
-     * Long: estimated arrival round
+     * Index: destination id
+     * Value: estimated arrival round of the last plane to leave for it
      */
-    private Map<String, Integer> planeArrivalRound;
+    private int[] planeArrivalRound;
+    // the forecast locations of the planes in the air, forecastRound of them
+    // per plane: those of forecastPlanes[p] start at p * forecastRound
+    private double[] forecastX = new double[0];
+    private double[] forecastY = new double[0];
+    private int[] forecastPlanes = new int[0];
 
     @Override
     public String getName() {
@@ -30,7 +39,9 @@ public class Group4Player2 extends Player {
     @Override
     public void startNewGame(ArrayList<Plane> planes) {
         logger.info("Starting new game!");
-        this.planeArrivalRound = new HashMap<>();
+        this.destinationIds = getDestinationIds(planes);
+        this.planeArrivalRound = new int[planes.size()];
+        Arrays.fill(planeArrivalRound, NO_ARRIVAL);
     }
 
     @Override
@@ -40,62 +51,60 @@ public class Group4Player2 extends Player {
             if(planes.get(i).getBearing() == -1 && round >= planes.get(i).getDepartureTime() + 1){
                 // if there is no in air airplane has the same destination with the current plane
                 // and the current plane is waiting to departure, then departure.
-                if(!planeArrivalRound.containsKey(planes.get(i).getDestination().toString())){
-                    bearings[i] = calculateBearing(planes.get(i).getLocation(), planes.get(i).getDestination());
-                    double distance = planes.get(i).getLocation().distance(planes.get(i).getDestination());
-                    planeArrivalRound.put(planes.get(i).getDestination().toString(), (int) (round + distance));
+                int destination = destinationIds[i];
+                if(planeArrivalRound[destination] == NO_ARRIVAL){
+                    bearings[i] = calculateBearing(planes.get(i));
+                    double distance = planes.get(i).distanceToDestination();
+                    planeArrivalRound[destination] = (int) (round + distance);
                 }else{
                     // if there is in air airplane has the same destination with the current plane
                     // and the current plane is waiting to departure,
                     // then wait until the difference between departure round and
                     // in air airplane's estimated arrival round is greater than delayRound
-                    double distance = planes.get(i).getLocation().distance(planes.get(i).getDestination());
-                    int lastPlaneArrivalRound = planeArrivalRound.get(planes.get(i).getDestination().toString());
+                    double distance = planes.get(i).distanceToDestination();
+                    int lastPlaneArrivalRound = planeArrivalRound[destination];
                     int currentPlaneArrivalRound = (int) (round + distance);
                     if(currentPlaneArrivalRound - lastPlaneArrivalRound >= delayRound){
-                        bearings[i] = calculateBearing(planes.get(i).getLocation(), planes.get(i).getDestination());
-                        planeArrivalRound.put(planes.get(i).getDestination().toString(), currentPlaneArrivalRound);
+                        bearings[i] = calculateBearing(planes.get(i));
+                        planeArrivalRound[destination] = currentPlaneArrivalRound;
                     }
                 }
             }
         }
 
         Set<Long> mayConflictPlanes = new HashSet<>();
-        // Key: planeId, Value: forecastLocations
-        Map<Long, List<Point2D.Double>> forecastLocations = new HashMap<>();
+        if (forecastPlanes.length < planes.size() || forecastX.length < planes.size() * forecastRound) {
+            forecastPlanes = new int[planes.size()];
+            forecastX = new double[planes.size() * forecastRound];
+            forecastY = new double[planes.size() * forecastRound];
+        }
+        int forecastPlaneCount = 0;
         for(int i = 0; i < planes.size(); i++) {
             // Calculate all in air airplanes' location in forecast rounds
             if (planes.get(i).getBearing() != -1 && planes.get(i).getBearing() != -2) {
-                Point2D.Double currentLocation = planes.get(i).getLocation();
+                Plane plane = planes.get(i);
+                int start = forecastPlaneCount * forecastRound;
                 for(int k = 1; k <= forecastRound; k++){
-                    Point2D.Double forecastLocation = calculateNextLocation(currentLocation, bearings[i], k);
+                    calculateNextLocation(plane, bearings[i], k, start + k - 1);
+                    double x = forecastX[start + k - 1];
+                    double y = forecastY[start + k - 1];
                     // check if the plane will be less than 5 units to other planes in forecast round
-                    for(Long key : forecastLocations.keySet()){
-                        List<Point2D.Double> locations = forecastLocations.get(key);
-                        for(Point2D.Double location : locations){
-                            if(forecastLocation.distance(location) < conflictDistance){
+                    for(int p = 0; p < forecastPlaneCount; p++){
+                        for(int m = p * forecastRound; m < (p + 1) * forecastRound; m++){
+                            if(Point2D.distance(x, y, forecastX[m], forecastY[m]) < conflictDistance){
                                 mayConflictPlanes.add((long) i);
-                                mayConflictPlanes.add(key);
+                                mayConflictPlanes.add((long) forecastPlanes[p]);
                             }
                         }
                     }
                 }
-
-                // calculate forecast locations
-                for(int k = 1; k <= forecastRound; k++) {
-                    Point2D.Double forecastLocation = calculateNextLocation(currentLocation, bearings[i], k);
-                    if(forecastLocations.containsKey((long) i)) {
-                        forecastLocations.get((long) i).add(forecastLocation);
-                    }else{
-                        List<Point2D.Double> locations = new ArrayList<>();
-                        locations.add(forecastLocation);
-                        forecastLocations.put((long) i, locations);
-                    }
-                }
+                forecastPlanes[forecastPlaneCount++] = i;
             }
         }
 
-        logger.info("mayConflictPlanes: " + mayConflictPlanes.toString());
+        if (logger.isDebugEnabled()) {
+            logger.debug("mayConflictPlanes: " + mayConflictPlanes.toString());
+        }
 
         // Find all planes that are possible to collide,
         // then change their bearings
@@ -105,7 +114,7 @@ public class Group4Player2 extends Player {
                     bearings[i] = (bearings[i] + 10) % 360;
 
                 }else{
-                    double targetBearing = calculateBearing(planes.get(i).getLocation(), planes.get(i).getDestination());
+                    double targetBearing = calculateBearing(planes.get(i));
                     if(Math.abs(bearings[i] - targetBearing) > 10) {
                         // change the bearing by 10 towards its target bearing
                         bearings[i] = bearings[i] > targetBearing ? bearings[i] - 10 : bearings[i] + 10;
@@ -118,7 +127,7 @@ public class Group4Player2 extends Player {
 
         // if the plane arrived, change its bearing to -2
         for(int i = 0; i < planes.size(); i++){
-            if(planes.get(i).getLocation().distance(planes.get(i).getDestination()) <= 0.5){
+            if(planes.get(i).distanceToDestination() <= 0.5){
                 bearings[i] = -2;
             }
         }
@@ -127,9 +136,9 @@ public class Group4Player2 extends Player {
         return bearings;
     }
 
-    private Point2D.Double calculateNextLocation(Point2D.Double currentLocation, double bearing, int round){
-        double x = currentLocation.x + Math.cos(Math.toRadians(bearing - 90)) * round;
-        double y = currentLocation.y + Math.sin(Math.toRadians(bearing - 90)) * round;
-        return new Point2D.Double(x, y);
+    // stores the plane's location after the given number of rounds at forecastX/Y[slot]
+    private void calculateNextLocation(Plane plane, double bearing, int round, int slot){
+        forecastX[slot] = plane.getX() + Math.cos(Math.toRadians(bearing - 90)) * round;
+        forecastY[slot] = plane.getY() + Math.sin(Math.toRadians(bearing - 90)) * round;
     }
 }
\ No newline at end of file
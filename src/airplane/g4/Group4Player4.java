@@ -1,7 +1,9 @@
 package airplane.g4;
 
+import airplane.sim.IntUnionFind;
 import airplane.sim.Plane;
 import airplane.sim.Player;
+import airplane.sim.Tunable;
 import org.apache.log4j.Logger;
 
 import java.awt.geom.Point2D;
@@ -11,16 +13,32 @@ public class Group4Player4 extends Player {
 
     private Logger logger = Logger.getLogger(this.getClass());
 
+    @Tunable(min = 5, max = 40, step = 5)
     private int delayRound = 20;
 
+    @Tunable(min = 2, max = 14, step = 2)
     private int forecastRound = 9;
 
+    @Tunable(min = 5, max = 15, step = 2)
     private int conflictDistance = 7;
+    // no plane has left for the destination yet
+    private static final int NO_ARRIVAL = Integer.MIN_VALUE;
     /**
-     * String: destination
-     * Long: estimated arrival round
+     * Index: destination id
+     * Value: estimated arrival round of the last plane to leave for it
      */
-    private Map<String, Integer> planeArrivalRound;
+    private int[] planeArrivalRound;
+    // the destination id of each plane, see Player.getDestinationIds
+    private int[] destinationIds;
+    // the forecast locations of the planes in the air, up to forecastRound of
+    // them per plane: those of forecastPlanes[p] start at p * forecastRound
+    // and there are forecastCounts[p] of them
+    private double[] forecastX = new double[0];
+    private double[] forecastY = new double[0];
+    private int[] forecastPlanes = new int[0];
+    private int[] forecastCounts = new int[0];
+
+    private final IntUnionFind unionFind = new IntUnionFind();
 
     @Override
     public String getName() {
@@ -30,12 +48,16 @@ public class Group4Player4 extends Player {
     @Override
     public void startNewGame(ArrayList<Plane> planes) {
         logger.info("Starting new game!");
-        this.planeArrivalRound = new HashMap<>();
+        this.destinationIds = getDestinationIds(planes);
+        this.planeArrivalRound = new int[planes.size()];
+        Arrays.fill(planeArrivalRound, NO_ARRIVAL);
     }
 
     @Override
     public double[] updatePlanes(ArrayList<Plane> planes, int round, double[] bearings) {
-        logger.info("before round: " + round + ", bearings: " + Arrays.toString(bearings));
+        if (logger.isDebugEnabled()) {
+            logger.debug("before round: " + round + ", bearings: " + Arrays.toString(bearings));
+        }
         // In the same round, only one plane could take off
         Set<Long> departurePlanes = new HashSet<>();
         for(int i = 0; i < planes.size(); i++){
@@ -45,7 +67,7 @@ public class Group4Player4 extends Player {
                 boolean canTakeOff = true;
                 for(int j = 0; j < planes.size(); j++){
                     if(i != j && planes.get(j).getBearing() != -2 && planes.get(j).getBearing() != -1
-                            && planes.get(j).getLocation().distance(planes.get(i).getLocation()) <= 30){
+                            && planes.get(j).distanceTo(planes.get(i)) <= 30){
                         canTakeOff = false;
                         break;
                     }
@@ -58,100 +80,106 @@ public class Group4Player4 extends Player {
 
                 // if there is no in air airplane has the same destination with the current plane
                 // and the current plane is waiting to departure, then departure.
-                if(!planeArrivalRound.containsKey(planes.get(i).getDestination().toString())){
-                    bearings[i] = calculateBearing(planes.get(i).getLocation(), planes.get(i).getDestination());
-                    double distance = planes.get(i).getLocation().distance(planes.get(i).getDestination());
-                    planeArrivalRound.put(planes.get(i).getDestination().toString(), (int) (round + distance));
+                int destination = destinationIds[i];
+                if(planeArrivalRound[destination] == NO_ARRIVAL){
+                    bearings[i] = calculateBearing(planes.get(i));
+                    double distance = planes.get(i).distanceToDestination();
+                    planeArrivalRound[destination] = (int) (round + distance);
                     departurePlanes.add((long) i);
                 }else{
                     // if there is in air airplane has the same destination with the current plane
                     // and the current plane is waiting to departure,
                     // then wait until the difference between departure round and
                     // in air airplane's estimated arrival round is greater than delayRound
-                    double distance = planes.get(i).getLocation().distance(planes.get(i).getDestination());
-                    int lastPlaneArrivalRound = planeArrivalRound.get(planes.get(i).getDestination().toString());
+                    double distance = planes.get(i).distanceToDestination();
+                    int lastPlaneArrivalRound = planeArrivalRound[destination];
                     int currentPlaneArrivalRound = (int) (round + distance);
                     if(currentPlaneArrivalRound - lastPlaneArrivalRound >= delayRound){
-                        bearings[i] = calculateBearing(planes.get(i).getLocation(), planes.get(i).getDestination());
-                        planeArrivalRound.put(planes.get(i).getDestination().toString(), currentPlaneArrivalRound);
+                        bearings[i] = calculateBearing(planes.get(i));
+                        planeArrivalRound[destination] = currentPlaneArrivalRound;
                         departurePlanes.add((long) i);
                     }
                 }
             }
         }
 
-        UnionFind unionFind = new UnionFind();
-        // Key: planeId, Value: forecastLocations
-        Map<Long, List<Point2D.Double>> forecastLocations = new HashMap<>();
+        unionFind.reset();
+        if (forecastPlanes.length < planes.size() || forecastX.length < planes.size() * forecastRound) {
+            forecastPlanes = new int[planes.size()];
+            forecastCounts = new int[planes.size()];
+            forecastX = new double[planes.size() * forecastRound];
+            forecastY = new double[planes.size() * forecastRound];
+        }
+        int forecastPlaneCount = 0;
         for(int i = 0; i < planes.size(); i++) {
             // Calculate all in air airplanes' location in forecast rounds
             if (planes.get(i).getBearing() != -1 && planes.get(i).getBearing() != -2) {
-                Long planeId = (long) i;
-                unionFind.add(planeId);
-                Point2D.Double currentLocation = planes.get(i).getLocation();
+                unionFind.add(i);
+                Plane plane = planes.get(i);
+                int start = forecastPlaneCount * forecastRound;
+                int count = 0;
                 // Calculate the forecast rounds based on current bearing
-                double arrivalLeftRound = currentLocation.distance(planes.get(i).getDestination());
+                double arrivalLeftRound = plane.distanceToDestination();
                 for(int k = 1; k <= Math.min(arrivalLeftRound,forecastRound); k++){
-                    Point2D.Double forecastLocation = calculateNextLocation(currentLocation, bearings[i], k);
-                    forecastLocations.computeIfAbsent(planeId, v -> new ArrayList<>()).add(forecastLocation);
+                    calculateNextLocation(plane, bearings[i], k, start + count);
+                    double x = forecastX[start + count];
+                    double y = forecastY[start + count];
+                    count++;
                     // check if the plane will be less than 5 units to other planes in forecast round
-                    for (Map.Entry<Long, List<Point2D.Double>> entry : forecastLocations.entrySet()) {
-                        Long otherPlaneId = entry.getKey();
-                        if (!planeId.equals(otherPlaneId)) {
-                            for (Point2D.Double location : entry.getValue()) {
-                                if (forecastLocation.distance(location) < conflictDistance) {
-                                    unionFind.union(planeId, otherPlaneId);
-                                }
+                    for (int p = 0; p < forecastPlaneCount; p++) {
+                        int otherStart = p * forecastRound;
+                        for (int m = otherStart; m < otherStart + forecastCounts[p]; m++) {
+                            if (Point2D.distance(x, y, forecastX[m], forecastY[m]) < conflictDistance) {
+                                unionFind.union(i, forecastPlanes[p]);
                             }
                         }
                     }
                 }
+                forecastPlanes[forecastPlaneCount] = i;
+                forecastCounts[forecastPlaneCount] = count;
+                forecastPlaneCount++;
             }
         }
 
-        Map<Long, Set<Long>> conflictGroups = unionFind.getConnectedComponents();
-        List<Set<Long>> listOfConflictGroups = new ArrayList<>(conflictGroups.values());
-        logger.info("round: " + round + ", listOfConflictGroups: " + listOfConflictGroups.toString());
+        int conflictGroupCount = unionFind.computeComponents();
+        if (logger.isDebugEnabled()) {
+            logger.debug("round: " + round + ", listOfConflictGroups: " + conflictGroupsToString());
+        }
         // Find all planes that are possible to collide,
         // then change their bearings
-        for (Map.Entry<Long, Set<Long>> entry : conflictGroups.entrySet()) {
-            Set<Long> group = entry.getValue();
-            if (group.size() > 1) {
-                if(group.size() == 2){
+        for (int c = 0; c < conflictGroupCount; c++) {
+            int start = unionFind.getComponentStart(c);
+            int end = unionFind.getComponentEnd(c);
+            if (end - start > 1) {
+                if(end - start == 2){
                     // if there is only 2 conflict planes,
                     // find the one that are further from the destination to change its bearing
-                    Iterator<Long> iter = group.iterator();
-                    Long planeId1 = iter.next();
-                    Long planeId2 = iter.next();
-
-                    Point2D.Double location1 = planes.get(planeId1.intValue()).getLocation();
-                    Point2D.Double destination1 = planes.get(planeId1.intValue()).getDestination();
-                    Point2D.Double location2 = planes.get(planeId2.intValue()).getLocation();
-                    Point2D.Double destination2 = planes.get(planeId2.intValue()).getDestination();
+                    int planeId1 = unionFind.getMember(start);
+                    int planeId2 = unionFind.getMember(start + 1);
 
                     // Calculate distance to the destination
-                    double distanceToDestination1 = location1.distance(destination1);
-                    double distanceToDestination2 = location2.distance(destination2);
+                    double distanceToDestination1 = planes.get(planeId1).distanceToDestination();
+                    double distanceToDestination2 = planes.get(planeId2).distanceToDestination();
 
-                    Long planeToAdjust = (distanceToDestination1 > distanceToDestination2) ? planeId1 : planeId2;
+                    int planeToAdjust = (distanceToDestination1 > distanceToDestination2) ? planeId1 : planeId2;
 
                     // Change the bearing
                     double distance = Math.max(distanceToDestination1, distanceToDestination2);
                     double angle = distance > 10 ? 9.9 : 3;
-                    bearings[planeToAdjust.intValue()] = (bearings[planeToAdjust.intValue()] + angle + 360) % 360;
+                    bearings[planeToAdjust] = (bearings[planeToAdjust] + angle + 360) % 360;
                 }else {
                     // There are more than 2 conflict planes,
                     // find the most urgent pair of conflict planes,
                     // and find the one that are further from the destination to change its bearing
                     double minDistance = Double.MAX_VALUE;
-                    Long planeId1 = null;
-                    Long planeId2 = null;
-                    for (Long planeId : group) {
-                        for(Long otherPlaneId : group){
-                            if(!planeId.equals(otherPlaneId)){
-                                Point2D.Double location = planes.get(planeId.intValue()).getLocation();
-                                Point2D.Double otherLocation = planes.get(otherPlaneId.intValue()).getLocation();
-                                double distance = location.distance(otherLocation);
+                    int planeId1 = -1;
+                    int planeId2 = -1;
+                    for (int m = start; m < end; m++) {
+                        int planeId = unionFind.getMember(m);
+                        for(int n = start; n < end; n++){
+                            int otherPlaneId = unionFind.getMember(n);
+                            if(planeId != otherPlaneId){
+                                double distance = planes.get(planeId).distanceTo(planes.get(otherPlaneId));
                                 if(distance < minDistance){
                                     minDistance = distance;
                                     planeId1 = planeId;
@@ -161,41 +189,37 @@ public class Group4Player4 extends Player {
                         }
                     }
 
-                    Point2D.Double location1 = planes.get(planeId1.intValue()).getLocation();
-                    Point2D.Double destination1 = planes.get(planeId1.intValue()).getDestination();
-                    Point2D.Double location2 = planes.get(planeId2.intValue()).getLocation();
-                    Point2D.Double destination2 = planes.get(planeId2.intValue()).getDestination();
-
                     // calculate distance to the destination
-                    double distanceToDestination1 = location1.distance(destination1);
-                    double distanceToDestination2 = location2.distance(destination2);
+                    double distanceToDestination1 = planes.get(planeId1).distanceToDestination();
+                    double distanceToDestination2 = planes.get(planeId2).distanceToDestination();
 
-                    Long planeToAdjust = (distanceToDestination1 > distanceToDestination2) ? planeId1 : planeId2;
+                    int planeToAdjust = (distanceToDestination1 > distanceToDestination2) ? planeId1 : planeId2;
 
                     // change the bearing
-                    bearings[planeToAdjust.intValue()] = (bearings[planeToAdjust.intValue()] + 9.9 + 360) % 360;
+                    bearings[planeToAdjust] = (bearings[planeToAdjust] + 9.9 + 360) % 360;
                 }
             }else{
-                for(Long planeId : group){
+                for(int m = start; m < end; m++){
+                    int planeId = unionFind.getMember(m);
                     // for plane with no conflicts, change its bearing to the destination
-                    double targetBearing = calculateBearing(planes.get(planeId.intValue()).getLocation(), planes.get(planeId.intValue()).getDestination());
-                    if(Math.abs(bearings[planeId.intValue()] - targetBearing) > 9) {
+                    double targetBearing = calculateBearing(planes.get(planeId));
+                    if(Math.abs(bearings[planeId] - targetBearing) > 9) {
                         // check if it is better to change bearings clockwise or counterclockwise
-                        if (bearings[planeId.intValue()] > targetBearing) {
-                            if (bearings[planeId.intValue()] - targetBearing > 180) {
-                                bearings[planeId.intValue()] = (bearings[planeId.intValue()] + 9) % 360;
+                        if (bearings[planeId] > targetBearing) {
+                            if (bearings[planeId] - targetBearing > 180) {
+                                bearings[planeId] = (bearings[planeId] + 9) % 360;
                             } else {
-                                bearings[planeId.intValue()] = (bearings[planeId.intValue()] - 9 + 360) % 360;
+                                bearings[planeId] = (bearings[planeId] - 9 + 360) % 360;
                             }
                         } else {
-                            if (targetBearing - bearings[planeId.intValue()] > 180) {
-                                bearings[planeId.intValue()] = (bearings[planeId.intValue()] - 9 + 360) % 360;
+                            if (targetBearing - bearings[planeId] > 180) {
+                                bearings[planeId] = (bearings[planeId] - 9 + 360) % 360;
                             } else {
-                                bearings[planeId.intValue()] = (bearings[planeId.intValue()] + 9) % 360;
+                                bearings[planeId] = (bearings[planeId] + 9) % 360;
                             }
                         }
                     }else{
-                        bearings[planeId.intValue()] = targetBearing;
+                        bearings[planeId] = targetBearing;
                     }
                 }
             }
@@ -204,52 +228,35 @@ public class Group4Player4 extends Player {
 
         // If the plane arrives, change its bearing to -2
         for(int i = 0; i < planes.size(); i++){
-            if(planes.get(i).getLocation().distance(planes.get(i).getDestination()) <= 0.5){
+            if(planes.get(i).distanceToDestination() <= 0.5){
                 bearings[i] = -2;
             }
         }
-        logger.info("after round: " + round + ", bearings: " + Arrays.toString(bearings));
-        logger.info("current round: " + round + ", departurePlanes: " + departurePlanes.toString());
+        if (logger.isDebugEnabled()) {
+            logger.debug("after round: " + round + ", bearings: " + Arrays.toString(bearings));
+            logger.debug("current round: " + round + ", departurePlanes: " + departurePlanes.toString());
+        }
         return bearings;
     }
 
-    private Point2D.Double calculateNextLocation(Point2D.Double currentLocation, double bearing, int round){
-        double x = currentLocation.x + Math.cos(Math.toRadians(bearing - 90)) * round;
-        double y = currentLocation.y + Math.sin(Math.toRadians(bearing - 90)) * round;
-        return new Point2D.Double(x, y);
+    // stores the plane's location after the given number of rounds at forecastX/Y[slot]
+    private void calculateNextLocation(Plane plane, double bearing, int round, int slot){
+        forecastX[slot] = plane.getX() + Math.cos(Math.toRadians(bearing - 90)) * round;
+        forecastY[slot] = plane.getY() + Math.sin(Math.toRadians(bearing - 90)) * round;
     }
 
-    public class UnionFind {
-        private Map<Long, Long> parent = new HashMap<>();
-
-        public void add(Long x) {
-            parent.putIfAbsent(x, x);
-        }
-
-        public Long find(Long x) {
-            if (!Objects.equals(parent.get(x), x)) {
-                parent.put(x, find(parent.get(x)));
-            }
-            return parent.get(x);
-        }
-
-        public void union(Long x, Long y) {
-            Long rootX = find(x);
-            Long rootY = find(y);
-            if (!Objects.equals(rootX, rootY)) {
-                parent.put(rootX, rootY);
-            }
-        }
-
-        public Map<Long, Set<Long>> getConnectedComponents() {
-            Map<Long, Set<Long>> components = new HashMap<>();
-            for (Long x : parent.keySet()) {
-                Long root = find(x);
-                components.putIfAbsent(root, new HashSet<>());
-                components.get(root).add(x);
+    private String conflictGroupsToString() {
+        StringBuilder groups = new StringBuilder("[");
+        for (int c = 0; c < unionFind.getComponentCount(); c++) {
+            groups.append(c == 0 ? "[" : ", [");
+            for (int m = unionFind.getComponentStart(c); m < unionFind.getComponentEnd(c); m++) {
+                if (m > unionFind.getComponentStart(c)) {
+                    groups.append(", ");
+                }
+                groups.append(unionFind.getMember(m));
             }
-            return components;
+            groups.append("]");
         }
+        return groups.append("]").toString();
     }
-
-}
\ No newline at end of file
+}
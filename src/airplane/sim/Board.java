@@ -1,17 +1,12 @@
 package airplane.sim;
 
-import java.awt.geom.Point2D;
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Set;
 
 public final class Board {
-	public static final int pixels_per_meter = 150;
-	public static int pixels_per_pixel = 25;
 	private int width;
 	private int height;
 	public boolean impersonated = false;
@@ -20,10 +15,8 @@ public final class Board {
 	public int powerUsed = 0;
 	public int delay = 0;
 	
-	public ArrayList<Integer> departureTimes;
-	public ArrayList<Point2D.Double> origins;
-	public ArrayList<Point2D.Double> destinations;
-	public ArrayList<ArrayList<Integer>> dependencies;
+	private FlightSchedule schedule;
+	private DependencyIndex dependencyIndex;
 	public int numPlanes;
 	public double[] bearings;
 
@@ -44,43 +37,52 @@ public final class Board {
 	}
 
 
-	public static Point2D toScreenSpace(Point2D point2d) {
-		Point2D clone = new Point2D.Double();
-		clone.setLocation(toScreenSpace(point2d.getX()),
-				toScreenSpace(point2d.getY()));
-		return clone;
-	}
-
 
 	public int cacheHits = 0;
 	public int cacheMisses = 0;
 
+	/**
+	 * Returns the Plane views of the flights in the current game, or null if
+	 * no game has been set up.
+	 */
 	public ArrayList<Plane> getPlanes() {
-		return planes;
+		if (flights == null)
+			return null;
+		return flights.getPlanes();
 	}
 
-	ArrayList<Plane> planes;
+	FlightState flights;
 
-	public void setPlanes(ArrayList<Plane> planes) {
-		for (int i=0; i<this.numPlanes; i++) {
-			
-			//Plane l = new Plane(origins.get(i).getX(), origins.get(i).getY());
-		}
-		this.planes = planes;
+	/**
+	 * Returns the flights read by the last call to load.
+	 */
+	public FlightSchedule getSchedule() {
+		return schedule;
 	}
 
-	public static double fromScreenSpace(double v) {
-		return v * pixels_per_pixel / pixels_per_meter;
+	/**
+	 * Returns the dependencies between the flights read by the last call to
+	 * load.
+	 */
+	public DependencyIndex getDependencyIndex() {
+		return dependencyIndex;
+	}
+
+	DepartureSchedule departures;
+
+	/**
+	 * Returns the departure schedule of the current game.
+	 */
+	public DepartureSchedule getDepartures() {
+		return departures;
 	}
 
-	public static double toScreenSpace(double v) {
-		return v * pixels_per_meter / pixels_per_pixel;
+	public FlightState getFlightState() {
+		return flights;
 	}
 
-	public static Point2D fromScreenSpace(Point2D p) {
-		Point2D r = new Point2D.Double();
-		r.setLocation(fromScreenSpace(p.getX()), fromScreenSpace(p.getY()));
-		return r;
+	public void setFlightState(FlightState flights) {
+		this.flights = flights;
 	}
 
 
@@ -106,69 +108,7 @@ public final class Board {
 			System.out.println("File is null!");
 		}
 		try {
-
-			FileReader input = new FileReader(f);
-			BufferedReader bufRead = new BufferedReader(input);
-			String myLine = null;
-			origins = new ArrayList<Point2D.Double>();
-			destinations = new ArrayList<Point2D.Double>();
-			departureTimes = new ArrayList<Integer>();
-			dependencies = new ArrayList<ArrayList<Integer>>();
-			
-			int count = 0;
-			
-			while ( (myLine = bufRead.readLine()) != null)
-			{    
-				// Flight schedule--start, destination, departure--is delimited by semicolons:
-			    String[] flight = myLine.split(";");
-			    
-			    if (flight.length < 3) {
-			    	// oops, something wrong in the file
-			    	System.err.println("Warning: Could not parse line in flights file: " + myLine);
-			    }
-			    else {
-			    	
-				    if (addToList(flight[0].trim(), origins) == false) {
-				    	System.err.println("Warning: Could not parse line in flights file: " + myLine);
-				    	continue;
-				    }
-				    
-				    if (addToList(flight[1].trim(), destinations) == false) {
-				    	System.err.println("Warning: Could not parse line in flights file: " + myLine);
-				    	continue;
-				    }
-				    
-				    departureTimes.add(Integer.parseInt(flight[2].trim()));
-				    
-					// the dependency is optional and is comma-separated
-				    if (flight.length > 3) {
-				    	String[] dependencyConfig = flight[3].trim().split(",");
-				    	if (dependencyConfig != null && dependencyConfig.length > 0) {
-				    		ArrayList<Integer> dependencyList = new ArrayList<Integer>();
-				    		for (String dependency : dependencyConfig) {
-				    			if (dependency.trim().length() > 0) {
-				    				int d = Integer.parseInt(dependency);
-				    				if (d == count) {
-				    					System.err.println("Warning: Plane " + count + " has a dependency on itself!");
-				    				}
-				    				else dependencyList.add(d);
-				    			}
-				    		}
-				    		dependencies.add(dependencyList);
-				    	}
-				    	else dependencies.add(null);
-				    }
-			    	else dependencies.add(null);
-
-			    }
-			    count++;
-			    
-			}
-			bearings = new double[origins.size()];
-			for (int i=0; i<origins.size(); i++) {
-				bearings[i] = -1;
-			}
-			
+			setSchedule(FlightScheduleFile.load(f));
 		} catch (Exception e) {
 //			throw new IOException("XML Parsing exception: " + e);
 			e.printStackTrace();
@@ -178,24 +118,21 @@ public final class Board {
 		// sanityCheck();
 
 	}
-	
-	private boolean addToList(String token, ArrayList<Point2D.Double> list) {
-    	String[] parts = token.split(",");
-    	if (parts.length < 2) {
-	    	// oops, something wrong in the file
-    		return false;
-    	}
-    	String x = parts[0]; 
-    	String y = parts[1]; 
-	    
-	    Point2D.Double point = new Point2D.Double(Double.parseDouble(x), Double.parseDouble(y));
-
-		list.add(point);
-		
-		return true;
-	}
 
 
+	/*
+	 * Uses the given flights instead of ones read from a file, e.g. those of
+	 * a replay log.
+	 */
+	void setSchedule(FlightSchedule schedule) throws IOException {
+		this.schedule = schedule;
+		dependencyIndex = new DependencyIndex(schedule);
+		bearings = new double[schedule.size()];
+		for (int i=0; i<schedule.size(); i++) {
+			bearings[i] = -1;
+		}
+	}
+
 	public int getWidth() {
 		return width;
 	}
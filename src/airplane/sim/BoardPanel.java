@@ -51,14 +51,27 @@ public final class BoardPanel extends JPanel implements MouseListener,
 			Color.MAGENTA, Color.LIGHT_GRAY, Color.GRAY, Color.YELLOW, Color.RED, Color.PINK};
 
 	private GameEngine engine;
+
+	// the scale is kept per panel so that each window can have its own size
+	public static final int pixels_per_meter = 150;
+	private int pixels_per_pixel = 25;
+
+	public double fromScreenSpace(double v) {
+		return v * pixels_per_pixel / pixels_per_meter;
+	}
+
+	public double toScreenSpace(double v) {
+		return v * pixels_per_meter / pixels_per_pixel;
+	}
+
 	public void recalculateDimensions() {
 		int my_w = this.getWidth();
 		int my_h = this.getHeight();
 		int d = Math.min(my_w, my_h);
 		d -= 10;
 		if (d > 0)
-			Board.pixels_per_pixel = (100
-					* Board.pixels_per_meter )/ d;
+			pixels_per_pixel = (100
+					* pixels_per_meter )/ d;
 		repaint();
 	}
 	Cursor curCursor;
@@ -79,16 +92,15 @@ public final class BoardPanel extends JPanel implements MouseListener,
 	 * @return
 	 */
 	public boolean validateReachable() {
-		int[][] blobs = new int[(int) Board.toScreenSpace(101)][(int) Board
-				.toScreenSpace(101)];
-		BufferedImage im = new BufferedImage((int) Board.toScreenSpace(101),
-				(int) Board.toScreenSpace(101), BufferedImage.TYPE_INT_RGB);
+		int[][] blobs = new int[(int) toScreenSpace(101)][(int) toScreenSpace(101)];
+		BufferedImage im = new BufferedImage((int) toScreenSpace(101),
+				(int) toScreenSpace(101), BufferedImage.TYPE_INT_RGB);
 		this.paint(im.getGraphics());
 		Raster ra = im.getRaster();
 		int nblob = 1;
 
-		for (int i = 0; i < (int) Board.toScreenSpace(101); i++) {
-			for (int j = 0; j < (int) Board.toScreenSpace(101); j++) {
+		for (int i = 0; i < (int) toScreenSpace(101); i++) {
+			for (int j = 0; j < (int) toScreenSpace(101); j++) {
 				double[] px = null;
 				blobs[i][j] = -1;
 				px = ra.getPixel(i, j, px);
@@ -190,8 +202,8 @@ public final class BoardPanel extends JPanel implements MouseListener,
 		g2D.setColor(Color.black);
 		if (board != null)
 		{
-			boardBox = new Rectangle2D.Double(0, 0, Board.toScreenSpace(board
-					.getWidth()), Board.toScreenSpace(board.getHeight()));
+			boardBox = new Rectangle2D.Double(0, 0, toScreenSpace(board
+					.getWidth()), toScreenSpace(board.getHeight()));
 			g2D.fillRect((int) boardBox.getX(), (int) boardBox.getY(),
 					(int) boardBox.getWidth(), (int) boardBox.getHeight());
 		}
@@ -203,24 +215,23 @@ public final class BoardPanel extends JPanel implements MouseListener,
 					g2D.setColor(colors[i%colors.length]);
 					if (planes.get(i).isOn(engine.getCurrentRound())) {
 						/*
-						g2D.drawOval((int) Board.toScreenSpace(planes.get(i).getX() - 20),
-								(int) Board.toScreenSpace(planes.get(i).getY() - 20),
-								(int) Board.toScreenSpace(40),
-								(int) Board.toScreenSpace(40));
+						g2D.drawOval((int) toScreenSpace(planes.get(i).getX() - 20),
+								(int) toScreenSpace(planes.get(i).getY() - 20),
+								(int) toScreenSpace(40),
+								(int) toScreenSpace(40));
 						g2D.setColor(Color.RED);
 						*/
-						g2D.drawOval((int) Board.toScreenSpace(planes.get(i).getX() - GameConfig.SAFETY_RADIUS/2.0),
-								(int) Board.toScreenSpace(planes.get(i).getY() - GameConfig.SAFETY_RADIUS/2.0),
-								(int) Board.toScreenSpace(GameConfig.SAFETY_RADIUS),
-								(int) Board.toScreenSpace(GameConfig.SAFETY_RADIUS));
+						g2D.drawOval((int) toScreenSpace(planes.get(i).getX() - GameConfig.SAFETY_RADIUS/2.0),
+								(int) toScreenSpace(planes.get(i).getY() - GameConfig.SAFETY_RADIUS/2.0),
+								(int) toScreenSpace(GameConfig.SAFETY_RADIUS),
+								(int) toScreenSpace(GameConfig.SAFETY_RADIUS));
 						
-						for (int j = 0; j < planes.get(i).getHistory().size()-1; j++) {
-							Point2D.Double start = planes.get(i).getHistory().get(j);
-							Point2D.Double end = planes.get(i).getHistory().get(j+1);
-							int drawXstart = (int)Board.toScreenSpace(start.x);
-							int drawYstart = (int)Board.toScreenSpace(start.y);
-							int drawXend = (int)Board.toScreenSpace(end.x);
-							int drawYend = (int)Board.toScreenSpace(end.y);
+						FlightHistory history = planes.get(i).getFlightHistory();
+						for (int j = 0; j < history.size()-1; j++) {
+							int drawXstart = (int)toScreenSpace(history.getX(j));
+							int drawYstart = (int)toScreenSpace(history.getY(j));
+							int drawXend = (int)toScreenSpace(history.getX(j+1));
+							int drawYend = (int)toScreenSpace(history.getY(j+1));
 							g2D.drawLine(drawXstart, drawYstart, drawXend, drawYend);
 						}
 					}
@@ -234,15 +245,15 @@ public final class BoardPanel extends JPanel implements MouseListener,
 				if (planes.get(i).getBearing() != -2) {
 					g2D.setColor(colors[i%colors.length]);
 					if (planes.get(i).isOn(engine.getCurrentRound())) {
-						g2D.fillOval((int) Board.toScreenSpace(planes.get(i).getX() - .5),
-								(int) Board.toScreenSpace(planes.get(i).getY() - .5),
-								(int) Board.toScreenSpace(1),
-								(int) Board.toScreenSpace(1));
+						g2D.fillOval((int) toScreenSpace(planes.get(i).getX() - .5),
+								(int) toScreenSpace(planes.get(i).getY() - .5),
+								(int) toScreenSpace(1),
+								(int) toScreenSpace(1));
 					} else
-						g2D.drawOval((int) Board.toScreenSpace(planes.get(i).getX() - .5),
-								(int) Board.toScreenSpace(planes.get(i).getY() - .5),
-								(int) Board.toScreenSpace(1),
-								(int) Board.toScreenSpace(1));
+						g2D.drawOval((int) toScreenSpace(planes.get(i).getX() - .5),
+								(int) toScreenSpace(planes.get(i).getY() - .5),
+								(int) toScreenSpace(1),
+								(int) toScreenSpace(1));
 				}
 			}
 
@@ -251,12 +262,12 @@ public final class BoardPanel extends JPanel implements MouseListener,
 			for (Airport c : board.getAirports()) {
 				g2D.setColor(Color.WHITE);
 				g2D.fillOval(
-						(int) Board.toScreenSpace(c.getX()
+						(int) toScreenSpace(c.getX()
 								- Airport.DIAMETER / 2),
-						(int) Board.toScreenSpace(c.getY()
+						(int) toScreenSpace(c.getY()
 								- Airport.DIAMETER / 2),
-						(int) Board.toScreenSpace(Airport.DIAMETER),
-						(int) Board.toScreenSpace(Airport.DIAMETER));
+						(int) toScreenSpace(Airport.DIAMETER),
+						(int) toScreenSpace(Airport.DIAMETER));
 				
 			}
 		}
@@ -265,10 +276,10 @@ public final class BoardPanel extends JPanel implements MouseListener,
 		
 		if (debugLine != null) {
 			g2D.setColor(Color.orange);
-			g2D.drawLine((int) Board.toScreenSpace(debugLine.getX1()),
-					(int) Board.toScreenSpace(debugLine.getY1()),
-					(int) Board.toScreenSpace(debugLine.getX2()),
-					(int) Board.toScreenSpace(debugLine.getY2()));
+			g2D.drawLine((int) toScreenSpace(debugLine.getX1()),
+					(int) toScreenSpace(debugLine.getY1()),
+					(int) toScreenSpace(debugLine.getX2()),
+					(int) toScreenSpace(debugLine.getY2()));
 
 		}
 		if (curCursor != null)
@@ -288,12 +299,12 @@ public final class BoardPanel extends JPanel implements MouseListener,
 
 	public void setBoard(Board b, boolean editable) {
 		board = b;
-		this.setPreferredSize(new Dimension((int) Board.toScreenSpace(b
-				.getWidth()), (int) Board.toScreenSpace(b.getHeight())));
+		this.setPreferredSize(new Dimension((int) toScreenSpace(b
+				.getWidth()), (int) toScreenSpace(b.getHeight())));
 
 
-		boardBox = new Rectangle2D.Double(0, 0, Board.toScreenSpace(board
-				.getWidth()), Board.toScreenSpace(board.getHeight()));
+		boardBox = new Rectangle2D.Double(0, 0, toScreenSpace(board
+				.getWidth()), toScreenSpace(board.getHeight()));
 		repaint();
 		revalidate();
 	}
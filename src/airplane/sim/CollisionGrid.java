@@ -0,0 +1,193 @@
+package airplane.sim;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Uniform grid used to find planes that are too close to each other.
+ *
+ * The airspace is divided into square cells whose side is the safety radius,
+ * so two planes closer than the radius are always in the same or in
+ * neighbouring cells. Planes are bucketed with a counting sort into arrays
+ * that are reused between rounds, and only planes in the 3x3 block of cells
+ * around each plane are compared. The distance test is the same one the
+ * engine has always used (Point2D.distance), so exactly the same pairs are
+ * reported as by comparing every pair.
+ */
+public final class CollisionGrid {
+
+	private static final int SMALL_FLEET = 24;
+
+	private final double radius;
+	private final double cellSize;
+	private final int columns;
+	private final int rows;
+
+	// positions of the planes added since the last clear()
+	private int count;
+	private int[] ids = new int[16];
+	private double[] xs = new double[16];
+	private double[] ys = new double[16];
+	private int[] cells = new int[16];
+
+	// counting sort of the planes by cell: the planes in cell c are
+	// sorted[cellStart[c]] .. sorted[cellStart[c+1]-1]
+	private final int[] cellStart;
+	private int[] sorted = new int[16];
+
+	private int conflictA = -1;
+	private int conflictB = -1;
+
+	public CollisionGrid(double radius) {
+		this(radius, 100, 100);
+	}
+
+	public CollisionGrid(double radius, double width, double height) {
+		this.radius = radius;
+		// a zero radius can never produce a conflict, but keep the cells finite
+		this.cellSize = radius > 0 ? radius : Math.max(width, height);
+		this.columns = (int) Math.ceil(width / cellSize) + 1;
+		this.rows = (int) Math.ceil(height / cellSize) + 1;
+		this.cellStart = new int[columns * rows + 1];
+	}
+
+	public double getRadius() {
+		return radius;
+	}
+
+	/**
+	 * Removes all planes from the grid.
+	 */
+	public void clear() {
+		count = 0;
+		conflictA = -1;
+		conflictB = -1;
+	}
+
+	/**
+	 * Adds an airborne plane to the grid.
+	 */
+	public void add(int id, double x, double y) {
+		if (count == ids.length) {
+			int capacity = count * 2;
+			ids = Arrays.copyOf(ids, capacity);
+			xs = Arrays.copyOf(xs, capacity);
+			ys = Arrays.copyOf(ys, capacity);
+			cells = Arrays.copyOf(cells, capacity);
+			sorted = new int[capacity];
+		}
+		ids[count] = id;
+		xs[count] = x;
+		ys[count] = y;
+		cells[count] = cellRow(y) * columns + cellColumn(x);
+		count++;
+	}
+
+	/**
+	 * Clears the grid and adds every plane in the list that is in the air.
+	 */
+	public void addAirborne(List<Plane> planes) {
+		clear();
+		for (int i = 0; i < planes.size(); i++) {
+			Plane p = planes.get(i);
+			if (p.getBearing() != -1 && p.getBearing() != -2)
+				add(i, p.getX(), p.getY());
+		}
+	}
+
+	/**
+	 * Clears the grid and adds every flight that is in the air.
+	 */
+	public void addAirborne(FlightState flights) {
+		clear();
+		for (int k = 0; k < flights.getAirborneCount(); k++) {
+			int i = flights.getAirborne(k);
+			add(i, flights.getX(i), flights.getY(i));
+		}
+	}
+
+	/**
+	 * Returns true if any two planes in the grid are closer than the radius.
+	 * The ids of the first such pair found are available from getConflictA()
+	 * and getConflictB().
+	 */
+	public boolean hasConflict() {
+		conflictA = -1;
+		conflictB = -1;
+		if (count < 2)
+			return false;
+		// for a handful of planes, sorting them into cells costs more than it saves
+		if (count <= SMALL_FLEET)
+			return hasConflictPairwise();
+
+		Arrays.fill(cellStart, 0);
+		for (int i = 0; i < count; i++)
+			cellStart[cells[i] + 1]++;
+		for (int c = 0; c < columns * rows; c++)
+			cellStart[c + 1] += cellStart[c];
+		// use the cell ends as insertion cursors, then shift them back
+		for (int i = 0; i < count; i++)
+			sorted[cellStart[cells[i]]++] = i;
+		for (int c = columns * rows; c > 0; c--)
+			cellStart[c] = cellStart[c - 1];
+		cellStart[0] = 0;
+
+		for (int i = 0; i < count; i++) {
+			int cell = cells[i];
+			int column = cell % columns;
+			int row = cell / columns;
+			for (int r = Math.max(0, row - 1); r <= Math.min(rows - 1, row + 1); r++) {
+				for (int c = Math.max(0, column - 1); c <= Math.min(columns - 1, column + 1); c++) {
+					int neighbour = r * columns + c;
+					for (int k = cellStart[neighbour]; k < cellStart[neighbour + 1]; k++) {
+						int j = sorted[k];
+						// each pair only needs to be looked at once
+						if (j <= i)
+							continue;
+						double dx = xs[i] - xs[j];
+						double dy = ys[i] - ys[j];
+						if (Math.sqrt(dx * dx + dy * dy) < radius) {
+							conflictA = ids[i];
+							conflictB = ids[j];
+							return true;
+						}
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	private boolean hasConflictPairwise() {
+		for (int i = 0; i < count; i++) {
+			for (int j = i + 1; j < count; j++) {
+				double dx = xs[i] - xs[j];
+				double dy = ys[i] - ys[j];
+				if (Math.sqrt(dx * dx + dy * dy) < radius) {
+					conflictA = ids[i];
+					conflictB = ids[j];
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	public int getConflictA() {
+		return conflictA;
+	}
+
+	public int getConflictB() {
+		return conflictB;
+	}
+
+	private int cellColumn(double x) {
+		int c = (int) Math.floor(x / cellSize);
+		return Math.max(0, Math.min(columns - 1, c));
+	}
+
+	private int cellRow(double y) {
+		int r = (int) Math.floor(y / cellSize);
+		return Math.max(0, Math.min(rows - 1, r));
+	}
+}
@@ -0,0 +1,243 @@
+package airplane.sim;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Predicts which planes will come too close to each other if they keep
+ * flying straight ahead.
+ *
+ * Each plane is added with its position, the bearing it will fly and a
+ * horizon, the number of rounds ahead to look. Two planes conflict if, in
+ * some round 1..h that is within both horizons, they are closer than the
+ * radius - the same test as moving both planes forward round by round and
+ * comparing the positions of the same round.
+ *
+ * The distance between two planes flying straight is a convex function of
+ * time, so it is smallest at their closest point of approach, which is
+ * found in closed form. Only the two whole rounds either side of it (kept
+ * within the horizon) have to be measured, which takes constant time
+ * however far ahead the planes are followed. Pairs whose paths cannot come
+ * within the radius of each other are pruned beforehand: every plane's path
+ * over its horizon fits in a box, and the boxes are sorted along x and swept
+ * so that only boxes that overlap are looked at.
+ *
+ * The detector reuses its arrays between rounds; call clear(), add the
+ * planes, and then findConflicts().
+ */
+public final class ConflictDetector {
+
+	private final double radius;
+
+	// the planes added since the last clear()
+	private int count;
+	private int[] ids = new int[16];
+	private double[] xs = new double[16];
+	private double[] ys = new double[16];
+	private double[] vxs = new double[16];
+	private double[] vys = new double[16];
+	private int[] horizons = new int[16];
+	// the box around each plane's path
+	private double[] maxXs = new double[16];
+	private double[] minYs = new double[16];
+	private double[] maxYs = new double[16];
+	// planes sorted by the left side of their box, rounded down, and then by
+	// the order they were added in
+	private long[] keys = new long[16];
+
+	// the conflicts found by the last findConflicts()
+	private int conflictCount;
+	private int[] conflictA = new int[16];
+	private int[] conflictB = new int[16];
+	private int[] conflictRound = new int[16];
+	private double[] conflictDistance = new double[16];
+
+	public ConflictDetector(double radius) {
+		this.radius = radius;
+	}
+
+	public double getRadius() {
+		return radius;
+	}
+
+	/**
+	 * Removes all planes and conflicts.
+	 */
+	public void clear() {
+		count = 0;
+		conflictCount = 0;
+	}
+
+	/**
+	 * Adds a plane at (x, y) that will fly on the given bearing for the next
+	 * horizon rounds. A horizon below 1 adds a plane that cannot conflict.
+	 */
+	public void add(int id, double x, double y, double bearing, int horizon) {
+		if (count == ids.length) {
+			int capacity = count * 2;
+			ids = Arrays.copyOf(ids, capacity);
+			xs = Arrays.copyOf(xs, capacity);
+			ys = Arrays.copyOf(ys, capacity);
+			vxs = Arrays.copyOf(vxs, capacity);
+			vys = Arrays.copyOf(vys, capacity);
+			horizons = Arrays.copyOf(horizons, capacity);
+			maxXs = Arrays.copyOf(maxXs, capacity);
+			minYs = Arrays.copyOf(minYs, capacity);
+			maxYs = Arrays.copyOf(maxYs, capacity);
+			keys = Arrays.copyOf(keys, capacity);
+		}
+		// the same step as Plane.move
+		double radialBearing = Math.toRadians(bearing - 90);
+		double vx = Math.cos(radialBearing) * Plane.VELOCITY;
+		double vy = Math.sin(radialBearing) * Plane.VELOCITY;
+		ids[count] = id;
+		xs[count] = x;
+		ys[count] = y;
+		vxs[count] = vx;
+		vys[count] = vy;
+		horizons[count] = horizon;
+		if (horizon >= 1) {
+			double x1 = x + vx;
+			double y1 = y + vy;
+			double xh = x + vx * horizon;
+			double yh = y + vy * horizon;
+			maxXs[count] = Math.max(x1, xh);
+			minYs[count] = Math.min(y1, yh);
+			maxYs[count] = Math.max(y1, yh);
+			double minX = Math.floor(Math.min(x1, xh));
+			int left = (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, minX));
+			keys[count] = (long) left << 32 | count;
+		} else {
+			keys[count] = Long.MAX_VALUE;
+		}
+		count++;
+	}
+
+	/**
+	 * Adds every plane in the list that is in the air, flying on its bearing
+	 * in the given array, with the same horizon for all of them.
+	 */
+	public void addAirborne(List<Plane> planes, double[] bearings, int horizon) {
+		for (int i = 0; i < planes.size(); i++) {
+			Plane p = planes.get(i);
+			if (p.getBearing() != -1 && p.getBearing() != -2)
+				add(i, p.getX(), p.getY(), bearings[i], horizon);
+		}
+	}
+
+	/**
+	 * Finds every pair of planes that will be closer than the radius within
+	 * their horizons.
+	 *
+	 * @return the number of conflicts found
+	 */
+	public int findConflicts() {
+		conflictCount = 0;
+		Arrays.sort(keys, 0, count);
+		for (int s = 0; s < count; s++) {
+			if (keys[s] == Long.MAX_VALUE)
+				break;
+			int a = (int) keys[s];
+			double right = maxXs[a] + radius;
+			for (int t = s + 1; t < count; t++) {
+				if (keys[t] == Long.MAX_VALUE)
+					break;
+				int b = (int) keys[t];
+				if (left(t) > right)
+					break;
+				if (minYs[b] > maxYs[a] + radius || minYs[a] > maxYs[b] + radius)
+					continue;
+				checkPair(a, b);
+			}
+		}
+		return conflictCount;
+	}
+
+	private double left(int sortedIndex) {
+		return (int) (keys[sortedIndex] >> 32);
+	}
+
+	/*
+	 * Measures the two planes at the whole rounds either side of their
+	 * closest point of approach and records a conflict if either is too
+	 * close.
+	 */
+	private void checkPair(int a, int b) {
+		int horizon = Math.min(horizons[a], horizons[b]);
+		double dx = xs[a] - xs[b];
+		double dy = ys[a] - ys[b];
+		double dvx = vxs[a] - vxs[b];
+		double dvy = vys[a] - vys[b];
+		double dv2 = dvx * dvx + dvy * dvy;
+		// planes flying in parallel stay the same distance apart
+		double time = dv2 > 0 ? -(dx * dvx + dy * dvy) / dv2 : 1;
+		int before = (int) Math.max(1, Math.min(horizon, Math.floor(time)));
+		int after = (int) Math.max(1, Math.min(horizon, Math.ceil(time)));
+		double distance = distanceAt(a, b, before);
+		int round = before;
+		if (after != before) {
+			double d = distanceAt(a, b, after);
+			if (d < distance) {
+				distance = d;
+				round = after;
+			}
+		}
+		if (distance < radius)
+			addConflict(ids[a], ids[b], round, distance);
+	}
+
+	/*
+	 * The distance between the planes after the given number of rounds,
+	 * measured the way a player moving both planes forward would.
+	 */
+	private double distanceAt(int a, int b, int round) {
+		double dx = (xs[a] + vxs[a] * round) - (xs[b] + vxs[b] * round);
+		double dy = (ys[a] + vys[a] * round) - (ys[b] + vys[b] * round);
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+
+	private void addConflict(int a, int b, int round, double distance) {
+		if (conflictCount == conflictA.length) {
+			int capacity = conflictCount * 2;
+			conflictA = Arrays.copyOf(conflictA, capacity);
+			conflictB = Arrays.copyOf(conflictB, capacity);
+			conflictRound = Arrays.copyOf(conflictRound, capacity);
+			conflictDistance = Arrays.copyOf(conflictDistance, capacity);
+		}
+		conflictA[conflictCount] = a;
+		conflictB[conflictCount] = b;
+		conflictRound[conflictCount] = round;
+		conflictDistance[conflictCount] = distance;
+		conflictCount++;
+	}
+
+	public int getConflictCount() {
+		return conflictCount;
+	}
+
+	/**
+	 * Returns the id of one of the planes in conflict k. The pairs are in no
+	 * particular order, and a pair is reported once.
+	 */
+	public int getConflictA(int k) {
+		return conflictA[k];
+	}
+
+	public int getConflictB(int k) {
+		return conflictB[k];
+	}
+
+	/**
+	 * Returns how many rounds ahead the planes of conflict k are closest.
+	 */
+	public int getConflictRound(int k) {
+		return conflictRound[k];
+	}
+
+	/**
+	 * Returns how close the planes of conflict k come.
+	 */
+	public double getConflictDistance(int k) {
+		return conflictDistance[k];
+	}
+}
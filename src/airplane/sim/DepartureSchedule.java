@@ -0,0 +1,227 @@
+package airplane.sim;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * The flights that are due to take off, kept up to date round by round.
+ *
+ * The flights are sorted by departure time once, when the game is set up;
+ * as the rounds go by, a cursor moves along that order and each flight whose
+ * departure time has come is added to the ready set. A flight leaves the
+ * ready set when it takes off. A round therefore only touches the flights
+ * that have just become due, instead of every flight in the schedule.
+ *
+ * The ready set holds the flights that are on the ground with a departure
+ * time no later than the current round, whether or not their dependencies
+ * have landed; dependenciesHaveLanded() tells, in constant time. nextReady()
+ * visits them in increasing order of index, the same order as a loop over
+ * the plane list.
+ *
+ * GameEngine keeps one schedule per game and hands it to the player; see
+ * Player.getDepartures().
+ */
+public final class DepartureSchedule {
+
+	private final List<Plane> planes;
+	// null if the planes have no dependency index
+	private final DependencyIndex.Counters counters;
+	private final int[] departure;
+	// flight indices sorted by departure time, and then by index
+	private final int[] order;
+	private int cursor;
+	private int round = Integer.MIN_VALUE;
+
+	private final BitSet ready = new BitSet();
+	private int readyCount;
+	// flights that have left the ground (or landed) before they became due
+	private final BitSet removed = new BitSet();
+
+	DepartureSchedule(FlightState flights, DependencyIndex.Counters counters) {
+		this(flights.departure, flights.getPlanes(), counters);
+	}
+
+	private DepartureSchedule(int[] departure, List<Plane> planes, DependencyIndex.Counters counters) {
+		this.planes = planes;
+		this.counters = counters;
+		this.departure = departure;
+		int n = departure.length;
+		long[] keys = new long[n];
+		for (int i = 0; i < n; i++)
+			keys[i] = (long) departure[i] << 32 | i;
+		Arrays.sort(keys);
+		order = new int[n];
+		for (int k = 0; k < n; k++)
+			order[k] = (int) keys[k];
+	}
+
+	/**
+	 * Builds a schedule for the given planes as they are in the given round,
+	 * by looking at every plane. This is for planes that are not those of the
+	 * game being played, e.g. copies made for a simulation.
+	 */
+	public static DepartureSchedule of(List<Plane> planes, int round) {
+		int[] departure = new int[planes.size()];
+		for (int i = 0; i < departure.length; i++)
+			departure[i] = planes.get(i).getDepartureTime();
+		DependencyIndex.Counters counters = null;
+		DependencyIndex index = DependencyIndex.of(planes);
+		if (index != null) {
+			counters = index.newCounters();
+			counters.setFrom(planes);
+		}
+		DepartureSchedule schedule = new DepartureSchedule(departure, planes, counters);
+		for (int i = 0; i < departure.length; i++) {
+			if (planes.get(i).getBearing() != -1)
+				schedule.removed.set(i);
+		}
+		schedule.advanceTo(round);
+		return schedule;
+	}
+
+	/*
+	 * Builds the schedule of a game whose flights have been restored to the
+	 * given round, going by their bearings as of() does; the Plane views of
+	 * the flights must be up to date.
+	 */
+	static DepartureSchedule restore(FlightState flights, DependencyIndex.Counters counters, int round) {
+		DepartureSchedule schedule = new DepartureSchedule(flights, counters);
+		if (counters != null)
+			counters.setFrom(schedule.planes);
+		for (int i = 0; i < flights.size(); i++) {
+			if (flights.bearing[i] != -1)
+				schedule.removed.set(i);
+		}
+		schedule.advanceTo(round);
+		return schedule;
+	}
+
+	/**
+	 * True if this schedule describes the given list of planes.
+	 */
+	public boolean isFor(List<Plane> planes) {
+		return this.planes == planes;
+	}
+
+	/*
+	 * Adds every flight due by the given round to the ready set.
+	 */
+	void advanceTo(int round) {
+		this.round = round;
+		while (cursor < order.length && departure[order[cursor]] <= round) {
+			int i = order[cursor++];
+			if (!removed.get(i)) {
+				ready.set(i);
+				readyCount++;
+			}
+		}
+	}
+
+	/*
+	 * Goes back to the given, earlier round, taking the flights that have
+	 * become due since out of the ready set; see GameEngine.restore.
+	 */
+	void retreatTo(int round) {
+		this.round = round;
+		while (cursor > 0 && departure[order[cursor - 1]] > round) {
+			int i = order[--cursor];
+			if (ready.get(i)) {
+				ready.clear(i);
+				readyCount--;
+			}
+		}
+	}
+
+	/*
+	 * Records that flight i has been put back from bearing from to bearing
+	 * to, after retreatTo() has gone back to the round it was saved in.
+	 */
+	void rollBack(int i, double from, double to) {
+		if (counters != null) {
+			if (from == -2 && to != -2)
+				counters.takeOff(i);
+			else if (from != -2 && to == -2)
+				counters.land(i);
+		}
+		if (to == -1) {
+			removed.clear(i);
+			if (departure[i] <= round && !ready.get(i)) {
+				ready.set(i);
+				readyCount++;
+			}
+		}
+		else
+			remove(i);
+	}
+
+	/*
+	 * Takes a flight out of the schedule, because it has taken off.
+	 */
+	void remove(int i) {
+		removed.set(i);
+		if (ready.get(i)) {
+			ready.clear(i);
+			readyCount--;
+		}
+	}
+
+	/*
+	 * Records that a flight has landed, which may meet the dependencies of
+	 * other flights.
+	 */
+	void land(int i) {
+		remove(i);
+		if (counters != null)
+			counters.land(i);
+	}
+
+	/*
+	 * Records that a flight that had landed has taken off again.
+	 */
+	void relaunch(int i) {
+		if (counters != null)
+			counters.takeOff(i);
+	}
+
+	/**
+	 * Returns the round the ready set is for.
+	 */
+	public int getRound() {
+		return round;
+	}
+
+	public int getReadyCount() {
+		return readyCount;
+	}
+
+	public boolean isReady(int i) {
+		return ready.get(i);
+	}
+
+	/**
+	 * True if every flight that flight i depends on has landed.
+	 */
+	public boolean dependenciesHaveLanded(int i) {
+		if (counters != null)
+			return counters.haveLanded(i);
+		return planes.get(i).dependenciesHaveLanded(planes);
+	}
+
+	/**
+	 * Returns the first ready flight with an index of at least from, or -1 if
+	 * there is none. Loop with
+	 * <code>for (int i = s.nextReady(0); i >= 0; i = s.nextReady(i + 1))</code>.
+	 */
+	public int nextReady(int from) {
+		return ready.nextSetBit(from);
+	}
+
+	/**
+	 * Returns the departure time of the next flight to become due, or
+	 * Integer.MAX_VALUE if every flight is due.
+	 */
+	public int getNextDepartureTime() {
+		return cursor < order.length ? departure[order[cursor]] : Integer.MAX_VALUE;
+	}
+}
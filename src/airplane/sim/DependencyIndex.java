@@ -0,0 +1,229 @@
+package airplane.sim;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The dependencies between the flights of a schedule, checked and indexed
+ * once when the schedule is loaded.
+ *
+ * For every flight the index holds the flights it depends on and, in the
+ * other direction, the flights that depend on it. A schedule where a flight
+ * depends on itself, on a flight that does not exist, or (through other
+ * flights) on a flight that depends on it could never be flown, so the
+ * constructor rejects it.
+ *
+ * Whether a flight's dependencies have all landed is tracked by Counters:
+ * each flight has a count of dependencies that have not landed yet, which
+ * goes down as they land, so the question is answered in constant time.
+ */
+public final class DependencyIndex {
+
+	private final int size;
+	private final int[] dependencyStart;
+	private final int[] dependencies;
+	private final int[] dependentStart;
+	private final int[] dependents;
+
+	public DependencyIndex(FlightSchedule schedule) throws IOException {
+		size = schedule.size();
+		dependencyStart = new int[size + 1];
+		dependencies = new int[schedule.getDependencyCount()];
+		int[] dependentCount = new int[size];
+		for (int i = 0, e = 0; i < size; i++) {
+			dependencyStart[i] = e;
+			for (int k = 0; k < schedule.getDependencyCount(i); k++) {
+				int d = schedule.getDependency(i, k);
+				if (d == i)
+					throw new IOException("Flight " + i + " depends on itself");
+				if (d < 0 || d >= size)
+					throw new IOException("Flight " + i + " depends on flight " + d + ", which does not exist");
+				dependencies[e++] = d;
+				dependentCount[d]++;
+			}
+		}
+		dependencyStart[size] = dependencies.length;
+
+		dependentStart = new int[size + 1];
+		for (int i = 0; i < size; i++)
+			dependentStart[i + 1] = dependentStart[i] + dependentCount[i];
+		dependents = new int[dependencies.length];
+		int[] next = Arrays.copyOf(dependentStart, size);
+		for (int i = 0; i < size; i++) {
+			for (int e = dependencyStart[i]; e < dependencyStart[i + 1]; e++)
+				dependents[next[dependencies[e]]++] = i;
+		}
+
+		checkForCycles();
+	}
+
+	/*
+	 * Lands every flight whose dependencies have landed until none is left
+	 * (Kahn's algorithm); flights that never get there are on or behind a
+	 * cycle.
+	 */
+	private void checkForCycles() throws IOException {
+		Counters counters = newCounters();
+		int[] queue = new int[size];
+		int head = 0;
+		int tail = 0;
+		for (int i = 0; i < size; i++) {
+			if (counters.haveLanded(i))
+				queue[tail++] = i;
+		}
+		while (head < tail) {
+			int i = queue[head++];
+			for (int e = dependentStart[i]; e < dependentStart[i + 1]; e++) {
+				int d = dependents[e];
+				if (--counters.unmet[d] == 0)
+					queue[tail++] = d;
+			}
+		}
+		if (tail == size)
+			return;
+
+		// follow unmet dependencies from a stuck flight until one repeats
+		int[] seenAt = new int[size];
+		Arrays.fill(seenAt, -1);
+		int[] path = new int[size];
+		int length = 0;
+		int i = 0;
+		while (counters.unmet[i] == 0)
+			i++;
+		while (seenAt[i] < 0) {
+			seenAt[i] = length;
+			path[length++] = i;
+			for (int e = dependencyStart[i]; e < dependencyStart[i + 1]; e++) {
+				if (counters.unmet[dependencies[e]] > 0) {
+					i = dependencies[e];
+					break;
+				}
+			}
+		}
+		StringBuilder cycle = new StringBuilder();
+		for (int k = seenAt[i]; k < length; k++)
+			cycle.append(path[k]).append(" -> ");
+		cycle.append(i);
+		throw new IOException("The dependencies of " + (size - tail) + " flights can never be met, because of the cycle "
+				+ cycle);
+	}
+
+	/*
+	 * Returns the index shared by all the planes, if they are the flights of
+	 * one game in schedule order, or null.
+	 */
+	static DependencyIndex of(List<Plane> planes) {
+		DependencyIndex index = planes.isEmpty() ? null : planes.get(0).dependencyIndex;
+		if (index == null || index.size != planes.size())
+			return null;
+		for (int i = 0; i < planes.size(); i++) {
+			Plane p = planes.get(i);
+			if (p.dependencyIndex != index || p.id != i)
+				return null;
+		}
+		return index;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int getDependencyCount(int i) {
+		return dependencyStart[i + 1] - dependencyStart[i];
+	}
+
+	public int getDependency(int i, int k) {
+		return dependencies[dependencyStart[i] + k];
+	}
+
+	/**
+	 * Returns the number of flights that depend on flight i.
+	 */
+	public int getDependentCount(int i) {
+		return dependentStart[i + 1] - dependentStart[i];
+	}
+
+	public int getDependent(int i, int k) {
+		return dependents[dependentStart[i] + k];
+	}
+
+	/**
+	 * Returns counters for a game in which nothing has landed yet.
+	 */
+	public Counters newCounters() {
+		return new Counters();
+	}
+
+	/**
+	 * The landing state of one game (or simulation): which flights have
+	 * landed, and how many dependencies of each flight have not.
+	 */
+	public final class Counters {
+
+		private final int[] unmet = new int[size];
+		private final boolean[] landed = new boolean[size];
+
+		private Counters() {
+			reset();
+		}
+
+		public DependencyIndex getIndex() {
+			return DependencyIndex.this;
+		}
+
+		/**
+		 * True if every flight that flight i depends on has landed.
+		 */
+		public boolean haveLanded(int i) {
+			return unmet[i] == 0;
+		}
+
+		public boolean hasLanded(int i) {
+			return landed[i];
+		}
+
+		/**
+		 * Records that flight i has landed; landing twice has no effect.
+		 */
+		public void land(int i) {
+			if (landed[i])
+				return;
+			landed[i] = true;
+			for (int e = dependentStart[i]; e < dependentStart[i + 1]; e++)
+				unmet[dependents[e]]--;
+		}
+
+		/**
+		 * Records that flight i, which had landed, is in the air again.
+		 */
+		public void takeOff(int i) {
+			if (!landed[i])
+				return;
+			landed[i] = false;
+			for (int e = dependentStart[i]; e < dependentStart[i + 1]; e++)
+				unmet[dependents[e]]++;
+		}
+
+		/**
+		 * Goes back to nothing having landed.
+		 */
+		public void reset() {
+			for (int i = 0; i < size; i++)
+				unmet[i] = dependencyStart[i + 1] - dependencyStart[i];
+			Arrays.fill(landed, false);
+		}
+
+		/**
+		 * Sets the counters from the planes, counting those with a bearing of
+		 * -2 as landed. The planes must be in the order of the schedule.
+		 */
+		public void setFrom(List<Plane> planes) {
+			reset();
+			for (int i = 0; i < size; i++) {
+				if (planes.get(i).getBearing() == -2)
+					land(i);
+			}
+		}
+	}
+}
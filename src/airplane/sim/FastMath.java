@@ -0,0 +1,96 @@
+package airplane.sim;
+
+/**
+ * Table-based sine, cosine and arctangent for angles in degrees, for
+ * simulations that can trade a little accuracy for speed.
+ *
+ * Sine and cosine are read from a table of the sine at every 1/32 of a
+ * degree, interpolating linearly between entries. The error of linear
+ * interpolation is at most h^2/8 for a step of h radians, here under 4e-8;
+ * with rounding, sinDeg and cosDeg are within 5e-8 of Math.sin and Math.cos
+ * of the same angle. A plane moved with them (see
+ * SimulationContext.setFastMath) therefore drifts from the exact position by
+ * less than 1e-7 per round.
+ *
+ * atan2Deg reduces its argument to an angle between 0 and 45 degrees and
+ * interpolates in a table of the arctangent at steps of 1/1024. It is within
+ * 1e-5 degrees of Math.atan2 converted to degrees, which is far below the 10
+ * degree turn a plane may make each round, so bearings computed with it are
+ * as good as exact ones for steering.
+ *
+ * The game itself always moves planes with exact math; only simulations and
+ * players that ask for it use this class.
+ */
+public final class FastMath {
+
+	private static final int STEPS_PER_DEGREE = 32;
+	private static final int SINE_STEPS = 360 * STEPS_PER_DEGREE;
+	// two extra entries, so that an index rounded up to SINE_STEPS can still
+	// be interpolated
+	private static final double[] SINE = new double[SINE_STEPS + 2];
+
+	private static final int ATAN_STEPS = 1024;
+	private static final double[] ATAN = new double[ATAN_STEPS + 2];
+
+	static {
+		for (int i = 0; i < SINE.length; i++)
+			SINE[i] = Math.sin(Math.toRadians((double) i / STEPS_PER_DEGREE));
+		for (int i = 0; i < ATAN.length; i++)
+			ATAN[i] = Math.toDegrees(Math.atan((double) i / ATAN_STEPS));
+	}
+
+	private FastMath() {
+	}
+
+	/**
+	 * Returns the sine of an angle in degrees.
+	 */
+	public static double sinDeg(double degrees) {
+		double t = degrees * STEPS_PER_DEGREE;
+		t -= Math.floor(t / SINE_STEPS) * SINE_STEPS;
+		int i = (int) t;
+		double f = t - i;
+		return SINE[i] + (SINE[i + 1] - SINE[i]) * f;
+	}
+
+	/**
+	 * Returns the cosine of an angle in degrees.
+	 */
+	public static double cosDeg(double degrees) {
+		return sinDeg(degrees + 90);
+	}
+
+	/**
+	 * Returns the angle of the point (x, y) in degrees, between -180 and 180,
+	 * like Math.toDegrees(Math.atan2(y, x)).
+	 */
+	public static double atan2Deg(double y, double x) {
+		if (Double.isNaN(x) || Double.isNaN(y) || Double.isInfinite(x) || Double.isInfinite(y))
+			return Math.toDegrees(Math.atan2(y, x));
+		double ax = Math.abs(x);
+		double ay = Math.abs(y);
+		if (ax == 0 && ay == 0)
+			return Math.toDegrees(Math.atan2(y, x));
+		// the angle of the smaller over the larger, between 0 and 45 degrees
+		boolean steep = ay > ax;
+		double t = (steep ? ax / ay : ay / ax) * ATAN_STEPS;
+		int i = (int) t;
+		double f = t - i;
+		double angle = ATAN[i] + (ATAN[i + 1] - ATAN[i]) * f;
+		if (steep)
+			angle = 90 - angle;
+		if (x < 0)
+			angle = 180 - angle;
+		// the sign of y, even of -0.0, as Math.atan2 has it
+		return Math.copySign(angle, y);
+	}
+
+	/**
+	 * Player.calculateBearing with atan2Deg in place of Math.atan2.
+	 */
+	public static double bearing(double x1, double y1, double x2, double y2) {
+		double bearing = atan2Deg(y1 - y2, x1 - x2) - 90;
+		if (bearing < 0) bearing += 360;
+		return bearing;
+	}
+}
@@ -0,0 +1,430 @@
+package airplane.sim;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Reads a flight file one flight at a time, straight from the bytes of the
+ * file.
+ *
+ * Each line has the form "x,y; x,y; departure" with an optional fourth field
+ * listing the flights it depends on, e.g. "20,20; 50,50; 3; 0,1". Lines that
+ * cannot be parsed are reported on System.err and skipped, in the same way
+ * as the old String-based Board.load did. The dependencies are returned as
+ * they are written; DependencyIndex checks them. As with
+ * BufferedReader.readLine, a line ends at "\n", "\r" or "\r\n".
+ *
+ * The file is read through a FileChannel into a reusable buffer, and numbers
+ * are parsed from the bytes, so reading does not create objects per line.
+ * Like an iterator, the reader holds one flight at a time: call next() (or
+ * nextDepartingBy()) and then read the flight with the getters.
+ */
+public final class FlightFileReader implements Closeable {
+
+	private static final double[] POWERS_OF_TEN = new double[23];
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++)
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+	}
+
+	private final FileChannel channel;
+	private byte[] buf = new byte[1 << 16];
+	private ByteBuffer wrapper = ByteBuffer.wrap(buf);
+	private int pos;
+	private int limit;
+	private int scan;
+	private boolean eof;
+	// set when the last line ended at a '\r', which a '\n' may still follow
+	private boolean afterCarriageReturn;
+
+	// the bounds of the current line
+	private int lineStart;
+	private int lineEnd;
+	// the current flight
+	private int index = -1;
+	private double originX;
+	private double originY;
+	private double destinationX;
+	private double destinationY;
+	private int departure;
+	private boolean listsDependencies;
+	private int[] dependencies = new int[4];
+	private int dependencyCount;
+
+	// set when nextDepartingBy has read a flight that does not depart yet
+	private boolean pending;
+	private int lastDeparture = Integer.MIN_VALUE;
+
+	// the bounds of the fields of the current line
+	private int[] fieldStart = new int[8];
+	private int[] fieldEnd = new int[8];
+
+	public FlightFileReader(File file) throws IOException {
+		channel = new FileInputStream(file).getChannel();
+	}
+
+	/**
+	 * Reads every flight in the file.
+	 */
+	public static FlightSchedule readAll(File file) throws IOException {
+		FlightFileReader reader = new FlightFileReader(file);
+		try {
+			// the flights in the bundled files take about 25 bytes each
+			FlightSchedule schedule = new FlightSchedule((int) Math.min(reader.channel.size() / 20, 1 << 24));
+			while (reader.next())
+				schedule.add(reader);
+			return schedule;
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Moves to the next flight in the file.
+	 *
+	 * @return false when there are no more flights
+	 */
+	public boolean next() throws IOException {
+		if (pending) {
+			pending = false;
+			return true;
+		}
+		return readFlight();
+	}
+
+	/**
+	 * Moves to the next flight in the file if it departs no later than the
+	 * given round. Otherwise the flight is kept, and returned by a later call
+	 * with a later round. This lets a caller read a file sorted by departure
+	 * time round by round, without reading the flights that leave later.
+	 *
+	 * @return false if there are no more flights, or the next one departs
+	 *         after round
+	 * @throws IOException if the flights turn out not to be sorted by
+	 *         departure time
+	 */
+	public boolean nextDepartingBy(int round) throws IOException {
+		if (!pending) {
+			if (!readFlight())
+				return false;
+			pending = true;
+		}
+		if (departure > round)
+			return false;
+		if (departure < lastDeparture)
+			throw new IOException("Flight " + index + " departs at " + departure + ", before the flight read before it at "
+					+ lastDeparture + "; the flights are not sorted by departure time");
+		lastDeparture = departure;
+		pending = false;
+		return true;
+	}
+
+	/**
+	 * Returns the position of the current flight among the flights in the
+	 * file, which is how other flights refer to it.
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	public double getOriginX() {
+		return originX;
+	}
+
+	public double getOriginY() {
+		return originY;
+	}
+
+	public double getDestinationX() {
+		return destinationX;
+	}
+
+	public double getDestinationY() {
+		return destinationY;
+	}
+
+	public int getDepartureTime() {
+		return departure;
+	}
+
+	/**
+	 * True if the line of the current flight had a dependency field, even one
+	 * that lists no flights.
+	 */
+	public boolean listsDependencies() {
+		return listsDependencies;
+	}
+
+	public int getDependencyCount() {
+		return dependencyCount;
+	}
+
+	public int getDependency(int k) {
+		return dependencies[k];
+	}
+
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/*
+	 * Reads lines until one holds a flight.
+	 */
+	private boolean readFlight() throws IOException {
+		while (nextLine()) {
+			int fields = splitFields();
+			if (fields < 3) {
+				warn();
+				continue;
+			}
+			if (!parsePoint(fieldStart[0], fieldEnd[0], true) || !parsePoint(fieldStart[1], fieldEnd[1], false)) {
+				warn();
+				continue;
+			}
+			departure = parseInt(fieldStart[2], fieldEnd[2]);
+			listsDependencies = fields > 3;
+			dependencyCount = 0;
+			if (listsDependencies)
+				parseDependencies(fieldStart[3], fieldEnd[3]);
+			index++;
+			return true;
+		}
+		return false;
+	}
+
+	private boolean nextLine() throws IOException {
+		while (true) {
+			// the '\n' of a "\r\n" that the last line ended at, which may
+			// only be read after a fill
+			if (afterCarriageReturn && pos < limit) {
+				afterCarriageReturn = false;
+				if (buf[pos] == '\n') {
+					pos++;
+					scan = pos;
+				}
+			}
+			for (int i = scan; i < limit; i++) {
+				if (buf[i] == '\n' || buf[i] == '\r') {
+					afterCarriageReturn = buf[i] == '\r';
+					setLine(pos, i);
+					pos = i + 1;
+					scan = pos;
+					return true;
+				}
+			}
+			scan = limit;
+			if (eof) {
+				if (pos == limit)
+					return false;
+				setLine(pos, limit);
+				pos = limit;
+				return true;
+			}
+			fill();
+		}
+	}
+
+	private void setLine(int start, int end) {
+		lineStart = start;
+		lineEnd = end;
+	}
+
+	/*
+	 * Moves what is left of the buffer to the front and reads more of the
+	 * file after it, growing the buffer for lines longer than it.
+	 */
+	private void fill() throws IOException {
+		if (pos > 0) {
+			System.arraycopy(buf, pos, buf, 0, limit - pos);
+			limit -= pos;
+			scan -= pos;
+			pos = 0;
+		}
+		if (limit == buf.length) {
+			byte[] larger = new byte[buf.length * 2];
+			System.arraycopy(buf, 0, larger, 0, limit);
+			buf = larger;
+			wrapper = ByteBuffer.wrap(buf);
+		}
+		wrapper.limit(buf.length);
+		wrapper.position(limit);
+		int n = channel.read(wrapper);
+		if (n < 0)
+			eof = true;
+		else
+			limit += n;
+	}
+
+	/*
+	 * Splits the line at the semicolons, and returns the number of fields as
+	 * String.split would, i.e. not counting empty fields at the end.
+	 */
+	private int splitFields() {
+		int fields = 0;
+		int nonEmpty = 0;
+		int start = lineStart;
+		for (int i = lineStart; i <= lineEnd; i++) {
+			if (i == lineEnd || buf[i] == ';') {
+				if (fields == fieldStart.length) {
+					fieldStart = Arrays.copyOf(fieldStart, fields * 2);
+					fieldEnd = Arrays.copyOf(fieldEnd, fields * 2);
+				}
+				fieldStart[fields] = start;
+				fieldEnd[fields] = i;
+				fields++;
+				if (i > start)
+					nonEmpty = fields;
+				start = i + 1;
+			}
+		}
+		return nonEmpty;
+	}
+
+	/*
+	 * Parses "x,y" into the origin or the destination.
+	 */
+	private boolean parsePoint(int start, int end, boolean origin) {
+		start = trimStart(start, end);
+		end = trimEnd(start, end);
+		int comma = indexOf(',', start, end);
+		if (comma < 0)
+			return false;
+		int second = indexOf(',', comma + 1, end);
+		int secondEnd = second < 0 ? end : second;
+		// like String.split, "1," and "1,," have only one part
+		if (secondEnd == comma + 1 && (second < 0 || onlyCommas(second, end)))
+			return false;
+		double px = parseDouble(start, comma);
+		double py = parseDouble(comma + 1, secondEnd);
+		if (origin) {
+			originX = px;
+			originY = py;
+		} else {
+			destinationX = px;
+			destinationY = py;
+		}
+		return true;
+	}
+
+	private void parseDependencies(int start, int end) {
+		int tokenStart = start;
+		for (int i = start; i <= end; i++) {
+			if (i == end || buf[i] == ',') {
+				int s = trimStart(tokenStart, i);
+				int e = trimEnd(s, i);
+				if (e > s) {
+					if (dependencyCount == dependencies.length)
+						dependencies = Arrays.copyOf(dependencies, dependencyCount * 2);
+					dependencies[dependencyCount++] = parseInt(s, e);
+				}
+				tokenStart = i + 1;
+			}
+		}
+	}
+
+	/*
+	 * Parses a decimal number such as "41.1" directly. Numbers with more than
+	 * 15 digits, exponents and anything unusual are left to
+	 * Double.parseDouble, as are malformed numbers so that they fail the same
+	 * way.
+	 *
+	 * With at most 15 digits the digits form an exact double, as does a power
+	 * of ten up to 10^22, so the single division below is correctly rounded
+	 * and gives exactly what Double.parseDouble gives.
+	 */
+	private double parseDouble(int start, int end) {
+		int s = trimStart(start, end);
+		int e = trimEnd(s, end);
+		int i = s;
+		boolean negative = false;
+		if (i < e && (buf[i] == '-' || buf[i] == '+')) {
+			negative = buf[i] == '-';
+			i++;
+		}
+		long digits = 0;
+		int digitCount = 0;
+		int fraction = -1;
+		for (; i < e; i++) {
+			byte b = buf[i];
+			if (b >= '0' && b <= '9') {
+				digits = digits * 10 + (b - '0');
+				digitCount++;
+				if (fraction >= 0)
+					fraction++;
+			} else if (b == '.' && fraction < 0) {
+				fraction = 0;
+			} else {
+				break;
+			}
+		}
+		if (i < e || digitCount == 0 || digitCount > 15)
+			return Double.parseDouble(new String(buf, start, end - start));
+		double value = fraction > 0 ? digits / POWERS_OF_TEN[fraction] : digits;
+		return negative ? -value : value;
+	}
+
+	/*
+	 * Parses an integer of up to nine digits directly, leaving anything else
+	 * to Integer.parseInt.
+	 */
+	private int parseInt(int start, int end) {
+		int s = trimStart(start, end);
+		int e = trimEnd(s, end);
+		int i = s;
+		boolean negative = false;
+		if (i < e && (buf[i] == '-' || buf[i] == '+')) {
+			negative = buf[i] == '-';
+			i++;
+		}
+		int value = 0;
+		int first = i;
+		for (; i < e; i++) {
+			byte b = buf[i];
+			if (b < '0' || b > '9')
+				break;
+			value = value * 10 + (b - '0');
+		}
+		if (i < e || i == first || i - first > 9)
+			return Integer.parseInt(new String(buf, s, e - s));
+		return negative ? -value : value;
+	}
+
+	private int trimStart(int start, int end) {
+		while (start < end && (buf[start] & 0xff) <= ' ')
+			start++;
+		return start;
+	}
+
+	private int trimEnd(int start, int end) {
+		while (end > start && (buf[end - 1] & 0xff) <= ' ')
+			end--;
+		return end;
+	}
+
+	private int indexOf(char c, int start, int end) {
+		for (int i = start; i < end; i++) {
+			if (buf[i] == c)
+				return i;
+		}
+		return -1;
+	}
+
+	private boolean onlyCommas(int start, int end) {
+		for (int i = start; i < end; i++) {
+			if (buf[i] != ',')
+				return false;
+		}
+		return true;
+	}
+
+	private void warn() {
+		System.err.println("Warning: Could not parse line in flights file: "
+				+ new String(buf, lineStart, lineEnd - lineStart));
+	}
+}
@@ -0,0 +1,310 @@
+package airplane.sim;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * The positions a plane has flown through, as recorded by the engine after
+ * every legal move and drawn by BoardPanel.
+ *
+ * How much is kept depends on the policy:
+ * <ul>
+ * <li>OFF keeps nothing; add() does nothing and size() is always 0.</li>
+ * <li>RING keeps the last N positions in two arrays, overwriting the oldest.</li>
+ * <li>COMPRESSED keeps every position, each as the difference from the one
+ * before in a pair of floats, so a position takes 8 bytes instead of the
+ * 40 or so a Point2D.Double in a list takes. Positions read back are within
+ * about 2e-6 of the ones added, which does not show when drawn.</li>
+ * </ul>
+ * None of them creates an object per position.
+ *
+ * Positions are numbered from 0, the oldest one kept, to size() - 1, the
+ * latest. getCount() counts every position added, including those a RING
+ * history no longer keeps, and truncate() goes back to an earlier count, as
+ * GameEngine.restore does.
+ */
+public abstract class FlightHistory {
+
+	public enum Policy {OFF, RING, COMPRESSED};
+
+	private static final FlightHistory OFF = new Off();
+
+	/**
+	 * Returns a new, empty history with the given policy; length is the
+	 * number of positions a RING history keeps and is ignored otherwise.
+	 */
+	public static FlightHistory create(Policy policy, int length) {
+		switch (policy) {
+		case RING:
+			return ring(length);
+		case COMPRESSED:
+			return compressed();
+		default:
+			return off();
+		}
+	}
+
+	/**
+	 * Returns a history that keeps nothing. It has no state, so every plane
+	 * can share the same one.
+	 */
+	public static FlightHistory off() {
+		return OFF;
+	}
+
+	public static FlightHistory ring(int length) {
+		return new Ring(length);
+	}
+
+	public static FlightHistory compressed() {
+		return new Compressed();
+	}
+
+	public abstract Policy getPolicy();
+
+	public abstract void add(double x, double y);
+
+	public abstract int size();
+
+	public abstract double getX(int k);
+
+	public abstract double getY(int k);
+
+	public abstract void clear();
+
+	/**
+	 * Returns the number of positions added since the history was created or
+	 * cleared.
+	 */
+	public abstract long getCount();
+
+	/**
+	 * Removes the positions added after the count was the given one. A RING
+	 * history does not get back positions it has overwritten since.
+	 */
+	public abstract void truncate(long count);
+
+	/**
+	 * Returns the positions as a list of new points, oldest first.
+	 */
+	public ArrayList<Point2D.Double> toList() {
+		int n = size();
+		ArrayList<Point2D.Double> points = new ArrayList<Point2D.Double>(n);
+		for (int k = 0; k < n; k++)
+			points.add(new Point2D.Double(getX(k), getY(k)));
+		return points;
+	}
+
+	private static final class Off extends FlightHistory {
+
+		public Policy getPolicy() {
+			return Policy.OFF;
+		}
+
+		public void add(double x, double y) {
+		}
+
+		public int size() {
+			return 0;
+		}
+
+		public double getX(int k) {
+			throw new IndexOutOfBoundsException("Index: " + k + ", Size: 0");
+		}
+
+		public double getY(int k) {
+			throw new IndexOutOfBoundsException("Index: " + k + ", Size: 0");
+		}
+
+		public void clear() {
+		}
+
+		public long getCount() {
+			return 0;
+		}
+
+		public void truncate(long count) {
+		}
+	}
+
+	private static final class Ring extends FlightHistory {
+
+		private final double[] xs;
+		private final double[] ys;
+		// the number of positions ever added, and the number of the oldest one
+		// kept; position p is at p % length
+		private long added;
+		private long first;
+
+		Ring(int length) {
+			if (length < 1)
+				throw new IllegalArgumentException("history length must be at least 1: " + length);
+			xs = new double[length];
+			ys = new double[length];
+		}
+
+		public Policy getPolicy() {
+			return Policy.RING;
+		}
+
+		public void add(double x, double y) {
+			int i = (int) (added % xs.length);
+			xs[i] = x;
+			ys[i] = y;
+			added++;
+			if (added - first > xs.length)
+				first = added - xs.length;
+		}
+
+		public int size() {
+			return (int) (added - first);
+		}
+
+		private int index(int k) {
+			if (k < 0 || k >= size())
+				throw new IndexOutOfBoundsException("Index: " + k + ", Size: " + size());
+			return (int) ((first + k) % xs.length);
+		}
+
+		public double getX(int k) {
+			return xs[index(k)];
+		}
+
+		public double getY(int k) {
+			return ys[index(k)];
+		}
+
+		public void clear() {
+			added = 0;
+			first = 0;
+		}
+
+		public long getCount() {
+			return added;
+		}
+
+		public void truncate(long count) {
+			if (count >= added)
+				return;
+			added = count;
+			if (first > count)
+				first = count;
+		}
+	}
+
+	private static final class Compressed extends FlightHistory {
+
+		// every ANCHOR_INTERVAL-th position is kept exactly, so that reading a
+		// position means adding up at most ANCHOR_INTERVAL - 1 differences,
+		// and their rounding errors (below 3e-8 each for a move of one unit)
+		// cannot add up to more than about 2e-6
+		private static final int ANCHOR_INTERVAL = 64;
+
+		// deltas[2k] and deltas[2k + 1] are position k minus position k - 1;
+		// unused at anchors
+		private float[] deltas = new float[2 * ANCHOR_INTERVAL];
+		private double[] anchors = new double[8];
+		private int size;
+		// the latest position added, which the next difference is taken from
+		private double lastX;
+		private double lastY;
+
+		// the position last decoded, so that reading the positions in order
+		// costs one addition each
+		private int cursor = -1;
+		private double cursorX;
+		private double cursorY;
+
+		public Policy getPolicy() {
+			return Policy.COMPRESSED;
+		}
+
+		public void add(double x, double y) {
+			if (2 * size + 2 > deltas.length)
+				deltas = Arrays.copyOf(deltas, 2 * deltas.length);
+			if (size % ANCHOR_INTERVAL == 0) {
+				int a = 2 * (size / ANCHOR_INTERVAL);
+				if (a + 2 > anchors.length)
+					anchors = Arrays.copyOf(anchors, 2 * anchors.length);
+				anchors[a] = x;
+				anchors[a + 1] = y;
+				lastX = x;
+				lastY = y;
+			} else {
+				float dx = (float) (x - lastX);
+				float dy = (float) (y - lastY);
+				deltas[2 * size] = dx;
+				deltas[2 * size + 1] = dy;
+				lastX = x;
+				lastY = y;
+			}
+			size++;
+		}
+
+		public int size() {
+			return size;
+		}
+
+		private void seek(int k) {
+			if (k < 0 || k >= size)
+				throw new IndexOutOfBoundsException("Index: " + k + ", Size: " + size);
+			if (k == cursor)
+				return;
+			if (k == cursor + 1 && k % ANCHOR_INTERVAL != 0) {
+				// the next position, which is what drawing a path asks for
+				cursorX += deltas[2 * k];
+				cursorY += deltas[2 * k + 1];
+				cursor = k;
+				return;
+			}
+			int from;
+			if (cursor >= 0 && k > cursor && k / ANCHOR_INTERVAL == cursor / ANCHOR_INTERVAL) {
+				from = cursor + 1;
+			} else {
+				int a = k / ANCHOR_INTERVAL;
+				cursorX = anchors[2 * a];
+				cursorY = anchors[2 * a + 1];
+				from = a * ANCHOR_INTERVAL + 1;
+			}
+			for (int j = from; j <= k; j++) {
+				cursorX += deltas[2 * j];
+				cursorY += deltas[2 * j + 1];
+			}
+			cursor = k;
+		}
+
+		public double getX(int k) {
+			seek(k);
+			return cursorX;
+		}
+
+		public double getY(int k) {
+			seek(k);
+			return cursorY;
+		}
+
+		public void clear() {
+			size = 0;
+			cursor = -1;
+		}
+
+		public long getCount() {
+			return size;
+		}
+
+		public void truncate(long count) {
+			if (count >= size)
+				return;
+			size = (int) count;
+			if (cursor >= size)
+				cursor = -1;
+			// the next difference is taken from the position read back, which
+			// is within the error bound and does not add to it
+			if (size > 0) {
+				lastX = getX(size - 1);
+				lastY = getY(size - 1);
+			}
+		}
+	}
+}
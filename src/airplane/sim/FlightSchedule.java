@@ -0,0 +1,170 @@
+package airplane.sim;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The flights read from a flight file, stored as primitive arrays.
+ *
+ * Flight i is the i-th line of the file that could be parsed. Its
+ * dependencies are the entries dependencyStart[i] to dependencyStart[i+1]-1
+ * of dependencyList.
+ */
+public final class FlightSchedule {
+
+	private int size;
+	private double[] originX;
+	private double[] originY;
+	private double[] destinationX;
+	private double[] destinationY;
+	private int[] departure;
+	// flights whose line had a dependency field, even an empty one
+	private boolean[] listsDependencies;
+	private int[] dependencyStart;
+	private int[] dependencyList;
+	private int dependencyCount;
+	// null until getDestinationIds() is first called
+	private int[] destinationId;
+
+	FlightSchedule(int capacity) {
+		capacity = Math.max(capacity, 16);
+		originX = new double[capacity];
+		originY = new double[capacity];
+		destinationX = new double[capacity];
+		destinationY = new double[capacity];
+		departure = new int[capacity];
+		listsDependencies = new boolean[capacity];
+		dependencyStart = new int[capacity + 1];
+		dependencyList = new int[16];
+	}
+
+	FlightSchedule(int size, double[] originX, double[] originY, double[] destinationX, double[] destinationY,
+			int[] departure, boolean[] listsDependencies, int[] dependencyStart, int[] dependencyList) {
+		this.size = size;
+		this.originX = originX;
+		this.originY = originY;
+		this.destinationX = destinationX;
+		this.destinationY = destinationY;
+		this.departure = departure;
+		this.listsDependencies = listsDependencies;
+		this.dependencyStart = dependencyStart;
+		this.dependencyList = dependencyList;
+		this.dependencyCount = dependencyStart[size];
+	}
+
+	/*
+	 * Appends the reader's current flight.
+	 */
+	void add(FlightFileReader reader) {
+		if (size == departure.length) {
+			int capacity = size * 2;
+			originX = Arrays.copyOf(originX, capacity);
+			originY = Arrays.copyOf(originY, capacity);
+			destinationX = Arrays.copyOf(destinationX, capacity);
+			destinationY = Arrays.copyOf(destinationY, capacity);
+			departure = Arrays.copyOf(departure, capacity);
+			listsDependencies = Arrays.copyOf(listsDependencies, capacity);
+			dependencyStart = Arrays.copyOf(dependencyStart, capacity + 1);
+		}
+		originX[size] = reader.getOriginX();
+		originY[size] = reader.getOriginY();
+		destinationX[size] = reader.getDestinationX();
+		destinationY[size] = reader.getDestinationY();
+		departure[size] = reader.getDepartureTime();
+		listsDependencies[size] = reader.listsDependencies();
+		int n = reader.getDependencyCount();
+		if (dependencyCount + n > dependencyList.length)
+			dependencyList = Arrays.copyOf(dependencyList, Math.max(dependencyList.length * 2, dependencyCount + n));
+		for (int k = 0; k < n; k++)
+			dependencyList[dependencyCount++] = reader.getDependency(k);
+		size++;
+		dependencyStart[size] = dependencyCount;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public double getOriginX(int i) {
+		return originX[i];
+	}
+
+	public double getOriginY(int i) {
+		return originY[i];
+	}
+
+	public double getDestinationX(int i) {
+		return destinationX[i];
+	}
+
+	public double getDestinationY(int i) {
+		return destinationY[i];
+	}
+
+	public int getDepartureTime(int i) {
+		return departure[i];
+	}
+
+	/**
+	 * True if the line of flight i had a dependency field, even one that lists
+	 * no flights.
+	 */
+	public boolean listsDependencies(int i) {
+		return listsDependencies[i];
+	}
+
+	/**
+	 * Returns the total number of dependencies of all flights.
+	 */
+	public int getDependencyCount() {
+		return dependencyCount;
+	}
+
+	public int getDependencyCount(int i) {
+		return dependencyStart[i + 1] - dependencyStart[i];
+	}
+
+	public int getDependency(int i, int k) {
+		return dependencyList[dependencyStart[i] + k];
+	}
+
+	/**
+	 * Returns the id of each flight's destination: flights with the same
+	 * destination have the same id, and the ids are numbered from 0 in the
+	 * order in which the destinations first appear. They are computed on the
+	 * first call.
+	 */
+	public int[] getDestinationIds() {
+		if (destinationId == null) {
+			int[] ids = new int[size];
+			Map<Point2D.Double, Integer> seen = new HashMap<Point2D.Double, Integer>();
+			for (int i = 0; i < size; i++) {
+				Point2D.Double destination = new Point2D.Double(destinationX[i], destinationY[i]);
+				Integer id = seen.get(destination);
+				if (id == null) {
+					id = seen.size();
+					seen.put(destination, id);
+				}
+				ids[i] = id;
+			}
+			destinationId = ids;
+		}
+		return destinationId;
+	}
+
+	/**
+	 * Returns a new list of the flights that flight i depends on, or null if
+	 * its line had no dependency field (as Plane expects).
+	 */
+	public ArrayList<Integer> getDependencies(int i) {
+		if (!listsDependencies[i])
+			return null;
+		ArrayList<Integer> list = new ArrayList<Integer>(getDependencyCount(i));
+		for (int k = dependencyStart[i]; k < dependencyStart[i + 1]; k++)
+			list.add(dependencyList[k]);
+		return list;
+	}
+}
@@ -0,0 +1,248 @@
+package airplane.sim;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads and writes flight schedules in a binary, column-by-column format,
+ * and converts between it and the text format.
+ *
+ * A binary schedule file (extension ".flights") is laid out as follows, with
+ * every number little-endian:
+ * <ul>
+ * <li>a 16-byte header: the magic bytes "FLTS", the format version, the
+ * number of flights n and the total number of dependencies m, as 32-bit
+ * integers;</li>
+ * <li>the origin x, origin y, destination x and destination y columns, each
+ * n 64-bit doubles;</li>
+ * <li>the departure times, n 32-bit integers;</li>
+ * <li>the dependency offsets, n+1 32-bit integers: the dependencies of
+ * flight i are entries offset[i] to offset[i+1]-1 of the next column;</li>
+ * <li>the dependencies, m 32-bit integers;</li>
+ * <li>one byte per flight, 1 if its line in the text format had a dependency
+ * field (so that an empty list and no list stay different).</li>
+ * </ul>
+ *
+ * Reading maps the file into memory and copies each column into the
+ * schedule's arrays in bulk.
+ */
+public final class FlightScheduleFile {
+
+	public static final String EXTENSION = ".flights";
+	public static final int VERSION = 1;
+
+	private static final int MAGIC = 'F' | 'L' << 8 | 'T' << 16 | 'S' << 24;
+	private static final int HEADER_SIZE = 16;
+
+	private FlightScheduleFile() {
+	}
+
+	/**
+	 * True if the file has the binary schedule extension.
+	 */
+	public static boolean isBinary(File file) {
+		return file.getName().toLowerCase().endsWith(EXTENSION);
+	}
+
+	/**
+	 * Reads a schedule in either format, going by the file's extension.
+	 */
+	public static FlightSchedule load(File file) throws IOException {
+		if (isBinary(file))
+			return read(file);
+		return FlightFileReader.readAll(file);
+	}
+
+	/**
+	 * Reads a binary schedule file.
+	 */
+	public static FlightSchedule read(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			long length = channel.size();
+			if (length < HEADER_SIZE)
+				throw new IOException(file + " is too short to be a flight schedule");
+			if (length > Integer.MAX_VALUE)
+				throw new IOException(file + " is too large to be mapped into memory");
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+			if (buffer.getInt() != MAGIC)
+				throw new IOException(file + " is not a binary flight schedule");
+			int version = buffer.getInt();
+			if (version != VERSION)
+				throw new IOException(file + " has version " + version + " of the flight schedule format; only version "
+						+ VERSION + " can be read");
+			int n = buffer.getInt();
+			int m = buffer.getInt();
+			if (n < 0 || m < 0 || length != size(n, m))
+				throw new IOException(file + " is corrupt: a schedule of " + n + " flights and " + m
+						+ " dependencies takes " + size(n, m) + " bytes, not " + length);
+
+			double[] originX = new double[n];
+			double[] originY = new double[n];
+			double[] destinationX = new double[n];
+			double[] destinationY = new double[n];
+			int[] departure = new int[n];
+			int[] dependencyStart = new int[n + 1];
+			int[] dependencyList = new int[m];
+			boolean[] listsDependencies = new boolean[n];
+
+			buffer.asDoubleBuffer().get(originX);
+			buffer.position(buffer.position() + 8 * n);
+			buffer.asDoubleBuffer().get(originY);
+			buffer.position(buffer.position() + 8 * n);
+			buffer.asDoubleBuffer().get(destinationX);
+			buffer.position(buffer.position() + 8 * n);
+			buffer.asDoubleBuffer().get(destinationY);
+			buffer.position(buffer.position() + 8 * n);
+			buffer.asIntBuffer().get(departure);
+			buffer.position(buffer.position() + 4 * n);
+			buffer.asIntBuffer().get(dependencyStart);
+			buffer.position(buffer.position() + 4 * (n + 1));
+			buffer.asIntBuffer().get(dependencyList);
+			buffer.position(buffer.position() + 4 * m);
+			for (int i = 0; i < n; i++)
+				listsDependencies[i] = buffer.get() != 0;
+
+			if (dependencyStart[0] != 0 || dependencyStart[n] != m)
+				throw new IOException(file + " is corrupt: the dependency offsets do not cover the dependencies");
+			for (int i = 0; i < n; i++) {
+				if (dependencyStart[i + 1] < dependencyStart[i])
+					throw new IOException(file + " is corrupt: the dependency offsets of flight " + i + " are decreasing");
+			}
+			return new FlightSchedule(n, originX, originY, destinationX, destinationY, departure, listsDependencies,
+					dependencyStart, dependencyList);
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Writes a schedule in the binary format.
+	 */
+	public static void write(FlightSchedule schedule, File file) throws IOException {
+		int n = schedule.size();
+		int m = schedule.getDependencyCount();
+		ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(size(n, m), 1 << 20)).order(ByteOrder.LITTLE_ENDIAN);
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.setLength(0);
+			FileChannel channel = raf.getChannel();
+			buffer.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(m);
+			for (int column = 0; column < 4; column++) {
+				for (int i = 0; i < n; i++) {
+					flushIfFull(channel, buffer, 8);
+					buffer.putDouble(column == 0 ? schedule.getOriginX(i) : column == 1 ? schedule.getOriginY(i)
+							: column == 2 ? schedule.getDestinationX(i) : schedule.getDestinationY(i));
+				}
+			}
+			for (int i = 0; i < n; i++) {
+				flushIfFull(channel, buffer, 4);
+				buffer.putInt(schedule.getDepartureTime(i));
+			}
+			int offset = 0;
+			for (int i = 0; i < n; i++) {
+				flushIfFull(channel, buffer, 4);
+				buffer.putInt(offset);
+				offset += schedule.getDependencyCount(i);
+			}
+			flushIfFull(channel, buffer, 4);
+			buffer.putInt(offset);
+			for (int i = 0; i < n; i++) {
+				for (int k = 0; k < schedule.getDependencyCount(i); k++) {
+					flushIfFull(channel, buffer, 4);
+					buffer.putInt(schedule.getDependency(i, k));
+				}
+			}
+			for (int i = 0; i < n; i++) {
+				flushIfFull(channel, buffer, 1);
+				buffer.put((byte) (schedule.listsDependencies(i) ? 1 : 0));
+			}
+			flush(channel, buffer);
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Writes a schedule in the text format read by Board.load. Coordinates are
+	 * written with Double.toString, so they read back exactly.
+	 */
+	public static void writeText(FlightSchedule schedule, File file) throws IOException {
+		Writer out = new BufferedWriter(new FileWriter(file), 1 << 16);
+		try {
+			StringBuilder line = new StringBuilder(64);
+			for (int i = 0; i < schedule.size(); i++) {
+				line.setLength(0);
+				line.append(schedule.getOriginX(i)).append(',').append(schedule.getOriginY(i)).append(';');
+				line.append(schedule.getDestinationX(i)).append(',').append(schedule.getDestinationY(i)).append(';');
+				line.append(schedule.getDepartureTime(i));
+				if (schedule.listsDependencies(i)) {
+					// a space keeps an empty list from being dropped as a trailing field
+					line.append("; ");
+					for (int k = 0; k < schedule.getDependencyCount(i); k++) {
+						if (k > 0)
+							line.append(',');
+						line.append(schedule.getDependency(i, k));
+					}
+				}
+				line.append('\n');
+				out.append(line);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	private static long size(int n, long m) {
+		return HEADER_SIZE + 32L * n + 4L * n + 4L * (n + 1) + 4 * m + n;
+	}
+
+	private static void flushIfFull(FileChannel channel, ByteBuffer buffer, int needed) throws IOException {
+		if (buffer.remaining() < needed)
+			flush(channel, buffer);
+	}
+
+	private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+
+	private final static void printUsage() {
+		System.err.println("Usage: FlightScheduleFile <input file> <output file>");
+		System.err.println("Converts a text flight file to the binary format or back, going by the extensions (binary files end in "
+				+ EXTENSION + ").");
+	}
+
+	public static final void main(String[] args) {
+		if (args.length != 2) {
+			printUsage();
+			System.exit(1);
+		}
+		File input = new File(args[0]);
+		File output = new File(args[1]);
+		try {
+			FlightSchedule schedule = load(input);
+			if (isBinary(output))
+				write(schedule, output);
+			else
+				writeText(schedule, output);
+			System.out.println("Wrote " + schedule.size() + " flights to " + output);
+		} catch (IOException e) {
+			System.err.println("Error: could not convert " + input + ": " + e.getMessage());
+			System.exit(1);
+		}
+	}
+}
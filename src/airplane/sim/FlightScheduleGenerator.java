@@ -0,0 +1,422 @@
+package airplane.sim;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.Random;
+
+/**
+ * Writes random flight files in the format read by Board.load, for testing
+ * the simulator with far more flights than the files in the flights
+ * directory.
+ *
+ * The same settings and seed always produce the same file. Airports are
+ * placed at random on the board (with coordinates to one decimal, between 1
+ * and 99), and every flight goes from one airport to a different one. On top
+ * of that, a generator can be asked for:
+ * <ul>
+ * <li>a departure-time distribution: uniform over the span, a Poisson
+ * process over the span, or a number of waves;</li>
+ * <li>dependency chains: connecting flights that leave from the airport the
+ * previous flight in the chain lands at, and depend on it;</li>
+ * <li>conflicts: pairs of flights that, flown straight, meet head on or cross
+ * paths in the same round.</li>
+ * </ul>
+ *
+ * Flights are written in the order they are generated, so departure times
+ * are not sorted and dependencies always refer to earlier lines.
+ */
+public final class FlightScheduleGenerator
+{
+	public enum Departures
+	{
+		UNIFORM, POISSON, WAVES
+	}
+
+	public enum Pattern
+	{
+		RANDOM, HEAD_ON, CROSSING
+	}
+
+	// coordinates are kept in tenths, which is how they are written
+	private static final int MIN_TENTHS = 10;
+	private static final int MAX_TENTHS = 990;
+	// at most this many chains are extended at the same time
+	private static final int OPEN_CHAINS = 64;
+
+	private int flights;
+	private long seed = 0;
+	private int airports = 0;
+	private Departures departures = Departures.UNIFORM;
+	private int span = -1;
+	private int waves = 10;
+	private double chainFraction = 0;
+	private int chainLength = 5;
+	private Pattern pattern = Pattern.RANDOM;
+	private double conflictFraction = 0.5;
+
+	public FlightScheduleGenerator(int flights)
+	{
+		if (flights < 1)
+			throw new IllegalArgumentException("Need at least one flight, not " + flights);
+		this.flights = flights;
+	}
+
+	public void setSeed(long seed)
+	{
+		this.seed = seed;
+	}
+
+	/**
+	 * Sets the number of airports. By default there are about as many as the
+	 * square root of the number of flights, and never fewer than 4.
+	 */
+	public void setAirports(int airports)
+	{
+		if (airports < 2 || airports > 100000)
+			throw new IllegalArgumentException("The number of airports must be between 2 and 100000, not " + airports);
+		this.airports = airports;
+	}
+
+	public void setDepartures(Departures departures)
+	{
+		this.departures = departures;
+	}
+
+	/**
+	 * Sets the number of rounds over which departures are spread. By default
+	 * it is half the number of flights.
+	 */
+	public void setSpan(int span)
+	{
+		if (span < 0)
+			throw new IllegalArgumentException("The span cannot be negative: " + span);
+		this.span = span;
+	}
+
+	/**
+	 * Sets the number of waves for Departures.WAVES.
+	 */
+	public void setWaves(int waves)
+	{
+		if (waves < 1)
+			throw new IllegalArgumentException("Need at least one wave, not " + waves);
+		this.waves = waves;
+	}
+
+	/**
+	 * Sets the fraction of flights that continue a dependency chain, and the
+	 * maximum number of flights in a chain.
+	 */
+	public void setChains(double fraction, int length)
+	{
+		if (fraction < 0 || fraction > 1)
+			throw new IllegalArgumentException("The chain fraction must be between 0 and 1, not " + fraction);
+		if (length < 2)
+			throw new IllegalArgumentException("A chain needs at least two flights, not " + length);
+		chainFraction = fraction;
+		chainLength = length;
+	}
+
+	/**
+	 * Sets the kind of conflicts to generate and the fraction of flights that
+	 * are part of a conflicting pair. Pattern.RANDOM generates none.
+	 */
+	public void setPattern(Pattern pattern, double fraction)
+	{
+		if (fraction < 0 || fraction > 1)
+			throw new IllegalArgumentException("The conflict fraction must be between 0 and 1, not " + fraction);
+		this.pattern = pattern;
+		conflictFraction = fraction;
+	}
+
+	public void write(File file) throws IOException
+	{
+		Writer out = new BufferedWriter(new FileWriter(file), 1 << 16);
+		try
+		{
+			write(out);
+		} finally
+		{
+			out.close();
+		}
+	}
+
+	/**
+	 * Generates the flights and writes them, one line per flight.
+	 */
+	public void write(Writer out) throws IOException
+	{
+		Random random = new Random(seed);
+		int airportCount = airports > 0 ? airports : Math.max(4, (int) Math.sqrt(flights));
+		if (pattern == Pattern.CROSSING && airportCount < 4)
+			throw new IllegalArgumentException("Crossing flights need at least 4 airports");
+		int rounds = span >= 0 ? span : flights / 2;
+
+		// place the airports at distinct points
+		int[] ax = new int[airportCount];
+		int[] ay = new int[airportCount];
+		HashSet<Integer> used = new HashSet<Integer>();
+		int range = MAX_TENTHS - MIN_TENTHS + 1;
+		for (int a = 0; a < airportCount; a++)
+		{
+			do
+			{
+				ax[a] = MIN_TENTHS + random.nextInt(range);
+				ay[a] = MIN_TENTHS + random.nextInt(range);
+			} while (!used.add(ax[a] * range + ay[a]));
+		}
+
+		int[] origin = new int[flights];
+		int[] destination = new int[flights];
+		int[] departure = new int[flights];
+		int[] dependsOn = new int[flights];
+
+		// chains that can still be extended: the last flight and the length
+		int[] chainTail = new int[OPEN_CHAINS];
+		int[] chainSize = new int[OPEN_CHAINS];
+		int openChains = 0;
+		double poissonTime = 0;
+
+		int i = 0;
+		while (i < flights)
+		{
+			dependsOn[i] = -1;
+			int time = nextDeparture(random, rounds, poissonTime);
+			if (departures == Departures.POISSON)
+				poissonTime = nextPoissonTime(random, rounds, poissonTime);
+
+			if (pattern != Pattern.RANDOM && i + 1 < flights && random.nextDouble() < conflictFraction)
+			{
+				dependsOn[i + 1] = -1;
+				if (pattern == Pattern.HEAD_ON || !addCrossing(random, ax, ay, origin, destination, departure, i, time))
+				{
+					// the two flights leave at the same time and meet half way
+					origin[i] = random.nextInt(airportCount);
+					destination[i] = otherAirport(random, airportCount, origin[i]);
+					origin[i + 1] = destination[i];
+					destination[i + 1] = origin[i];
+					departure[i] = time;
+					departure[i + 1] = time;
+				}
+				i += 2;
+				continue;
+			}
+
+			if (openChains > 0 && random.nextDouble() < chainFraction)
+			{
+				// a connecting flight, which leaves after the previous one lands
+				int c = random.nextInt(openChains);
+				int previous = chainTail[c];
+				origin[i] = destination[previous];
+				destination[i] = otherAirport(random, airportCount, origin[i]);
+				departure[i] = departure[previous] + flightTime(ax, ay, origin[previous], destination[previous])
+						+ random.nextInt(10);
+				dependsOn[i] = previous;
+				chainTail[c] = i;
+				if (++chainSize[c] == chainLength)
+				{
+					openChains--;
+					chainTail[c] = chainTail[openChains];
+					chainSize[c] = chainSize[openChains];
+				}
+			}
+			else
+			{
+				origin[i] = random.nextInt(airportCount);
+				destination[i] = otherAirport(random, airportCount, origin[i]);
+				departure[i] = time;
+				if (chainFraction > 0)
+				{
+					// start a new chain, replacing a random one if there are too many
+					int c = openChains < OPEN_CHAINS ? openChains++ : random.nextInt(OPEN_CHAINS);
+					chainTail[c] = i;
+					chainSize[c] = 1;
+				}
+			}
+			i++;
+		}
+
+		StringBuilder line = new StringBuilder(64);
+		for (i = 0; i < flights; i++)
+		{
+			line.setLength(0);
+			appendPoint(line, ax[origin[i]], ay[origin[i]]);
+			line.append(';');
+			appendPoint(line, ax[destination[i]], ay[destination[i]]);
+			line.append(';').append(departure[i]);
+			if (dependsOn[i] >= 0)
+				line.append(';').append(dependsOn[i]);
+			line.append('\n');
+			out.append(line);
+		}
+	}
+
+	private int nextDeparture(Random random, int rounds, double poissonTime)
+	{
+		switch (departures)
+		{
+		case POISSON:
+			return (int) poissonTime;
+		case WAVES:
+			int gap = rounds / waves;
+			return random.nextInt(waves) * gap + random.nextInt(Math.max(1, gap / 10));
+		default:
+			return random.nextInt(rounds + 1);
+		}
+	}
+
+	/*
+	 * Departures of a Poisson process that has, on average, every flight
+	 * leave within the span.
+	 */
+	private double nextPoissonTime(Random random, int rounds, double time)
+	{
+		double rate = (double) flights / Math.max(1, rounds);
+		return time - Math.log(1 - random.nextDouble()) / rate;
+	}
+
+	/*
+	 * Tries to find two routes that cross, and times the departures so that
+	 * flights i and i+1 reach the crossing in the same round.
+	 */
+	private boolean addCrossing(Random random, int[] ax, int[] ay, int[] origin, int[] destination, int[] departure,
+			int i, int time)
+	{
+		int n = ax.length;
+		for (int attempt = 0; attempt < 100; attempt++)
+		{
+			int a = random.nextInt(n);
+			int b = otherAirport(random, n, a);
+			int c = random.nextInt(n);
+			int d = otherAirport(random, n, c);
+			if (c == a || c == b || d == a || d == b)
+				continue;
+
+			// solve a + s(b - a) = c + t(d - c)
+			double rx = ax[b] - ax[a], ry = ay[b] - ay[a];
+			double qx = ax[d] - ax[c], qy = ay[d] - ay[c];
+			double cross = rx * qy - ry * qx;
+			if (cross == 0)
+				continue;
+			double wx = ax[c] - ax[a], wy = ay[c] - ay[a];
+			double s = (wx * qy - wy * qx) / cross;
+			double t = (wx * ry - wy * rx) / cross;
+			if (s <= 0 || s >= 1 || t <= 0 || t >= 1)
+				continue;
+
+			// distances to the crossing, in rounds (the coordinates are in tenths)
+			double first = s * Math.hypot(rx, ry) / 10 / Plane.VELOCITY;
+			double second = t * Math.hypot(qx, qy) / 10 / Plane.VELOCITY;
+			int offset = (int) Math.round(first - second);
+			origin[i] = a;
+			destination[i] = b;
+			origin[i + 1] = c;
+			destination[i + 1] = d;
+			departure[i] = offset < 0 ? time - offset : time;
+			departure[i + 1] = departure[i] + offset;
+			return true;
+		}
+		return false;
+	}
+
+	private static int otherAirport(Random random, int airports, int airport)
+	{
+		return (airport + 1 + random.nextInt(airports - 1)) % airports;
+	}
+
+	/*
+	 * The number of rounds to fly straight from one airport to another.
+	 */
+	private static int flightTime(int[] ax, int[] ay, int from, int to)
+	{
+		return (int) Math.ceil(Math.hypot(ax[to] - ax[from], ay[to] - ay[from]) / 10 / Plane.VELOCITY);
+	}
+
+	private static void appendPoint(StringBuilder line, int x, int y)
+	{
+		line.append(x / 10).append('.').append(x % 10).append(',').append(y / 10).append('.').append(y % 10);
+	}
+
+	private final static void printUsage()
+	{
+		System.err.println("Usage: FlightScheduleGenerator <flights> <output file> [options]");
+		System.err.println("  -seed <n>                            random seed (default 0)");
+		System.err.println("  -airports <n>                        number of airports (default sqrt(flights), at least 4)");
+		System.err.println("  -departures uniform|poisson|waves    departure-time distribution (default uniform)");
+		System.err.println("  -span <rounds>                       rounds over which flights depart (default flights/2)");
+		System.err.println("  -waves <n>                           number of waves for -departures waves (default 10)");
+		System.err.println("  -chains <fraction> [length]          fraction of connecting flights and maximum chain length (default 5)");
+		System.err.println("  -pattern headon|crossing [fraction]  fraction of flights in conflicting pairs (default 0.5)");
+	}
+
+	public static final void main(String[] args)
+	{
+		if (args.length < 2)
+		{
+			printUsage();
+			System.exit(1);
+		}
+		File output = new File(args[1]);
+		try
+		{
+			FlightScheduleGenerator generator = new FlightScheduleGenerator(Integer.parseInt(args[0]));
+			for (int i = 2; i < args.length; i++)
+			{
+				String option = args[i];
+				if (option.equals("-seed"))
+					generator.setSeed(Long.parseLong(args[++i]));
+				else if (option.equals("-airports"))
+					generator.setAirports(Integer.parseInt(args[++i]));
+				else if (option.equals("-departures"))
+					generator.setDepartures(Departures.valueOf(args[++i].toUpperCase()));
+				else if (option.equals("-span"))
+					generator.setSpan(Integer.parseInt(args[++i]));
+				else if (option.equals("-waves"))
+					generator.setWaves(Integer.parseInt(args[++i]));
+				else if (option.equals("-chains"))
+				{
+					double fraction = Double.parseDouble(args[++i]);
+					int length = 5;
+					if (i + 1 < args.length && !args[i + 1].startsWith("-"))
+						length = Integer.parseInt(args[++i]);
+					generator.setChains(fraction, length);
+				}
+				else if (option.equals("-pattern"))
+				{
+					String name = args[++i];
+					Pattern pattern = name.equals("headon") ? Pattern.HEAD_ON : Pattern.valueOf(name.toUpperCase());
+					double fraction = 0.5;
+					if (i + 1 < args.length && !args[i + 1].startsWith("-"))
+						fraction = Double.parseDouble(args[++i]);
+					generator.setPattern(pattern, fraction);
+				}
+				else
+				{
+					System.err.println("Error: unknown option " + option);
+					printUsage();
+					System.exit(1);
+				}
+			}
+			generator.write(output);
+		} catch (IllegalArgumentException e)
+		{
+			// also catches malformed numbers
+			System.err.println("Error: " + e.getMessage());
+			printUsage();
+			System.exit(1);
+		} catch (ArrayIndexOutOfBoundsException e)
+		{
+			System.err.println("Error: missing value for " + args[args.length - 1]);
+			printUsage();
+			System.exit(1);
+		} catch (IOException e)
+		{
+			System.err.println("Error: could not write " + output + ": " + e.getMessage());
+			System.exit(1);
+		}
+	}
+}
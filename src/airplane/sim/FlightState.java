@@ -0,0 +1,351 @@
+package airplane.sim;
+
+import java.util.ArrayList;
+
+/**
+ * The state of every flight in a game, stored as one primitive array per
+ * field rather than as a list of Plane objects.
+ *
+ * GameEngine steps over these arrays directly. Plane objects are only needed
+ * for the Player API, so they are created the first time getPlanes() is
+ * called and are then refreshed in place by syncViews(); the per-round loop
+ * itself does not allocate.
+ *
+ * The flights in the air are also kept in a set that move() adds to and
+ * land() removes from in constant time, so that work that only concerns
+ * airborne flights (landing, separation) does not have to look at the rest
+ * of the schedule.
+ *
+ * Once GameEngine has taken a snapshot, move() and land() save a flight's
+ * state in the journal the first time it changes after the snapshot, and
+ * undo() puts it back; see UndoJournal.
+ */
+public final class FlightState {
+
+	private final int size;
+
+	final double[] x;
+	final double[] y;
+	final double[] bearing;
+	final double[] destX;
+	final double[] destY;
+	final int[] departure;
+	private final ArrayList<ArrayList<Integer>> dependencies;
+
+	private ArrayList<Plane> planes;
+	private DependencyIndex dependencyIndex;
+	// null unless the flights came from a schedule
+	private int[] destinationId;
+
+	// the airborne flights in no particular order, and where each is in that list (-1 if not airborne)
+	private final int[] airborne;
+	private final int[] airbornePosition;
+	private int airborneCount;
+
+	// null until the first snapshot
+	private UndoJournal journal;
+
+	public FlightState(int size) {
+		this.size = size;
+		x = new double[size];
+		y = new double[size];
+		bearing = new double[size];
+		destX = new double[size];
+		destY = new double[size];
+		departure = new int[size];
+		dependencies = new ArrayList<ArrayList<Integer>>(size);
+		airborne = new int[size];
+		airbornePosition = new int[size];
+		for (int i = 0; i < size; i++) {
+			bearing[i] = -1;
+			dependencies.add(null);
+			airbornePosition[i] = -1;
+		}
+	}
+
+	/**
+	 * Sets up flight i on the ground at its origin.
+	 */
+	public void setFlight(int i, double originX, double originY, double destinationX, double destinationY,
+			int departureTime, ArrayList<Integer> dependencyList) {
+		x[i] = originX;
+		y[i] = originY;
+		bearing[i] = -1;
+		removeAirborne(i);
+		destX[i] = destinationX;
+		destY[i] = destinationY;
+		departure[i] = departureTime;
+		dependencies.set(i, dependencyList);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public double getX(int i) {
+		return x[i];
+	}
+
+	public double getY(int i) {
+		return y[i];
+	}
+
+	public double getBearing(int i) {
+		return bearing[i];
+	}
+
+	public double getDestinationX(int i) {
+		return destX[i];
+	}
+
+	public double getDestinationY(int i) {
+		return destY[i];
+	}
+
+	public int getDepartureTime(int i) {
+		return departure[i];
+	}
+
+	public boolean isAirborne(int i) {
+		return bearing[i] != -1 && bearing[i] != -2;
+	}
+
+	/**
+	 * Returns the number of flights in the air.
+	 */
+	public int getAirborneCount() {
+		return airborneCount;
+	}
+
+	/**
+	 * Returns the k-th flight in the air, for k from 0 to getAirborneCount()-1.
+	 * The order is arbitrary, and changes when a flight lands; a flight that
+	 * lands while iterating from the end down moves only already visited
+	 * flights.
+	 */
+	public int getAirborne(int k) {
+		return airborne[k];
+	}
+
+	/**
+	 * Returns the distance from flight i to its destination, computed the same
+	 * way as Point2D.distance.
+	 */
+	public double distanceToDestination(int i) {
+		double dx = x[i] - destX[i];
+		double dy = y[i] - destY[i];
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+
+	/**
+	 * Moves flight i one step along newBearing, with the same rules as
+	 * Plane.move.
+	 *
+	 * @return Plane.LEGAL_MOVE, Plane.ILLEGAL_MOVE or Plane.OUT_OF_BOUNDS
+	 */
+	public int move(int i, double newBearing) {
+		double current = bearing[i];
+		// if the newBearing is -1, then leave it on the ground
+		if (current == -1 && newBearing == -1)
+			return Plane.LEGAL_MOVE;
+		// same if it's -2
+		else if (current == -2 && newBearing == -2)
+			return Plane.LEGAL_MOVE;
+		// but you can't change yourself to -1 or -2
+		else if (newBearing == -1 || newBearing == -2)
+			return Plane.ILLEGAL_MOVE;
+
+		if (Plane.checkTurn(current, newBearing) != Plane.NO_VIOLATION)
+			return Plane.ILLEGAL_MOVE;
+
+		// this allows bearing to be equal to 360, in which case we treat it as 0
+		double radialBearing = newBearing % 360;
+
+		radialBearing = (radialBearing - 90) * Math.PI / 180;
+		double newx = x[i] + (Math.cos(radialBearing) * Plane.VELOCITY);
+		double newy = y[i] + (Math.sin(radialBearing) * Plane.VELOCITY);
+
+		if (Plane.checkBounds(newx, newy) != Plane.NO_VIOLATION)
+			return Plane.OUT_OF_BOUNDS;
+
+		if (journal != null && journal.needsSave(i))
+			save(i);
+		x[i] = newx;
+		y[i] = newy;
+		bearing[i] = newBearing;
+		addAirborne(i);
+		return Plane.LEGAL_MOVE;
+	}
+
+	/**
+	 * Puts flight i at (x, y) with the given bearing, as when restoring a
+	 * saved state. Its Plane view is not updated; call syncViews() when all
+	 * flights are set.
+	 */
+	void setPosition(int i, double x, double y, double bearing) {
+		this.x[i] = x;
+		this.y[i] = y;
+		this.bearing[i] = bearing;
+		if (isAirborne(i))
+			addAirborne(i);
+		else
+			removeAirborne(i);
+	}
+
+	/**
+	 * Returns the rule that move(i, newBearing) would break, or
+	 * Plane.NO_VIOLATION; see Plane.checkMove.
+	 */
+	public int checkMove(int i, double newBearing) {
+		return Plane.checkMove(x[i], y[i], bearing[i], newBearing);
+	}
+
+	/**
+	 * Marks flight i as landed, and updates its Plane view if there is one.
+	 */
+	public void land(int i) {
+		if (journal != null && journal.needsSave(i))
+			save(i);
+		bearing[i] = -2;
+		removeAirborne(i);
+		if (planes != null) {
+			Plane p = planes.get(i);
+			p.x = x[i];
+			p.y = y[i];
+			p.bearing = -2;
+		}
+	}
+
+	/*
+	 * Returns the journal, creating it if necessary.
+	 */
+	UndoJournal getJournal() {
+		if (journal == null)
+			journal = new UndoJournal(size);
+		return journal;
+	}
+
+	/*
+	 * Closes every snapshot, e.g. because the flights have been set by other
+	 * means than move() and land().
+	 */
+	void discardJournal() {
+		if (journal != null)
+			journal.clear();
+	}
+
+	private void save(int i) {
+		long count = planes == null ? 0 : planes.get(i).getFlightHistory().getCount();
+		journal.save(i, x[i], y[i], bearing[i], count);
+	}
+
+	/*
+	 * Puts the latest flight in the journal back as it was saved, with its
+	 * Plane view and history, and removes it from the journal.
+	 */
+	void undo() {
+		int i = journal.lastFlight();
+		setPosition(i, journal.lastX(), journal.lastY(), journal.lastBearing());
+		if (planes != null) {
+			Plane p = planes.get(i);
+			p.x = x[i];
+			p.y = y[i];
+			p.bearing = bearing[i];
+			p.getFlightHistory().truncate(journal.lastHistoryCount());
+		}
+		journal.pop();
+	}
+
+	private void addAirborne(int i) {
+		if (airbornePosition[i] >= 0)
+			return;
+		airbornePosition[i] = airborneCount;
+		airborne[airborneCount++] = i;
+	}
+
+	private void removeAirborne(int i) {
+		int k = airbornePosition[i];
+		if (k < 0)
+			return;
+		int last = airborne[--airborneCount];
+		airborne[k] = last;
+		airbornePosition[last] = k;
+		airbornePosition[i] = -1;
+	}
+
+	/**
+	 * Sets the dependency index that the Plane views refer to.
+	 */
+	public void setDependencyIndex(DependencyIndex dependencyIndex) {
+		this.dependencyIndex = dependencyIndex;
+	}
+
+	/**
+	 * Sets the destination ids that the Plane views report, one per flight;
+	 * see FlightSchedule.getDestinationIds().
+	 */
+	public void setDestinationIds(int[] destinationId) {
+		this.destinationId = destinationId;
+	}
+
+	/**
+	 * Returns a Plane for each flight, creating them on the first call. The
+	 * same objects are returned every time; call syncViews() to bring them up
+	 * to date after the arrays have changed.
+	 */
+	public ArrayList<Plane> getPlanes() {
+		if (planes == null) {
+			planes = new ArrayList<Plane>(size);
+			for (int i = 0; i < size; i++) {
+				Plane p = new Plane(x[i], y[i], destX[i], destY[i], departure[i], dependencies.get(i));
+				p.id = i;
+				p.bearing = bearing[i];
+				p.dependencyIndex = dependencyIndex;
+				if (destinationId != null)
+					p.destinationId = destinationId[i];
+				planes.add(p);
+			}
+		}
+		return planes;
+	}
+
+	/**
+	 * Returns the Plane for flight i, creating the views if necessary.
+	 */
+	public Plane getPlane(int i) {
+		return getPlanes().get(i);
+	}
+
+	/**
+	 * Copies the current positions and bearings of the flights in the air into
+	 * their Plane views, if any have been created. Flights on the ground do not
+	 * move, and land() updates the views of flights that land, so after a
+	 * round this brings every view up to date.
+	 */
+	public void syncAirborneViews() {
+		if (planes == null)
+			return;
+		for (int k = 0; k < airborneCount; k++) {
+			int i = airborne[k];
+			Plane p = planes.get(i);
+			p.x = x[i];
+			p.y = y[i];
+			p.bearing = bearing[i];
+		}
+	}
+
+	/**
+	 * Copies the current positions and bearings into the Plane views, if any
+	 * have been created.
+	 */
+	public void syncViews() {
+		if (planes == null)
+			return;
+		for (int i = 0; i < size; i++) {
+			Plane p = planes.get(i);
+			p.x = x[i];
+			p.y = y[i];
+			p.bearing = bearing[i];
+		}
+	}
+}
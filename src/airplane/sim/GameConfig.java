@@ -10,7 +10,10 @@ import java.io.FileFilter;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Random;
 
@@ -32,9 +35,12 @@ public class GameConfig implements Cloneable{
 		r.selectedBoard = this.selectedBoard;
 		r.playerClass = this.playerClass;
 		r.boardFile =this.boardFile;
+		r.threshold = this.threshold;
+		r.historyPolicy = this.historyPolicy;
+		r.historyLength = this.historyLength;
+		r.playerParameters.putAll(this.playerParameters);
 		return r;
 	}
-	static int gameDelay = 100;
 	int number_of_rounds;
 	int current_round;
 	public int num_airplanes = 1000;
@@ -42,7 +48,7 @@ public class GameConfig implements Cloneable{
 	int max_rounds = max_rounds_max;
 	private ArrayList<Class<Player>> availablePlayers;
 	private Class<Player> playerClass;
-	public static Random random;
+	private Random random;
 	private ArrayList<File> availableBoards;
 	private Properties props;
 	private String confFileName;
@@ -50,8 +56,30 @@ public class GameConfig implements Cloneable{
 	private File boardFile;
 	int num_planes = 5;
 	int num_collectors = 1;
-	public static int threshold = 50;
-	public static int SAFETY_RADIUS = 5;
+	private int threshold = 50;
+	// what the engine records of each plane's path, see FlightHistory
+	private FlightHistory.Policy historyPolicy = FlightHistory.Policy.COMPRESSED;
+	private int historyLength = 1000;
+	// values for the player's Tunable fields, see PlayerParameters
+	private Map<String, Double> playerParameters = new LinkedHashMap<String, Double>();
+	public static final int SAFETY_RADIUS = 5;
+
+	/**
+	 * Returns this configuration's random number generator, seeded from
+	 * airplane.seed if it is set. Every copy made with clone() gets its own
+	 * generator, so games running side by side do not share one.
+	 */
+	public Random getRandom() {
+		return random;
+	}
+
+	public int getThreshold() {
+		return threshold;
+	}
+
+	public void setThreshold(int threshold) {
+		this.threshold = threshold;
+	}
 
 	public Class<Player> getPlayerClass() {
 		return playerClass;
@@ -74,6 +102,49 @@ public class GameConfig implements Cloneable{
 
 	public static final int max_rounds_max = 5000;
 
+	public FlightHistory.Policy getHistoryPolicy() {
+		return historyPolicy;
+	}
+
+	public void setHistoryPolicy(FlightHistory.Policy historyPolicy) {
+		this.historyPolicy = historyPolicy;
+	}
+
+	public int getHistoryLength() {
+		return historyLength;
+	}
+
+	public void setHistoryLength(int historyLength) {
+		this.historyLength = historyLength;
+	}
+
+	/**
+	 * Sets the Tunable field of the given name to value in every player this
+	 * configuration creates; GameEngine rejects the game if the player has no
+	 * such field or the value is out of its range.
+	 */
+	public void setPlayerParameter(String name, double value) {
+		playerParameters.put(name, value);
+	}
+
+	public void setPlayerParameters(Map<String, Double> parameters) {
+		playerParameters.clear();
+		playerParameters.putAll(parameters);
+	}
+
+	public Map<String, Double> getPlayerParameters() {
+		return Collections.unmodifiableMap(playerParameters);
+	}
+
+	/**
+	 * Returns a new, empty history for a plane, as set by airplane.history
+	 * (off, ring or compressed; compressed if it is not set) and, for ring,
+	 * airplane.history.length.
+	 */
+	public FlightHistory newFlightHistory() {
+		return FlightHistory.create(historyPolicy, historyLength);
+	}
+
 	public int getNumPlanes() {
 		return num_planes;
 	}
@@ -162,7 +233,11 @@ public class GameConfig implements Cloneable{
 		}
 		
 		File sourceFolder = new File("out/production/su24-airplane/airplane/");
-		for(File f : sourceFolder.listFiles())
+		// the compiled classes are not there when running outside the IDE (e.g. headless)
+		File[] groupFolders = sourceFolder.listFiles();
+		if (groupFolders == null)
+			groupFolders = new File[0];
+		for(File f : groupFolders)
 		{
 			if(f.getName().length() == 2 && f.getName().substring(0,1).equals("g"))
 			{
@@ -228,11 +303,32 @@ public class GameConfig implements Cloneable{
 		}
 		else
 			random = new Random();
+		s = props.getProperty("airplane.history");
+		if (s != null) {
+			try {
+				historyPolicy = FlightHistory.Policy.valueOf(s.trim().toUpperCase());
+			} catch (IllegalArgumentException e) {
+				log.error("[Configuration] Unknown history policy: " + s);
+			}
+		}
+		s = props.getProperty("airplane.history.length");
+		if (s != null) {
+			try {
+				historyLength = Integer.parseInt(s.trim());
+			} catch (NumberFormatException e) {
+				log.error("[Configuration] Invalid history length: " + s);
+			}
+			if (historyLength < 1) {
+				log.error("[Configuration] History length must be at least 1: " + s);
+				historyLength = 1;
+			}
+		}
 		readBoards();
 	}
 
 	/**
-	 * Read all xml files from the board directory. Accept them only if valid.
+	 * Read all flight files from the board directory, both text (.txt) and
+	 * binary (see FlightScheduleFile). Accept them only if valid.
 	 * 
 	 */
 	public void readBoards() {
@@ -250,7 +346,7 @@ public class GameConfig implements Cloneable{
 
 		File[] files = dir.listFiles(new FileFilter() {
 			public boolean accept(File pathname) {
-				return pathname.getName().toLowerCase().endsWith(".txt");
+				return pathname.getName().toLowerCase().endsWith(".txt") || FlightScheduleFile.isBinary(pathname);
 			}
 		});
 		/* Board b = new Board(1,1); */
@@ -274,6 +370,14 @@ public class GameConfig implements Cloneable{
 		return boardFile;
 	}
 
+	/**
+	 * Returns the player classes named in the configuration file, plus any
+	 * found in the compiled output folder.
+	 */
+	public ArrayList<Class<Player>> getPlayerList() {
+		return new ArrayList<Class<Player>>(availablePlayers);
+	}
+
 	public ComboBoxModel getPlayerListModel() {
 		DefaultComboBoxModel m = new DefaultComboBoxModel();
 		for (Class c : availablePlayers) {
@@ -5,11 +5,16 @@
 
 package airplane.sim;
 
+import java.io.File;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.Random;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
 import org.apache.log4j.Logger;
+
+import airplane.sim.GameListener.GameUpdateType;
 /**
  *
  * @author Satyajeet
@@ -17,18 +22,117 @@ import org.apache.log4j.Logger;
 public class GameController {
 
 
-    ArrayList<Boolean> isplayerdone;
     private Logger log = Logger.getLogger(GameController.class);
+    private int parallelism;
 
+    public GameController() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public GameController(int parallelism) {
+        this.parallelism = parallelism;
+    }
 
-    // If gameover this function will return a (-1)
+    /**
+     * Plays one game with the player and board selected in the configuration,
+     * in an engine of its own, and returns how it went.
+     */
     public GameResult GamePlay(GameConfig gc_local)
     {
-        isplayerdone = new ArrayList<Boolean>();
-        GameResult gameresult = new GameResult(0, new ArrayList<Integer>());
-        
-       return gameresult;
+        GameEngine engine = new GameEngine(gc_local);
+        HeadlessRunner runner = new HeadlessRunner(engine);
+        GameUpdateType outcome;
+        try {
+            outcome = runner.runGame();
+        } catch (Throwable e) {
+            // anything the player throws, including an Error such as a
+            // StackOverflowError, ends only its own game, as in GameSweep
+            log.error("Game " + gc_local.getPlayerClass().getName() + " on " + gc_local.getSelectedBoard() + " crashed: " + e);
+            return new GameResult(gc_local.getPlayerClass(), gc_local.getSelectedBoard(), false,
+                    engine.getCurrentRound(), engine.getPower(), engine.getDelay(), "Player crashed: " + e);
+        }
+
+        return resultOf(gc_local, engine, outcome);
+    }
+
+    /*
+     * Returns the result of a game that HeadlessRunner.runGame played to the
+     * given outcome.
+     */
+    static GameResult resultOf(GameConfig config, GameEngine engine, GameUpdateType outcome)
+    {
+        String error = engine.getErrorMessage();
+        if (outcome == null)
+            error = "Did not finish within " + config.getMaxRounds() + " rounds";
+        else if (outcome == GameUpdateType.ERROR && error == null)
+            error = "Game could not be set up";
+        return new GameResult(config.getPlayerClass(), config.getSelectedBoard(), outcome == GameUpdateType.GAMEOVER,
+                engine.getCurrentRound(), engine.getPower(), engine.getDelay(), error);
+    }
+
+    /**
+     * Plays every configured player against every board in the board
+     * directory. Each game runs in its own GameEngine on a work-stealing pool.
+     *
+     * @return one result per game, ordered by player and then by board
+     */
+    public List<GameResult> playTournament(GameConfig config)
+    {
+        List<Callable<GameResult>> games = new ArrayList<Callable<GameResult>>();
+        for (Class<Player> player : config.getPlayerList()) {
+            for (File board : config.getBoardList()) {
+                final GameConfig gameConfig = (GameConfig) config.clone();
+                gameConfig.setPlayerClass(player);
+                gameConfig.setSelectedBoard(board);
+                games.add(new Callable<GameResult>() {
+                    public GameResult call() {
+                        return GamePlay(gameConfig);
+                    }
+                });
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<ForkJoinTask<GameResult>> tasks = new ArrayList<ForkJoinTask<GameResult>>();
+            for (Callable<GameResult> game : games)
+                tasks.add(pool.submit(game));
+            List<GameResult> results = new ArrayList<GameResult>();
+            for (ForkJoinTask<GameResult> task : tasks)
+                results.add(task.join());
+            return results;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private final static void printUsage()
+    {
+        System.err.println("Usage: GameController [config file] [threads]");
+    }
+
+    public static final void main(String[] args)
+    {
+        String configFile = "airplane.xml";
+        int threads = Runtime.getRuntime().availableProcessors();
+        if (args.length > 2) {
+            printUsage();
+            System.exit(1);
+        }
+        if (args.length >= 1)
+            configFile = args[0];
+        if (args.length >= 2)
+            threads = Integer.parseInt(args[1]);
+        GameConfig config = new GameConfig(configFile);
+        GameController controller = new GameController(threads);
+
+        long start = System.currentTimeMillis();
+        List<GameResult> results = controller.playTournament(config);
+        System.out.println("board;player;result;round;power;delay;error");
+        for (GameResult result : results)
+            System.out.println(result);
+        System.out.println("Played " + results.size() + " games in " + (System.currentTimeMillis() - start) + " ms");
     }
 
 
-}
\ No newline at end of file
+}
@@ -7,7 +7,6 @@
 package airplane.sim;
 
 import java.awt.geom.Line2D;
-import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
@@ -33,8 +32,10 @@ import javax.imageio.ImageWriter;
 import javax.imageio.stream.ImageOutputStream;
 
 
+import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
 import org.apache.log4j.PropertyConfigurator;
+import org.apache.log4j.xml.DOMConfigurator;
 
 import airplane.sim.GameListener.GameUpdateType;
 import airplane.sim.ui.GUI;;
@@ -49,15 +50,41 @@ public final class GameEngine
 	// private PlayerWrapper player;
 	private int round = 0;
 	public GUI gui;
+	private String errorMessage;
 	private ArrayList<GameListener> gameListeners;
 	private Logger log;
 	boolean initDone = false;
 	private static double EPSILON = 1*Math.pow(10, -10);
-	static ArrayList<Plane> planes;
+	private CollisionGrid collisionGrid;
+	// flights whose origin is within landing distance of their destination
+	private int[] groundedAtDestination;
+	// where the games are recorded to, if anywhere, and the log of the game
+	// being recorded
+	private File replayFile;
+	private int keyframeInterval = ReplayLog.DEFAULT_KEYFRAME_INTERVAL;
+	private ReplayLog.Writer recorder;
+	// the log whose bearings are played instead of asking a player
+	private ReplayLog replay;
+	// while seek() replays rounds, the listeners are only told the last thing
+	// that happened
+	private boolean seeking;
+	private GameUpdateType seekUpdate;
+	// the bearings step(bearings) plays instead of asking the player
+	private double[] givenBearings;
 	
 	public boolean isSimulated = false;
 	static {
-		PropertyConfigurator.configure("logger.properties");
+		// logger.xml logs through an AsyncAppender; the shutdown hook writes
+		// out whatever is still queued when the program ends
+		if (new File("logger.xml").exists())
+			DOMConfigurator.configure("logger.xml");
+		else
+			PropertyConfigurator.configure("logger.properties");
+		Runtime.getRuntime().addShutdownHook(new Thread("log4j shutdown") {
+			public void run() {
+				LogManager.shutdown();
+			}
+		});
 	}
 	public GameEngine(GameConfig config)
 	{
@@ -123,6 +150,15 @@ public final class GameEngine
 		return board.planesLanded;
 	}
 	
+	/**
+	 * Returns the message describing why the last game stopped with an error,
+	 * or null if no error has occurred since the game was set up.
+	 */
+	public String getErrorMessage()
+	{
+		return errorMessage;
+	}
+	
 	
 	protected double distance(double x1, double y1, double x2, double y2) {
 		double xdist = x1 - x2;
@@ -131,145 +167,173 @@ public final class GameEngine
 	}
 
 	
+	private void land(FlightState flights, int i)
+	{
+		flights.land(i);
+		board.departures.land(i);
+		board.bearings[i] = -2;
+		board.planesLanded++;
+		if (log.isInfoEnabled())
+			log.info("Plane #" + i + " landed at time " + round);
+	}
+
+	/*
+	 * Prints why flight i could not move along newBearing. The checks
+	 * themselves print nothing, so that players can try moves out cheaply.
+	 */
+	private void printViolation(FlightState flights, int i, double newBearing)
+	{
+		int violation = flights.checkMove(i, newBearing);
+		System.err.println("ERROR! " + Plane.describeViolation(violation, flights.x[i], flights.y[i], flights.bearing[i], newBearing));
+	}
+
 	public boolean step()
 	{
+		FlightState flights = board.getFlightState();
 		try
 		{			
-			// remember previous positions of the planes to detect illegal moves
-			int size = board.getPlanes().size();
-			double xCoords[] = new double[size];
-			double yCoords[] = new double[size];
-			Object[] planeArray = board.getPlanes().toArray();
-			for (int i = 0; i < planeArray.length; i++) {
-				Plane l = (Plane)planeArray[i];
-				xCoords[i] = l.getX();
-				yCoords[i] = l.getY();
-			}
+			int size = flights.size();
+			// a replay ends where its log does
+			if (replay != null && !readReplayBearings(round + 1))
+				return false;
 			round++;
+			board.departures.advanceTo(round);
 
 			
 			// ask the Player for the new position of the planes
-			board.bearings = curPlayer.updatePlanes(board.getPlanes(), round, board.bearings);
+			ArrayList<Plane> planes = flights.getPlanes();
+			if (givenBearings != null)
+			{
+				if (givenBearings.length == board.bearings.length)
+					System.arraycopy(givenBearings, 0, board.bearings, 0, givenBearings.length);
+				else
+					board.bearings = givenBearings;
+			}
+			else if (replay == null)
+				board.bearings = curPlayer.updatePlanes(planes, round, board.bearings);
 
 			// NOTE: at this point, the Plane's bearings have not been updated!
-			// that doesn't happen until we call move on each Plane!
-			
-			// make sure no plane took off too early
-			for (int i = 0; i < planes.size(); i++) {
-				if (board.bearings[i] > -1) {
-					if (planes.get(i).getDepartureTime() > round) {
-						System.err.println("ERROR! plane took off before its departure time!");
-						gui.setErrorMessage("Error! Plane took off before its departure time!");
-						notifyListeners(GameUpdateType.ERROR);
-						return false;
-					}
-					/*
-					else if (planes.get(i).dependenciesHaveLanded(board.bearings) == false) {
-						System.err.println("ERROR! plane took off before its dependency landed!");
-						gui.setErrorMessage("Error! Plane took off before its dependency landed!");
-						notifyListeners(GameUpdateType.ERROR);
-						return false;
-					}
-
-					 */
-				}
-			}
+			// that doesn't happen until we call move on each flight!
 			
 			// make sure there's no monkey business
 			if (planes.size() != size || board.bearings.length != size) {
 				System.err.println("ERROR! wrong number of planes!");
-				notifyListeners(GameUpdateType.ERROR);
+				reportError("Error! Wrong number of planes!");
 				return false;
 			}
-			else {
-				for (int i = 0; i < planes.size(); i++) {
-					Plane p = planes.get(i);
-					// only move a player that's in the air
-					if (board.bearings[i] >= 0) {
-						int move = p.move(board.bearings[i]); 
-						if (move == Plane.LEGAL_MOVE) {
-							if (distance(p.getX(), p.getY(), xCoords[i], yCoords[i]) > p.getVelocity() + EPSILON) {
-								System.err.println("ERROR! Plane moved by more than DISTANCE!");
-								gui.setErrorMessage("Error! Plane " + i + " moved by more than allowable distance!");
-								notifyListeners(GameUpdateType.ERROR);
-								return false;
-							}
-							board.powerUsed++;
-							log.trace("Moved plane " + i + " to: (" + p.getX() + ", " + p.getY() + "); bearing = " + p.getBearing());
-							p.addToHistory(new Point2D.Double(p.getX(), p.getY()));
-						}
-						else if (move == Plane.ILLEGAL_MOVE) {
-							System.err.println("ERROR! illegal move!");
-							gui.setErrorMessage("Error! Plane " + i + " tried to make illegal move from bearing " + p.getBearing() + " to " + board.bearings[i]);
-							notifyListeners(GameUpdateType.ERROR);
-							return false;
-						}
-						else if (move == Plane.OUT_OF_BOUNDS) {
-							System.err.println("ERROR! out of bounds!");
-							gui.setErrorMessage("Error! Plane " + i + " tried to go out of bounds!");
-							notifyListeners(GameUpdateType.ERROR);
-							return false;
-						}
+			if (recorder != null)
+				recordBearings();
+
+			/*
+			for (int i = 0; i < size; i++) {
+				if (board.bearings[i] > -1 && planes.get(i).dependenciesHaveLanded(board.bearings) == false) {
+					System.err.println("ERROR! plane took off before its dependency landed!");
+					reportError("Error! Plane took off before its dependency landed!");
+					return false;
+				}
+			}
+			 */
+			
+			// make sure no plane took off too early, before anything moves;
+			// only a flight leaving the ground this round can have, and
+			// there is nothing to check once every flight is due
+			if (board.departures.getNextDepartureTime() != Integer.MAX_VALUE) {
+				for (int i = 0; i < size; i++) {
+					if (board.bearings[i] > -1 && flights.bearing[i] == -1 && flights.getDepartureTime(i) > round) {
+						System.err.println("ERROR! plane took off before its departure time!");
+						reportError("Error! Plane took off before its departure time!");
+						return false;
 					}
-					// see if it's been delayed on the ground
-					else if (board.bearings[i] == -1) {
-						if (p.getDepartureTime() <= round) {
-							board.delay++;
+				}
+			}
+
+			for (int i = 0; i < size; i++) {
+				double bearing = board.bearings[i];
+				// only move a player that's in the air
+				if (bearing >= 0) {
+					// remember the previous position of the plane to detect illegal moves
+					double oldX = flights.x[i];
+					double oldY = flights.y[i];
+					double oldBearing = flights.bearing[i];
+					int move = flights.move(i, bearing); 
+					if (move == Plane.LEGAL_MOVE) {
+						if (distance(flights.x[i], flights.y[i], oldX, oldY) > Plane.VELOCITY + EPSILON) {
+							System.err.println("ERROR! Plane moved by more than DISTANCE!");
+							reportError("Error! Plane " + i + " moved by more than allowable distance!");
+							return false;
 						}
+						if (oldBearing == -1)
+							board.departures.remove(i);
+						else if (oldBearing == -2)
+							board.departures.relaunch(i);
+						board.powerUsed++;
+						if (log.isTraceEnabled())
+							log.trace("Moved plane " + i + " to: (" + flights.x[i] + ", " + flights.y[i] + "); bearing = " + flights.bearing[i]);
+						planes.get(i).addToHistory(flights.x[i], flights.y[i]);
 					}
-					else if (board.bearings[i] < -2) {
+					else if (move == Plane.ILLEGAL_MOVE) {
+						printViolation(flights, i, bearing);
 						System.err.println("ERROR! illegal move!");
-						gui.setErrorMessage("Error! Plane " + i + " tried to make illegal move from bearing " + p.getBearing() + " to " + board.bearings[i]);
-						notifyListeners(GameUpdateType.ERROR);
+						reportError("Error! Plane " + i + " tried to make illegal move from bearing " + oldBearing + " to " + bearing);
 						return false;
 					}
+					else if (move == Plane.OUT_OF_BOUNDS) {
+						printViolation(flights, i, bearing);
+						System.err.println("ERROR! out of bounds!");
+						reportError("Error! Plane " + i + " tried to go out of bounds!");
+						return false;
+					}
+				}
+				// see if it's been delayed on the ground
+				else if (bearing == -1) {
+					if (flights.getDepartureTime(i) <= round) {
+						board.delay++;
+					}
+				}
+				else if (bearing < -2) {
+					System.err.println("ERROR! illegal move!");
+					reportError("Error! Plane " + i + " tried to make illegal move from bearing " + flights.bearing[i] + " to " + bearing);
+					return false;
 				}
 			}
 			//System.err.println("Power = " + board.powerUsed + "; round = " + round);
 			
-			board.setPlanes(planes);
-
-			// Check if plane has landed
-			for(int i=0; i<board.getPlanes().size(); i++)
+			// Check if plane has landed; only planes in the air can, apart from
+			// those that are still waiting at an origin next to their destination
+			for (int k = flights.getAirborneCount() - 1; k >= 0; k--)
 			{
-				Plane p = board.getPlanes().get(i);
-				if(p.getBearing() != -2)
-				{
-					// if it's within 0.5 of the destination, that's good enough
-    				if (p.getLocation().distance(p.getDestination()) <= 0.5) {
-						p.setBearing(-2);
-						board.bearings[i] = -2;
-						board.planesLanded++;
-						log.info("Plane #" + i + " landed at time " + round);
-					}
+				int i = flights.getAirborne(k);
+				// if it's within 0.5 of the destination, that's good enough
+				if (flights.distanceToDestination(i) <= 0.5) {
+					land(flights, i);
 				}
 			}
+			for (int i : groundedAtDestination)
+			{
+				if (flights.bearing[i] == -1)
+					land(flights, i);
+			}
 			// make sure planes aren't too close to each other
-			for(Plane l1 : planes)
+			collisionGrid.addAirborne(flights);
+			if (collisionGrid.hasConflict())
 			{
-				for(Plane l2: planes)
-				{
-					if (!l1.equals(l2) && l1.getBearing() != -2 && l1.getBearing() != -1 && l2.getBearing() != -2 && l2.getBearing() != -1) 
-					{
-						if (l1.getLocation().distance(l2.getLocation()) < GameConfig.SAFETY_RADIUS)
-						{
-							System.err.println("Error! Planes are too close!");
-							gui.setErrorMessage("Error! Planes are too close!");
-							notifyListeners(GameUpdateType.ERROR);
-							return false;
-						}
-					}
-				}
+				System.err.println("Error! Planes are too close!");
+				reportError("Error! Planes are too close!");
+				return false;
 			}
 			
+			flights.syncAirborneViews();
+			if (recorder != null && round % recorder.getKeyframeInterval() == 0 && board.planesLanded != size)
+				recordKeyframe();
 		}
 		catch(ConcurrentModificationException e)
 		{
 			
 		}
 		notifyListeners(GameUpdateType.MOVEPROCESSED);
-		if(board.planesLanded == board.planes.size()) {
+		if(board.planesLanded == flights.size()) {
 			//GAME OVER!
+			stopRecording();
 			notifyListeners(GameUpdateType.GAMEOVER);
 			return false;
 		}
@@ -277,6 +341,151 @@ public final class GameEngine
 		return true;
 	}
 
+	/**
+	 * Plays the next round with the given bearings instead of asking the
+	 * player, e.g. to try out bearings from a snapshot; see snapshot().
+	 */
+	public boolean step(double[] bearings)
+	{
+		if (replay != null)
+			throw new IllegalStateException("a replay plays the bearings in its log");
+		givenBearings = bearings;
+		try
+		{
+			return step();
+		} finally
+		{
+			givenBearings = null;
+		}
+	}
+
+	/**
+	 * Remembers the state of the game at the end of the current round: the
+	 * flights with their histories, the departure schedule, the landed
+	 * counters, the power used and the delay. Nothing is copied until a
+	 * flight changes, and then only that flight; restore() puts back only
+	 * the flights that have changed since.
+	 *
+	 * The player is not part of the snapshot, so a search that goes back and
+	 * forth should play its bearings with step(bearings).
+	 *
+	 * Until the snapshot is closed, every round saves the flights that move,
+	 * so call release() once it is no longer needed.
+	 */
+	public Snapshot snapshot()
+	{
+		FlightState flights = board.getFlightState();
+		if (flights == null)
+			throw new IllegalStateException("no game has been set up");
+		UndoJournal journal = flights.getJournal();
+		int id = journal.mark();
+		return new Snapshot(flights, id, journal.size(), round, board.powerUsed, board.delay, board.planesLanded,
+				errorMessage);
+	}
+
+	/**
+	 * Puts the game back as it was when the snapshot was taken. The
+	 * snapshot and those taken before it can be restored again; those taken
+	 * after it are closed. Recording stops, and the listeners are not told;
+	 * call notifyRepaint() to redraw.
+	 *
+	 * @throws IllegalArgumentException if the snapshot is not of the current
+	 *         game, or has been closed
+	 */
+	public void restore(Snapshot snapshot)
+	{
+		if (replay != null)
+			throw new IllegalStateException("use seek() to go back in a replay");
+		FlightState flights = board.getFlightState();
+		if (flights == null || snapshot.flights != flights || !flights.getJournal().isOpen(snapshot.id))
+			throw new IllegalArgumentException("the snapshot is not of the current game or has been closed");
+		stopRecording();
+		UndoJournal journal = flights.getJournal();
+		board.departures.retreatTo(snapshot.round);
+		while (journal.size() > snapshot.position)
+		{
+			int i = journal.lastFlight();
+			double from = flights.bearing[i];
+			flights.undo();
+			board.departures.rollBack(i, from, flights.bearing[i]);
+		}
+		journal.rolledBackTo(snapshot.id);
+		// the player is handed the flights' bearings, as after seek()
+		System.arraycopy(flights.bearing, 0, board.bearings, 0, flights.size());
+		round = snapshot.round;
+		board.powerUsed = snapshot.powerUsed;
+		board.delay = snapshot.delay;
+		board.planesLanded = snapshot.planesLanded;
+		errorMessage = snapshot.errorMessage;
+	}
+
+	/**
+	 * Closes the snapshot, which can then no longer be restored; the game is
+	 * not changed. Once no snapshot of the game is open, the saved state of
+	 * the flights is let go and rounds save nothing more. Releasing a
+	 * snapshot that is already closed does nothing.
+	 *
+	 * @throws IllegalArgumentException if the snapshot is not of the current
+	 *         game
+	 */
+	public void release(Snapshot snapshot)
+	{
+		FlightState flights = board.getFlightState();
+		if (flights == null || snapshot.flights != flights)
+			throw new IllegalArgumentException("the snapshot is not of the current game");
+		flights.getJournal().release(snapshot.id);
+	}
+
+	/**
+	 * The state of a game at the end of a round, as remembered by
+	 * GameEngine.snapshot(). It holds no copy of the flights; see
+	 * UndoJournal.
+	 */
+	public static final class Snapshot
+	{
+		private final FlightState flights;
+		private final int id;
+		private final int position;
+		private final int round;
+		private final int powerUsed;
+		private final int delay;
+		private final int planesLanded;
+		private final String errorMessage;
+
+		private Snapshot(FlightState flights, int id, int position, int round, int powerUsed, int delay,
+				int planesLanded, String errorMessage)
+		{
+			this.flights = flights;
+			this.id = id;
+			this.position = position;
+			this.round = round;
+			this.powerUsed = powerUsed;
+			this.delay = delay;
+			this.planesLanded = planesLanded;
+			this.errorMessage = errorMessage;
+		}
+
+		public int getRound()
+		{
+			return round;
+		}
+
+		public int getPower()
+		{
+			return powerUsed;
+		}
+
+		public int getDelay()
+		{
+			return delay;
+		}
+
+		public int getNumLanded()
+		{
+			return planesLanded;
+		}
+	}
+
 	private final static void printUsage()
 	{
 		System.err.println("Usage: GameEngine <config file>");
@@ -294,8 +503,28 @@ public final class GameEngine
 			it.next().gameUpdated(GameUpdateType.REPAINT);
 		}
 	}
+	/*
+	 * Records the error, passes it on to the GUI if there is one, and tells
+	 * the listeners that the game has stopped.
+	 */
+	private void reportError(String message)
+	{
+		stopRecording();
+		// let the GUI show where the planes were when the game stopped
+		if (board.getFlightState() != null)
+			board.getFlightState().syncViews();
+		errorMessage = message;
+		if (gui != null)
+			gui.setErrorMessage(message);
+		notifyListeners(GameUpdateType.ERROR);
+	}
 	private void notifyListeners(GameUpdateType type)
 	{
+		if (seeking)
+		{
+			seekUpdate = type;
+			return;
+		}
 		Iterator<GameListener> it = gameListeners.iterator();
 		while (it.hasNext())
 		{
@@ -324,47 +553,35 @@ public final class GameEngine
 	
 	public boolean setUpGame()
 	{
+		stopRecording();
+		replay = null;
 		try
 		{
 			round = 0;
+			errorMessage = null;
 			board.load(config.getSelectedBoard());
-			board.numPlanes = board.origins.size();
-			board.planes = new ArrayList<Plane>();
-			board.powerUsed = 0;
-			board.delay = 0;
-			
-			for (int i=0; i<board.numPlanes; i++) {
-				
-				Point2D.Double origin = board.origins.get(i);
-				Point2D.Double destination = board.destinations.get(i);
-				ArrayList<Integer> dependencies = board.dependencies.get(i);
-				
-				int depart = board.departureTimes.get(i);
-				Plane p = new Plane(origin.getX(), origin.getY(), destination.getX(), 
-						destination.getY(), depart, dependencies);
-				//log.info("Dependencies for plane " + i + " is " + dependencies);
-				
-				board.planes.add(p);
-			}
-			
-			board.planesLanded = 0;
-			board.setPlanes(board.planes); // TODO: do we need this?
+			FlightState flights = setUpFlights();
 			
 			initDone = false;
 			curPlayer = config.getPlayerClass().newInstance();
 			curPlayer.setMyConfig((GameConfig) config.clone());
+			curPlayer.setDepartures(board.departures);
+			try
+			{
+				PlayerParameters.apply(curPlayer, config.getPlayerParameters());
+			} catch (IllegalArgumentException e)
+			{
+				System.err.println("Error: " + e.getMessage());
+				log.error("Could not set the player's parameters: " + e.getMessage());
+				errorMessage = e.getMessage();
+				return false;
+			}
 			curPlayer.Register();
 			
-			curPlayer.startNewGame(board.planes);
+			curPlayer.startNewGame(flights.getPlanes());
 			
 			board.setInteractive(false);
 
-			ArrayList<Plane> planes= board.planes; 
-			if(planes == null)
-			{
-				System.err.println("Error: Player returned null for planes");
-				return false;
-			}
 			/*
 			if(planes.size() > config.getNumPlanes()) 
 			{
@@ -372,34 +589,11 @@ public final class GameEngine
 				return false;
 			}
 			*/
-			for(Plane l : planes)
-			{
-				if(l.getX() < 0 || l.getX() > 100 || l.getY() < 0 || l.getY() > 100)
-				{
-					System.err.println("Error: Planes are OOB");
-					System.err.println(l.getX() + ", " + l.getY());
-					return false;
-				}
-			}
-			board.setPlanes(planes);
-			this.planes = planes;
-
-			Set<Airport> airports = new HashSet<Airport>();
-			for (Plane p : board.planes) {
-				Airport a = new Airport(p.getDestination().getX(), p.getDestination().getY());
-				airports.add(a); 
-			}
-			
-			for (Airport a : airports) {
-				if(a.getX() < 0 || a.getX() > 100 || a.getY() < 0 || a.getY() > 100)
-				{
-					System.err.println("Error: Airport is OOB");
-					return false;
-				}
-			}
-			board.setAirports(airports); 
+			if (!checkFlights(flights))
+				return false;
 
 			initDone = true;
+			startRecording();
 		} catch (IOException e)
 		{
 			log.error("Exception: " + e);
@@ -415,6 +609,262 @@ public final class GameEngine
 		notifyListeners(GameUpdateType.STARTING);
 		return true;
 	}
+
+	/*
+	 * Sets up the flights of the board's schedule on the ground at their
+	 * origins, with everything the engine keeps about them.
+	 */
+	private FlightState setUpFlights()
+	{
+		FlightSchedule schedule = board.getSchedule();
+		board.numPlanes = schedule.size();
+		board.powerUsed = 0;
+		board.delay = 0;
+		
+		FlightState flights = new FlightState(board.numPlanes);
+		for (int i=0; i<board.numPlanes; i++) {
+			flights.setFlight(i, schedule.getOriginX(i), schedule.getOriginY(i), schedule.getDestinationX(i),
+					schedule.getDestinationY(i), schedule.getDepartureTime(i), schedule.getDependencies(i));
+			//log.info("Dependencies for plane " + i + " is " + dependencies);
+		}
+		board.setFlightState(flights);
+		flights.setDependencyIndex(board.getDependencyIndex());
+		flights.setDestinationIds(schedule.getDestinationIds());
+		board.departures = new DepartureSchedule(flights, board.getDependencyIndex().newCounters());
+		board.departures.advanceTo(round);
+		int atDestination = 0;
+		for (int i = 0; i < flights.size(); i++) {
+			if (flights.distanceToDestination(i) <= 0.5)
+				atDestination++;
+		}
+		groundedAtDestination = new int[atDestination];
+		for (int i = 0, k = 0; i < flights.size(); i++) {
+			if (flights.distanceToDestination(i) <= 0.5)
+				groundedAtDestination[k++] = i;
+		}
+		
+		board.planesLanded = 0;
+		collisionGrid = new CollisionGrid(GameConfig.SAFETY_RADIUS, board.getWidth(), board.getHeight());
+		for (Plane p : flights.getPlanes())
+			p.setFlightHistory(config.newFlightHistory());
+		return flights;
+	}
+
+	/*
+	 * Makes sure the flights and airports are on the board, and notes the
+	 * airports.
+	 */
+	private boolean checkFlights(FlightState flights)
+	{
+		for(int i = 0; i < flights.size(); i++)
+		{
+			if(flights.getX(i) < 0 || flights.getX(i) > 100 || flights.getY(i) < 0 || flights.getY(i) > 100)
+			{
+				System.err.println("Error: Planes are OOB");
+				System.err.println(flights.getX(i) + ", " + flights.getY(i));
+				return false;
+			}
+		}
+
+		Set<Airport> airports = new HashSet<Airport>();
+		for (int i = 0; i < flights.size(); i++) {
+			Airport a = new Airport(flights.getDestinationX(i), flights.getDestinationY(i));
+			airports.add(a); 
+		}
+		
+		for (Airport a : airports) {
+			if(a.getX() < 0 || a.getX() > 100 || a.getY() < 0 || a.getY() > 100)
+			{
+				System.err.println("Error: Airport is OOB");
+				return false;
+			}
+		}
+		board.setAirports(airports); 
+		return true;
+	}
+
+	/**
+	 * Records every game set up from now on to the given file (replacing it
+	 * each time), or stops recording if file is null. See ReplayLog.
+	 */
+	public void setReplayFile(File file)
+	{
+		setReplayFile(file, ReplayLog.DEFAULT_KEYFRAME_INTERVAL);
+	}
+
+	/**
+	 * Like setReplayFile(file), writing a keyframe every keyframeInterval
+	 * rounds; seek() then replays at most that many rounds.
+	 */
+	public void setReplayFile(File file, int keyframeInterval)
+	{
+		if (keyframeInterval < 1)
+			throw new IllegalArgumentException("keyframe interval must be at least 1: " + keyframeInterval);
+		this.replayFile = file;
+		this.keyframeInterval = keyframeInterval;
+	}
+
+	public File getReplayFile()
+	{
+		return replayFile;
+	}
+
+	private void startRecording()
+	{
+		if (replayFile == null)
+			return;
+		try
+		{
+			String boardName = config.getSelectedBoard() == null ? "" : config.getSelectedBoard().getName();
+			recorder = new ReplayLog.Writer(replayFile, keyframeInterval, boardName,
+					config.getPlayerClass().getName(), board.getSchedule());
+			recorder.writeKeyframe(round, board);
+		} catch (IOException e)
+		{
+			System.err.println("Error: could not write the replay log " + replayFile + ": " + e.getMessage());
+			stopRecording();
+		}
+	}
+
+	private void recordBearings()
+	{
+		try
+		{
+			recorder.writeBearings(round, board.bearings);
+		} catch (IOException e)
+		{
+			System.err.println("Error: could not write the replay log " + replayFile + ": " + e.getMessage());
+			stopRecording();
+		}
+	}
+
+	private void recordKeyframe()
+	{
+		try
+		{
+			recorder.writeKeyframe(round, board);
+		} catch (IOException e)
+		{
+			System.err.println("Error: could not write the replay log " + replayFile + ": " + e.getMessage());
+			stopRecording();
+		}
+	}
+
+	/**
+	 * Finishes the log of the game being recorded, if any. This happens by
+	 * itself when a game ends or the next one is set up; a game that is just
+	 * stopped (e.g. after the maximum number of rounds) should call it.
+	 */
+	public void stopRecording()
+	{
+		if (recorder == null)
+			return;
+		try
+		{
+			recorder.close();
+		} catch (IOException e)
+		{
+			System.err.println("Error: could not write the replay log " + replayFile + ": " + e.getMessage());
+		}
+		recorder = null;
+	}
+
+	/**
+	 * Sets up the game recorded in the given log at round 0. From then on,
+	 * step() plays the bearings in the log instead of asking a player, and
+	 * seek() goes to any round; the log stays open until the caller closes it.
+	 */
+	public boolean setUpReplay(ReplayLog replayLog)
+	{
+		stopRecording();
+		replay = null;
+		try
+		{
+			round = 0;
+			errorMessage = null;
+			board.setSchedule(replayLog.getSchedule());
+			FlightState flights = setUpFlights();
+			curPlayer = null;
+			board.setInteractive(false);
+			if (!checkFlights(flights))
+				return false;
+			initDone = true;
+		} catch (IOException e)
+		{
+			log.error("Exception: " + e);
+			return false;
+		}
+		replay = replayLog;
+		replay.rewind();
+		round = 0;
+		notifyListeners(GameUpdateType.STARTING);
+		return true;
+	}
+
+	/**
+	 * True if the game was set up with setUpReplay.
+	 */
+	public boolean isReplaying()
+	{
+		return replay != null;
+	}
+
+	/**
+	 * Goes to the end of the given round of the game being replayed, by
+	 * restoring the last keyframe before it and replaying the rounds after
+	 * the keyframe. The listeners are told only the outcome, e.g. a single
+	 * MOVEPROCESSED, or ERROR if the game stopped with an error on the way.
+	 *
+	 * @return true if the game is at that round and not over
+	 */
+	public boolean seek(int target)
+	{
+		if (replay == null)
+			throw new IllegalStateException("seek() needs a game set up with setUpReplay()");
+		FlightState flights = board.getFlightState();
+		boolean running = true;
+		seeking = true;
+		seekUpdate = GameUpdateType.MOVEPROCESSED;
+		try
+		{
+			errorMessage = null;
+			flights.discardJournal();
+			round = replay.readKeyframe(target, board);
+			flights.syncViews();
+			board.departures = DepartureSchedule.restore(flights, board.getDependencyIndex().newCounters(), round);
+			System.arraycopy(flights.bearing, 0, board.bearings, 0, flights.size());
+			// the paths are drawn from here on
+			for (Plane p : flights.getPlanes())
+				p.getFlightHistory().clear();
+			while (running && round < target)
+				running = step();
+		} catch (IOException e)
+		{
+			reportError("Error! Could not read the replay log: " + e.getMessage());
+			running = false;
+		} finally
+		{
+			seeking = false;
+		}
+		notifyListeners(seekUpdate);
+		return running && round == target;
+	}
+
+	/*
+	 * Reads the bearings of the given round from the replay log into the
+	 * board.
+	 */
+	private boolean readReplayBearings(int r)
+	{
+		try
+		{
+			return replay.readBearings(r, board.bearings);
+		} catch (IOException e)
+		{
+			reportError("Error! Could not read the replay log: " + e.getMessage());
+			return false;
+		}
+	}
 	
 	
 	
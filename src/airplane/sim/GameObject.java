@@ -21,4 +21,25 @@ public abstract class GameObject {
 	public void setY(double y) {
 		this.y = y;
 	}
+	
+	/*
+	 * The distances below give exactly what getLocation().distance(...) and
+	 * distanceSq(...) give, without creating a point.
+	 */
+	public double distanceTo(double px, double py) {
+		double dx = px - x;
+		double dy = py - y;
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+	public double distanceTo(GameObject other) {
+		return distanceTo(other.x, other.y);
+	}
+	public double distanceSqTo(double px, double py) {
+		double dx = px - x;
+		double dy = py - y;
+		return dx * dx + dy * dy;
+	}
+	public double distanceSqTo(GameObject other) {
+		return distanceSqTo(other.x, other.y);
+	}
 }
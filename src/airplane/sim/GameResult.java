@@ -5,6 +5,7 @@
 
 package airplane.sim;
 
+import java.io.File;
 import java.util.ArrayList;
 
 /**
@@ -13,15 +14,73 @@ import java.util.ArrayList;
  */
 public class GameResult {
 
+    // retValue is 0 if every plane landed and -1 otherwise
     int retValue;
+    // scoreList holds the final round, the power used and the delay, in that order
     ArrayList<Integer> scoreList;
 
+    private Class<Player> playerClass;
+    private File board;
+    private String errorMessage;
+
     public GameResult(int s,ArrayList<Integer> sl ) {
 
         retValue = s;
         scoreList = sl;
     }
 
+    public GameResult(Class<Player> playerClass, File board, boolean success, int round, int power, int delay, String errorMessage) {
+        this(success ? 0 : -1, new ArrayList<Integer>());
+        scoreList.add(round);
+        scoreList.add(power);
+        scoreList.add(delay);
+        this.playerClass = playerClass;
+        this.board = board;
+        this.errorMessage = errorMessage;
+    }
+
+    public int getRetValue() {
+        return retValue;
+    }
+
+    public ArrayList<Integer> getScoreList() {
+        return scoreList;
+    }
 
+    public boolean isSuccess() {
+        return retValue == 0;
+    }
+
+    public Class<Player> getPlayerClass() {
+        return playerClass;
+    }
+
+    public File getBoard() {
+        return board;
+    }
+
+    public int getRound() {
+        return scoreList.get(0);
+    }
+
+    public int getPower() {
+        return scoreList.get(1);
+    }
+
+    public int getDelay() {
+        return scoreList.get(2);
+    }
+
+    /**
+     * Returns why the game did not finish, or null if every plane landed.
+     */
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public String toString() {
+        return board.getName() + ";" + playerClass.getName() + ";" + (isSuccess() ? "OK" : "FAILED") + ";"
+                + getRound() + ";" + getPower() + ";" + getDelay() + ";" + (errorMessage == null ? "" : errorMessage);
+    }
 
 }
@@ -0,0 +1,389 @@
+package airplane.sim;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+import airplane.sim.GameListener.GameUpdateType;
+
+/**
+ * Plays a large number of games, e.g. for a parameter sweep, each in an
+ * engine of its own, and hands each result to an aggregator as soon as its
+ * game is over.
+ *
+ * On a Java runtime that has virtual threads (21 or later), every game runs
+ * on a virtual thread of its own; otherwise on a daemon platform thread,
+ * reused from one game to the next. The build targets an older release, so
+ * the virtual thread executor is looked up by reflection. Either way no more
+ * than getParallelism() games are in progress at once, and the games are
+ * taken from the Iterable only as they are started, so a sweep of tens of
+ * thousands of games only ever holds that many boards and players.
+ *
+ * run() is the scope of the games it starts. Whether it returns because
+ * every game is over, cancel() was called, the aggregator threw or the
+ * calling thread was interrupted, it first stops the games still in
+ * progress and waits for them to finish their round; only a game stuck in a
+ * round for longer than its time limit and a second is left behind.
+ *
+ * A game can be given a time limit. It is checked between rounds, see
+ * HeadlessRunner.setTimeLimit; a game whose player is still stuck in one
+ * round a second after its limit is interrupted, reported as timed out and
+ * left to its thread.
+ */
+public final class GameSweep {
+
+    /**
+     * Receives the results of a sweep.
+     */
+    public interface Aggregator {
+
+        /**
+         * Called on the thread running the sweep, once for every game that
+         * is not cancelled, in the order in which the games finish.
+         */
+        public void add(GameConfig game, GameResult result);
+    }
+
+    // how long after its time limit a game that has not stopped by itself is interrupted, in milliseconds
+    private static final long GRACE_PERIOD = 1000;
+    private static final Method VIRTUAL_THREAD_EXECUTOR = findVirtualThreadExecutor();
+
+    private Logger log = Logger.getLogger(GameSweep.class);
+    private final int parallelism;
+    private long timeLimit;
+    private volatile boolean cancelled;
+
+    public GameSweep() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public GameSweep(int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("parallelism must be at least 1: " + parallelism);
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Returns the largest number of games played at the same time.
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Gives each game the given number of milliseconds, from when it has been
+     * set up; 0 (the default) means no limit.
+     */
+    public void setTimeLimit(long millis) {
+        if (millis < 0)
+            throw new IllegalArgumentException("time limit must not be negative: " + millis);
+        timeLimit = millis;
+    }
+
+    public long getTimeLimit() {
+        return timeLimit;
+    }
+
+    /**
+     * Stops the sweep that is running: the games in progress stop at the end
+     * of their round and are not reported, no more games are started, and
+     * run() returns. Can be called from any thread, including from the
+     * aggregator.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * True if the games run on virtual threads.
+     */
+    public static boolean hasVirtualThreads() {
+        return VIRTUAL_THREAD_EXECUTOR != null;
+    }
+
+    /**
+     * Plays every game, each with the player, board and settings of its
+     * configuration. A configuration must not be changed once the iterator
+     * has returned it.
+     *
+     * @return the number of results handed to the aggregator
+     */
+    public int run(Iterable<GameConfig> games, Aggregator aggregator) throws InterruptedException {
+        cancelled = false;
+        ExecutorService executor = newExecutor();
+        CompletionService<GameResult> finished = new ExecutorCompletionService<GameResult>(executor);
+        Map<Future<GameResult>, Game> running = new HashMap<Future<GameResult>, Game>();
+        Iterator<GameConfig> next = games.iterator();
+        int reported = 0;
+        try {
+            while (!cancelled) {
+                while (running.size() < parallelism && next.hasNext() && !cancelled) {
+                    Game game = new Game(next.next());
+                    running.put(finished.submit(game), game);
+                }
+                if (running.isEmpty() || cancelled)
+                    break;
+
+                Future<GameResult> done;
+                long wait = timeUntilOverdue(running);
+                if (wait < 0)
+                    done = finished.take();
+                else
+                    done = finished.poll(wait, TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    reported += abandonOverdue(running, aggregator);
+                    continue;
+                }
+                // games that have been abandoned come through here as well
+                Game game = running.remove(done);
+                if (game == null)
+                    continue;
+                aggregator.add(game.config, game.resultOf(done));
+                reported++;
+            }
+        } finally {
+            for (Map.Entry<Future<GameResult>, Game> entry : running.entrySet()) {
+                entry.getValue().stop();
+                entry.getKey().cancel(true);
+            }
+            executor.shutdownNow();
+            executor.awaitTermination(timeLimit + GRACE_PERIOD, TimeUnit.MILLISECONDS);
+        }
+        return reported;
+    }
+
+    /*
+     * Returns how long until the first of the running games is overdue, in
+     * nanoseconds, or -1 if none of them has a time limit.
+     */
+    private long timeUntilOverdue(Map<Future<GameResult>, Game> running) {
+        if (timeLimit == 0)
+            return -1;
+        long now = System.nanoTime();
+        long wait = TimeUnit.MILLISECONDS.toNanos(timeLimit + GRACE_PERIOD);
+        for (Game game : running.values()) {
+            if (game.started)
+                wait = Math.min(wait, game.startTime + TimeUnit.MILLISECONDS.toNanos(timeLimit + GRACE_PERIOD) - now);
+        }
+        return Math.max(wait, 0);
+    }
+
+    /*
+     * Interrupts the games that are overdue, takes them out of the running
+     * games and reports them as timed out.
+     *
+     * @return the number of games reported
+     */
+    private int abandonOverdue(Map<Future<GameResult>, Game> running, Aggregator aggregator) {
+        List<Game> overdue = new ArrayList<Game>();
+        long now = System.nanoTime();
+        Iterator<Map.Entry<Future<GameResult>, Game>> it = running.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Future<GameResult>, Game> entry = it.next();
+            Game game = entry.getValue();
+            if (game.started && now - game.startTime >= TimeUnit.MILLISECONDS.toNanos(timeLimit + GRACE_PERIOD)) {
+                log.error("Game " + game.config.getPlayerClass().getName() + " on " + game.config.getSelectedBoard()
+                        + " is stuck in round " + game.engine.getCurrentRound() + "; abandoning it");
+                game.stop();
+                entry.getKey().cancel(true);
+                it.remove();
+                overdue.add(game);
+            }
+        }
+        for (Game game : overdue)
+            aggregator.add(game.config, game.timedOut());
+        return overdue.size();
+    }
+
+    /*
+     * One game of the sweep, played by HeadlessRunner in an engine of its
+     * own.
+     */
+    private final class Game implements Callable<GameResult> {
+        final GameConfig config;
+        private final GameConfig copy;
+        volatile GameEngine engine;
+        private volatile HeadlessRunner runner;
+        private volatile boolean stopped;
+        volatile boolean started;
+        volatile long startTime;
+
+        Game(GameConfig config) {
+            this.config = config;
+            this.copy = (GameConfig) config.clone();
+        }
+
+        public GameResult call() {
+            engine = new GameEngine(copy);
+            HeadlessRunner r = new HeadlessRunner(engine);
+            r.setTimeLimit(timeLimit);
+            runner = r;
+            if (stopped)
+                r.stop();
+            startTime = System.nanoTime();
+            started = true;
+            GameUpdateType outcome;
+            try {
+                outcome = r.runGame();
+            } catch (RuntimeException e) {
+                // a game that has been stopped may throw when it is interrupted
+                if (!stopped)
+                    log.error("Game " + copy.getPlayerClass().getName() + " on " + copy.getSelectedBoard() + " crashed: " + e);
+                return crashed(e);
+            }
+            if (r.hasTimedOut())
+                return timedOut();
+            return GameController.resultOf(copy, engine, outcome);
+        }
+
+        /*
+         * Stops the game at the end of the round, if it has started.
+         */
+        void stop() {
+            stopped = true;
+            HeadlessRunner r = runner;
+            if (r != null)
+                r.stop();
+        }
+
+        GameResult resultOf(Future<GameResult> done) throws InterruptedException {
+            try {
+                return done.get();
+            } catch (ExecutionException e) {
+                // anything that is not a RuntimeException, e.g. a StackOverflowError
+                log.error("Game " + copy.getPlayerClass().getName() + " on " + copy.getSelectedBoard() + " crashed: " + e.getCause());
+                return crashed(e.getCause());
+            }
+        }
+
+        private GameResult crashed(Throwable e) {
+            return result("Player crashed: " + e);
+        }
+
+        GameResult timedOut() {
+            return result("Timed out after " + timeLimit + " ms");
+        }
+
+        // as far as the game got
+        private GameResult result(String error) {
+            GameEngine e = engine;
+            if (e == null)
+                return new GameResult(copy.getPlayerClass(), copy.getSelectedBoard(), false, 0, 0, 0, error);
+            return new GameResult(copy.getPlayerClass(), copy.getSelectedBoard(), false, e.getCurrentRound(), e.getPower(),
+                    e.getDelay(), error);
+        }
+    }
+
+    private ExecutorService newExecutor() {
+        if (VIRTUAL_THREAD_EXECUTOR != null) {
+            try {
+                return (ExecutorService) VIRTUAL_THREAD_EXECUTOR.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                log.error("Could not create virtual threads, using platform threads: " + e);
+            }
+        }
+        final AtomicInteger count = new AtomicInteger();
+        // not a fixed pool: a game that has been abandoned must not keep the
+        // next one from starting; run() itself keeps to the parallelism
+        return Executors.newCachedThreadPool(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "game-sweep-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /*
+     * Returns Executors.newVirtualThreadPerTaskExecutor, or null if the
+     * runtime does not have it.
+     */
+    private static Method findVirtualThreadExecutor() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private final static void printUsage() {
+        System.err.println("Usage: GameSweep [config file] [-threads n] [-timeout ms] [-repeat n]");
+        System.err.println("Plays every configured player on every board (n times with -repeat), printing each result as its game ends.");
+    }
+
+    public static final void main(String[] args) throws InterruptedException {
+        String configFile = "airplane.xml";
+        int threads = Runtime.getRuntime().availableProcessors();
+        long timeout = 0;
+        int repeat = 1;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("-threads") && i + 1 < args.length)
+                    threads = Integer.parseInt(args[++i]);
+                else if (args[i].equals("-timeout") && i + 1 < args.length)
+                    timeout = Long.parseLong(args[++i]);
+                else if (args[i].equals("-repeat") && i + 1 < args.length)
+                    repeat = Integer.parseInt(args[++i]);
+                else if (i == 0 && !args[i].startsWith("-"))
+                    configFile = args[i];
+                else {
+                    printUsage();
+                    System.exit(1);
+                }
+            }
+        } catch (NumberFormatException e) {
+            printUsage();
+            System.exit(1);
+        }
+
+        GameConfig config = new GameConfig(configFile);
+        // nothing is drawn, so there is no need to keep the paths
+        config.setHistoryPolicy(FlightHistory.Policy.OFF);
+        List<GameConfig> games = new ArrayList<GameConfig>();
+        for (int r = 0; r < repeat; r++) {
+            for (Class<Player> player : config.getPlayerList()) {
+                for (File board : config.getBoardList()) {
+                    GameConfig game = (GameConfig) config.clone();
+                    game.setPlayerClass(player);
+                    game.setSelectedBoard(board);
+                    games.add(game);
+                }
+            }
+        }
+
+        GameSweep sweep = new GameSweep(threads);
+        sweep.setTimeLimit(timeout);
+        final int[] failed = new int[1];
+        long start = System.currentTimeMillis();
+        System.out.println("board;player;result;round;power;delay;error");
+        int played = sweep.run(games, new Aggregator() {
+            public void add(GameConfig game, GameResult result) {
+                if (!result.isSuccess())
+                    failed[0]++;
+                System.out.println(result);
+            }
+        });
+        System.out.println("Played " + played + " games (" + failed[0] + " failed) in " + (System.currentTimeMillis() - start)
+                + " ms on " + (hasVirtualThreads() ? "virtual threads" : threads + " threads"));
+    }
+}
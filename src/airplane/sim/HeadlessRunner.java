@@ -0,0 +1,184 @@
+package airplane.sim;
+
+import java.io.File;
+
+import airplane.sim.GameListener.GameUpdateType;
+
+/**
+ * Drives a GameEngine to completion without the Swing GUI.
+ *
+ * Unlike GUI.GameRunner there is no delay between rounds, so games run as
+ * fast as the player allows. The outcome is reported through the normal
+ * GameListener notifications; any other listeners added to the engine will
+ * see the same STARTING, MOVEPROCESSED, GAMEOVER and ERROR events.
+ *
+ * A game can be cut short, between rounds, by stop() from another thread or
+ * by a time limit; see GameSweep.
+ */
+public final class HeadlessRunner implements GameListener
+{
+	private GameEngine engine;
+	private GameUpdateType outcome;
+	private volatile boolean stopped;
+	// in milliseconds, or 0 for no limit
+	private long timeLimit;
+	private boolean timedOut;
+
+	public HeadlessRunner(GameEngine engine)
+	{
+		this.engine = engine;
+		engine.addGameListener(this);
+	}
+
+	public GameEngine getEngine()
+	{
+		return engine;
+	}
+
+	/**
+	 * Sets up a new game with the engine's current configuration and steps it
+	 * until it is over, it fails, or the configured maximum number of rounds
+	 * is reached.
+	 *
+	 * @return GAMEOVER if all planes landed, ERROR if the game could not be set
+	 *         up or stopped with an error, or null if it ran out of rounds
+	 */
+	public GameUpdateType runGame()
+	{
+		outcome = null;
+		if (stopped)
+			return null;
+		if (!engine.setUpGame())
+			return GameUpdateType.ERROR;
+
+		int maxRounds = engine.getConfig().getMaxRounds();
+		long deadline = System.nanoTime() + timeLimit * 1000000;
+		timedOut = false;
+		while (!stopped && engine.step())
+		{
+			if (engine.getCurrentRound() >= maxRounds)
+				break;
+			if (timeLimit > 0 && System.nanoTime() - deadline > 0)
+			{
+				timedOut = true;
+				break;
+			}
+		}
+		engine.stopRecording();
+		return outcome;
+	}
+
+	/**
+	 * Makes runGame return at the end of the round being played, and return
+	 * straight away from then on. Can be called from any thread.
+	 */
+	public void stop()
+	{
+		stopped = true;
+	}
+
+	public boolean isStopped()
+	{
+		return stopped;
+	}
+
+	/**
+	 * Makes runGame give up after the given number of milliseconds, counted
+	 * from when the game has been set up; 0 (the default) means no limit.
+	 * The limit is checked between rounds.
+	 */
+	public void setTimeLimit(long millis)
+	{
+		timeLimit = millis;
+	}
+
+	/**
+	 * True if the last game stopped because it ran out of time.
+	 */
+	public boolean hasTimedOut()
+	{
+		return timedOut;
+	}
+
+	public void gameUpdated(GameUpdateType type)
+	{
+		if (type == GameUpdateType.GAMEOVER || type == GameUpdateType.ERROR)
+			outcome = type;
+	}
+
+	private final static void printUsage()
+	{
+		System.err.println("Usage: HeadlessRunner <config file> <player class> [-record <directory>] [board file ...]");
+		System.err.println("If no board files are given, every board in the configured board directory is played.");
+		System.err.println("With -record, each game is recorded to <directory>/<board file>" + ReplayLog.EXTENSION
+				+ " (see ReplayRunner).");
+	}
+
+	public static final void main(String[] args)
+	{
+		if (args.length < 2)
+		{
+			printUsage();
+			System.exit(1);
+		}
+		GameEngine engine = new GameEngine(args[0]);
+		GameConfig config = engine.getConfig();
+		// nothing is drawn, so there is no need to keep the paths
+		config.setHistoryPolicy(FlightHistory.Policy.OFF);
+		try
+		{
+			Class<?> playerClass = Class.forName(args[1]);
+			if (!Player.class.isAssignableFrom(playerClass))
+			{
+				System.err.println("Error: " + args[1] + " is not a Player");
+				printUsage();
+				System.exit(1);
+			}
+			// checked just above
+			@SuppressWarnings("unchecked")
+			Class<Player> player = (Class<Player>) playerClass;
+			config.setPlayerClass(player);
+		} catch (ClassNotFoundException e)
+		{
+			System.err.println("Error: player class not found: " + args[1]);
+			System.exit(1);
+		}
+
+		int first = 2;
+		File recordDirectory = null;
+		if (args.length > 3 && args[2].equals("-record"))
+		{
+			recordDirectory = new File(args[3]);
+			if (!recordDirectory.isDirectory() && !recordDirectory.mkdirs())
+			{
+				System.err.println("Error: could not create the directory " + recordDirectory);
+				System.exit(1);
+			}
+			first = 4;
+		}
+
+		File[] boards;
+		if (args.length > first)
+		{
+			boards = new File[args.length - first];
+			for (int i = first; i < args.length; i++)
+				boards[i - first] = new File(args[i]);
+		}
+		else
+			boards = config.getBoardList();
+
+		HeadlessRunner runner = new HeadlessRunner(engine);
+		System.out.println("board;player;result;round;power;delay;error");
+		for (File board : boards)
+		{
+			config.setSelectedBoard(board);
+			if (recordDirectory != null)
+				engine.setReplayFile(new File(recordDirectory, board.getName() + ReplayLog.EXTENSION));
+			GameUpdateType outcome = runner.runGame();
+			String result = outcome == GameUpdateType.GAMEOVER ? "OK" : outcome == GameUpdateType.ERROR ? "ERROR" : "MAX_ROUNDS";
+			String error = engine.getErrorMessage() == null ? "" : engine.getErrorMessage();
+			System.out.println(board.getName() + ";" + args[1] + ";" + result + ";" + engine.getCurrentRound() + ";"
+					+ engine.getPower() + ";" + engine.getDelay() + ";" + error);
+		}
+	}
+}
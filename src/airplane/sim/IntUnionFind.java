@@ -0,0 +1,185 @@
+package airplane.sim;
+
+import java.util.Arrays;
+
+/**
+ * Union-find (disjoint sets) over small non-negative ints such as plane
+ * indices, kept in arrays so that grouping planes allocates nothing once
+ * the arrays have grown to the largest index used.
+ *
+ * Elements are added one by one; only added elements take part. Sets are
+ * joined by rank and find() compresses paths without recursion, so deep
+ * chains of unions cannot overflow the stack. reset() forgets only the
+ * elements that were added, so starting over each round costs as much as
+ * the planes that were in the air, not the size of the schedule.
+ *
+ * computeComponents() lists the sets as ranges of one array: the members of
+ * component c are getMember(getComponentStart(c)) up to, but not including,
+ * getMember(getComponentEnd(c)). Components are in the order of their first
+ * added member, and members in the order they were added.
+ */
+public final class IntUnionFind {
+
+	private int[] parent;
+	private byte[] rank;
+	private boolean[] active;
+	// the elements added since the last reset(), in order
+	private int[] added;
+	private int addedCount;
+
+	// the components, filled in by computeComponents()
+	private int[] componentOf;
+	private int componentCount;
+	private int[] componentStart;
+	private int[] members;
+
+	public IntUnionFind() {
+		this(16);
+	}
+
+	public IntUnionFind(int capacity) {
+		capacity = Math.max(capacity, 1);
+		parent = new int[capacity];
+		rank = new byte[capacity];
+		active = new boolean[capacity];
+		added = new int[capacity];
+		componentOf = new int[capacity];
+		componentStart = new int[capacity + 1];
+		members = new int[capacity];
+	}
+
+	/**
+	 * Forgets every element and every union.
+	 */
+	public void reset() {
+		for (int k = 0; k < addedCount; k++)
+			active[added[k]] = false;
+		addedCount = 0;
+		componentCount = 0;
+	}
+
+	/**
+	 * Adds x as a set of its own; adding it again has no effect.
+	 */
+	public void add(int x) {
+		if (x >= parent.length)
+			grow(x + 1);
+		if (active[x])
+			return;
+		active[x] = true;
+		parent[x] = x;
+		rank[x] = 0;
+		added[addedCount++] = x;
+	}
+
+	private void grow(int needed) {
+		int capacity = Math.max(needed, parent.length * 2);
+		parent = Arrays.copyOf(parent, capacity);
+		rank = Arrays.copyOf(rank, capacity);
+		active = Arrays.copyOf(active, capacity);
+		added = Arrays.copyOf(added, capacity);
+		componentOf = Arrays.copyOf(componentOf, capacity);
+		componentStart = Arrays.copyOf(componentStart, capacity + 1);
+		members = Arrays.copyOf(members, capacity);
+	}
+
+	public boolean contains(int x) {
+		return x >= 0 && x < active.length && active[x];
+	}
+
+	/**
+	 * Returns the number of elements added since the last reset().
+	 */
+	public int size() {
+		return addedCount;
+	}
+
+	/**
+	 * Returns the representative of the set that x, which must have been
+	 * added, belongs to.
+	 */
+	public int find(int x) {
+		int root = x;
+		while (parent[root] != root)
+			root = parent[root];
+		while (parent[x] != root) {
+			int next = parent[x];
+			parent[x] = root;
+			x = next;
+		}
+		return root;
+	}
+
+	/**
+	 * Joins the sets of x and y, which must have been added.
+	 *
+	 * @return false if they were in the same set already
+	 */
+	public boolean union(int x, int y) {
+		int rootX = find(x);
+		int rootY = find(y);
+		if (rootX == rootY)
+			return false;
+		if (rank[rootX] < rank[rootY]) {
+			parent[rootX] = rootY;
+		} else if (rank[rootX] > rank[rootY]) {
+			parent[rootY] = rootX;
+		} else {
+			parent[rootY] = rootX;
+			rank[rootX]++;
+		}
+		return true;
+	}
+
+	/**
+	 * Groups the elements by set, for getComponentStart() and the others.
+	 * Unions made afterwards are not reflected until it is called again.
+	 *
+	 * @return the number of components
+	 */
+	public int computeComponents() {
+		componentCount = 0;
+		for (int k = 0; k < addedCount; k++)
+			componentOf[added[k]] = -1;
+		for (int k = 0; k < addedCount; k++) {
+			int root = find(added[k]);
+			if (componentOf[root] < 0)
+				componentOf[root] = componentCount++;
+		}
+		// count the members of each component, then turn the counts into
+		// insertion cursors, as a counting sort does
+		Arrays.fill(componentStart, 0, componentCount + 1, 0);
+		for (int k = 0; k < addedCount; k++)
+			componentStart[componentOf[find(added[k])] + 1]++;
+		for (int c = 0; c < componentCount; c++)
+			componentStart[c + 1] += componentStart[c];
+		for (int k = 0; k < addedCount; k++) {
+			int x = added[k];
+			members[componentStart[componentOf[find(x)]]++] = x;
+		}
+		for (int c = componentCount; c > 0; c--)
+			componentStart[c] = componentStart[c - 1];
+		componentStart[0] = 0;
+		return componentCount;
+	}
+
+	public int getComponentCount() {
+		return componentCount;
+	}
+
+	public int getComponentStart(int c) {
+		return componentStart[c];
+	}
+
+	public int getComponentEnd(int c) {
+		return componentStart[c + 1];
+	}
+
+	public int getComponentSize(int c) {
+		return componentStart[c + 1] - componentStart[c];
+	}
+
+	public int getMember(int k) {
+		return members[k];
+	}
+}
@@ -2,6 +2,7 @@ package airplane.sim;
 
 import java.awt.geom.Point2D;
 import java.util.ArrayList;
+import java.util.List;
 
 public class Plane extends GameObject {
 
@@ -14,19 +15,50 @@ public class Plane extends GameObject {
 	public static final int OUT_OF_BOUNDS = 1;
 	public static final int ILLEGAL_MOVE = 2;
 
+	// the rule a move breaks, as returned by checkMove; describeViolation
+	// turns one into a message
+	public static final int NO_VIOLATION = 0;
+	// a plane in the air was given a bearing of -1 or -2
+	public static final int GROUND_BEARING = 1;
+	// a bearing below -2 or above 360
+	public static final int INVALID_BEARING = 2;
+	// a change of more than MAX_BEARING_CHANGE degrees
+	public static final int TURN_TOO_SHARP = 3;
+	public static final int X_OUT_OF_BOUNDS = 4;
+	public static final int Y_OUT_OF_BOUNDS = 5;
+
 	private double destinationX;
 	private double destinationY;
-	private final ArrayList<Integer> dependencies;
+	private ArrayList<Integer> dependencies;
+	// the dependencies of the game this plane belongs to, if it came from a GameEngine
+	DependencyIndex dependencyIndex;
 	
 	public int id; // this is new
+	// see getDestinationId()
+	int destinationId = -1;
 	
-	private ArrayList<Point2D.Double> allPoints = new ArrayList<Point2D.Double>();
+	// the positions this plane has flown through; nothing is kept unless a
+	// history is set, which the engine does for the planes of a game
+	private FlightHistory history = FlightHistory.off();
 
 	public void addToHistory(Point2D.Double point) {
-		allPoints.add(point);
+		history.add(point.x, point.y);
+	}
+	public void addToHistory(double x, double y) {
+		history.add(x, y);
 	}
+	/*
+	 * Returns the recorded positions as a new list of new points; code that
+	 * runs often, such as drawing, should read getFlightHistory() instead.
+	 */
 	public ArrayList<Point2D.Double> getHistory() {
-		return allPoints;
+		return history.toList();
+	}
+	public FlightHistory getFlightHistory() {
+		return history;
+	}
+	public void setFlightHistory(FlightHistory history) {
+		this.history = history;
 	}
 	
 	public Plane(double x, double y, double dx, double dy, int departureTime, ArrayList<Integer> list) {
@@ -46,10 +78,29 @@ public class Plane extends GameObject {
 		this.departureTime = other.departureTime;
 		this.bearing = other.bearing;
 		this.id = other.id;
+		this.destinationId = other.destinationId;
 		this.dependencies = other.dependencies;
+		this.dependencyIndex = other.dependencyIndex;
 	}
 	
 	
+	/*
+	 * Makes this plane a copy of other, keeping its own (empty) history.
+	 * This lets simulations reuse Plane objects instead of creating new ones.
+	 */
+	void set(Plane other) {
+		this.x = other.x;
+		this.y = other.y;
+		this.destinationX = other.destinationX;
+		this.destinationY = other.destinationY;
+		this.departureTime = other.departureTime;
+		this.bearing = other.bearing;
+		this.id = other.id;
+		this.destinationId = other.destinationId;
+		this.dependencies = other.dependencies;
+		this.dependencyIndex = other.dependencyIndex;
+	}
+	
 	public double getVelocity() {
 		return VELOCITY;
 	}
@@ -70,6 +121,32 @@ public class Plane extends GameObject {
 		return new Point2D.Double(this.destinationX, this.destinationY);
 	}
 	
+	/**
+	 * Returns a number that identifies this plane's destination among those
+	 * of the game: planes of the same game have the same id if and only if
+	 * they fly to the same point. The ids run from 0 up to, but not
+	 * including, the number of planes. A plane that did not come from a game
+	 * has -1; Player.getDestinationIds gives ids for any list of planes.
+	 */
+	public int getDestinationId() {
+		return destinationId;
+	}
+	
+	public double getDestX() {
+		return destinationX;
+	}
+	
+	public double getDestY() {
+		return destinationY;
+	}
+	
+	/*
+	 * Same as getLocation().distance(getDestination()), without creating the points.
+	 */
+	public double distanceToDestination() {
+		return distanceTo(destinationX, destinationY);
+	}
+	
 	public ArrayList<Integer> getDependencies() {
 		if (dependencies == null) return null;
 		else return (ArrayList<Integer>)(dependencies.clone());
@@ -81,6 +158,16 @@ public class Plane extends GameObject {
 			if (bearings[p] != -2) return false;
 		return true;
 	}
+
+	/*
+	 * Same as dependenciesHaveLanded, going by the bearings of the planes.
+	 */
+	boolean dependenciesHaveLanded(List<Plane> planes) {
+		if (dependencies == null) return true;
+		for (int p : dependencies) 
+			if (planes.get(p).bearing != -2) return false;
+		return true;
+	}
 	
 	public boolean isOn(int time) {
 		return bearing >= 0;
@@ -98,43 +185,131 @@ public class Plane extends GameObject {
 	
 	
 	public boolean isLegalMove(double newBearing) {
+		return checkTurn(bearing, newBearing) == NO_VIOLATION;
+	}
+	
+	/**
+	 * Checks whether the plane could move along newBearing, without moving it
+	 * and without printing anything, so that players can try bearings out
+	 * cheaply.
+	 *
+	 * @return NO_VIOLATION if move(newBearing) would succeed, or the rule it
+	 *         would break
+	 */
+	public int checkMove(double newBearing) {
+		return checkMove(x, y, bearing, newBearing);
+	}
+	
+	/*
+	 * The checks made by move, for a plane at (x, y) with the given bearing.
+	 * This is shared with FlightState, which stores the planes in arrays.
+	 */
+	static int checkMove(double x, double y, double bearing, double newBearing) {
+		if ((bearing == -1 && newBearing == -1) || (bearing == -2 && newBearing == -2))
+			return NO_VIOLATION;
+		else if (newBearing == -1 || newBearing == -2)
+			return GROUND_BEARING;
+		int violation = checkTurn(bearing, newBearing);
+		if (violation != NO_VIOLATION)
+			return violation;
+		double radialBearing = ((newBearing % 360) - 90) * Math.PI/180;
+		return checkBounds(x + (Math.cos(radialBearing)*VELOCITY), y + (Math.sin(radialBearing)*VELOCITY));
+	}
+	
+	/**
+	 * Maps a violation to the result move gives for it: LEGAL_MOVE,
+	 * ILLEGAL_MOVE or OUT_OF_BOUNDS.
+	 */
+	public static int getMoveResult(int violation) {
+		switch (violation) {
+		case NO_VIOLATION:
+			return LEGAL_MOVE;
+		case X_OUT_OF_BOUNDS:
+		case Y_OUT_OF_BOUNDS:
+			return OUT_OF_BOUNDS;
+		default:
+			return ILLEGAL_MOVE;
+		}
+	}
+	
+	/**
+	 * Describes the violation found by checkMove for a plane at (x, y) that
+	 * tried to change from bearing to newBearing.
+	 */
+	public static String describeViolation(int violation, double x, double y, double bearing, double newBearing) {
+		double radialBearing = ((newBearing % 360) - 90) * Math.PI/180;
+		switch (violation) {
+		case NO_VIOLATION:
+			return "legal move";
+		case GROUND_BEARING:
+			return "a plane with bearing " + bearing + " cannot change its bearing to " + newBearing;
+		case INVALID_BEARING:
+			return newBearing + " is not a legal bearing";
+		case TURN_TOO_SHARP:
+			return (newBearing == 360 ? 0 : newBearing) + " is too much of a change from old bearing of " + bearing;
+		case X_OUT_OF_BOUNDS:
+			return "new x-coordinate position " + (x + (Math.cos(radialBearing)*VELOCITY)) + " is out of bounds";
+		case Y_OUT_OF_BOUNDS:
+			return "new y-coordinate position " + (y + (Math.sin(radialBearing)*VELOCITY)) + " is out of bounds";
+		default:
+			return "unknown violation " + violation;
+		}
+	}
+	
+	/*
+	 * Checks whether a plane currently at the given bearing may change to newBearing.
+	 * This is shared with FlightState, which stores the bearings in an array.
+	 */
+	static int checkTurn(double bearing, double newBearing) {
 		// because 0 and 360 are the same, this makes things a little easier
 		if (newBearing == 360) newBearing = 0;
 		
 		// make sure it's in bounds
-		if (newBearing < -2 || newBearing > 360) {
-			System.err.println("ERROR! " + newBearing + " is not a legal bearing");
-			return false;
-		}
+		if (newBearing < -2 || newBearing > 360)
+			return INVALID_BEARING;
 		
 		// if the plane is taking off and we made it here, that's fine
-		if (bearing == -1) return true;
+		if (bearing == -1) return NO_VIOLATION;
 		
 		// here is a regular situation
 		if (bearing < 360 - MAX_BEARING_CHANGE && bearing > MAX_BEARING_CHANGE) {
-			if (Math.abs(bearing - newBearing) > MAX_BEARING_CHANGE) {
-				System.err.println("ERROR! " + newBearing + " is too much of a change from old bearing of " + bearing);
-				return false;
-			}
-			else return true;
+			if (Math.abs(bearing - newBearing) > MAX_BEARING_CHANGE)
+				return TURN_TOO_SHARP;
+			else return NO_VIOLATION;
 		}
 		// here's if they're close to the 0/360 border
 		else {
 			// if still within the max change, then it's fine
-			if (Math.abs(bearing-newBearing) <= MAX_BEARING_CHANGE) return true;
+			if (Math.abs(bearing-newBearing) <= MAX_BEARING_CHANGE) return NO_VIOLATION;
 			// otherwise, they must have crossed the border
 			else {
 				double diff = Math.abs(bearing-newBearing);
-				if (360 - diff <= MAX_BEARING_CHANGE) return true;
-				else {
-					System.err.println("ERROR! " + newBearing + " is too much of a change from old bearing of " + bearing);
-					return false;
-				}
+				if (360 - diff <= MAX_BEARING_CHANGE) return NO_VIOLATION;
+				else return TURN_TOO_SHARP;
 			}
 		}
 	}
 	
+	/*
+	 * Checks that a position the plane is about to move to is inside the airspace.
+	 */
+	static int checkBounds(double newx, double newy) {
+		if (newx < 0 || newx > 100)
+			return X_OUT_OF_BOUNDS;
+		if (newy < 0 || newy > 100)
+			return Y_OUT_OF_BOUNDS;
+		return NO_VIOLATION;
+	}
+	
 	public int move(double newBearing) {
+		return move(newBearing, false);
+	}
+	
+	/*
+	 * Same as move(newBearing), but with FastMath's sine and cosine tables in
+	 * place of Math.sin and Math.cos if fastMath is set.
+	 */
+	int move(double newBearing, boolean fastMath) {
 		// if the newBearing is -1, then leave it on the ground
 		if ((bearing == -1 && newBearing == -1))
 			return LEGAL_MOVE;
@@ -146,24 +321,27 @@ public class Plane extends GameObject {
 			return ILLEGAL_MOVE;
 
 		// see if it's a legal move
-		if (!isLegalMove(newBearing)) {
+		if (checkTurn(bearing, newBearing) != NO_VIOLATION) {
 			return ILLEGAL_MOVE;
 		}
 				
 		// this allows bearing to be equal to 360, in which case we treat it as 0
 		double radialBearing = newBearing % 360;
 		
-		radialBearing = (radialBearing-90) * Math.PI/180;
-		double newx = this.x + (Math.cos(radialBearing)*VELOCITY);
-		double newy = this.y + (Math.sin(radialBearing)*VELOCITY);
+		double newx;
+		double newy;
+		if (fastMath) {
+			newx = this.x + (FastMath.cosDeg(radialBearing-90)*VELOCITY);
+			newy = this.y + (FastMath.sinDeg(radialBearing-90)*VELOCITY);
+		}
+		else {
+			radialBearing = (radialBearing-90) * Math.PI/180;
+			newx = this.x + (Math.cos(radialBearing)*VELOCITY);
+			newy = this.y + (Math.sin(radialBearing)*VELOCITY);
+		}
 		
 		// make sure they're still in bounds
-		if (newx < 0 || newx > 100) {
-			System.err.println("Error! new x-coordinate position " + newx + " is out of bounds!");
-			return OUT_OF_BOUNDS;
-		}
-		if (newy < 0 || newy > 100) {
-			System.err.println("Error! new y-coordinate position " + newy + " is out of bounds!");
+		if (checkBounds(newx, newy) != NO_VIOLATION) {
 			return OUT_OF_BOUNDS;
 		}
 				
@@ -3,6 +3,12 @@ package airplane.sim;
 
 import java.awt.geom.Point2D;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  *
@@ -10,11 +16,63 @@ import java.util.ArrayList;
  */
 public abstract class Player {
 	private GameConfig myConfig;
+	private DepartureSchedule departures;
+	private boolean fastMath;
 	protected boolean continueSimulation = true;
 	
 	public void setMyConfig(GameConfig myConfig) {
 		this.myConfig = myConfig;
 	}
+
+	public void setDepartures(DepartureSchedule departures) {
+		this.departures = departures;
+	}
+
+	/**
+	 * Returns the flights that are due to take off in this round. For the
+	 * planes of the game being played this is the engine's schedule, which
+	 * is kept up to date as the game goes on; for any other planes (such as
+	 * copies in a simulation) a schedule is built by looking at each plane.
+	 */
+	protected DepartureSchedule getDepartures(ArrayList<Plane> planes, int round) {
+		if (departures != null && departures.isFor(planes) && departures.getRound() == round)
+			return departures;
+		return DepartureSchedule.of(planes, round);
+	}
+	/**
+	 * Returns an id for the destination of each plane in the list, by
+	 * position: two planes have the same id if and only if they fly to the
+	 * same point, and the ids run from 0 up to, but not including, the
+	 * number of planes. The planes of a game come with their ids (see
+	 * Plane.getDestinationId); for any other planes, such as ones built by
+	 * hand, the ids are worked out here. Call it once, e.g. in startNewGame,
+	 * rather than every round.
+	 */
+	protected static int[] getDestinationIds(List<Plane> planes) {
+		int[] ids = new int[planes.size()];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = planes.get(i).getDestinationId();
+			if (ids[i] < 0)
+				return numberDestinations(planes);
+		}
+		return ids;
+	}
+
+	private static int[] numberDestinations(List<Plane> planes) {
+		int[] ids = new int[planes.size()];
+		Map<Point2D.Double, Integer> seen = new HashMap<Point2D.Double, Integer>();
+		for (int i = 0; i < ids.length; i++) {
+			Point2D.Double destination = planes.get(i).getDestination();
+			Integer id = seen.get(destination);
+			if (id == null) {
+				id = seen.size();
+				seen.put(destination, id);
+			}
+			ids[i] = id;
+		}
+		return ids;
+	}
+
 	protected int getConfigNumPlanes() {
 		return myConfig.num_planes;
 	}
@@ -69,90 +127,130 @@ public abstract class Player {
     	return calculateBearing(start.x, start.y, end.x, end.y);
     }
 
+    /*
+     * The bearing from the plane's current location to its destination.
+     */
+    public static double calculateBearing(Plane plane) {
+    	return calculateBearing(plane.getX(), plane.getY(), plane.getDestX(), plane.getDestY());
+    }
+
+    /*
+     * Same as calculateBearing, but with FastMath's arctangent, which is
+     * within 1e-5 degrees of the exact bearing.
+     */
+    public static double calculateBearingFast(double x1, double y1, double x2, double y2) {
+    	return FastMath.bearing(x1, y1, x2, y2);
+    }
+
+    public static double calculateBearingFast(Point2D.Double start, Point2D.Double end) {
+    	return FastMath.bearing(start.x, start.y, end.x, end.y);
+    }
+
+    /*
+     * Chooses between exact math (the default) and FastMath for the
+     * simulations this player starts with startSimulation(planes, round) and
+     * startSimulations. A SimulationContext passed to startSimulation keeps
+     * its own setting. The game itself always uses exact math.
+     */
+    protected void setFastMath(boolean fastMath) {
+    	this.fastMath = fastMath;
+    }
+
+    protected boolean isFastMath() {
+    	return fastMath;
+    }
+
     /*
      * This runs a simulation from the specified state.
 	 * It returns the SimulationResult indicating what happened.
+	 * The planes are copied first, so the originals are not affected.
      */
     protected SimulationResult startSimulation(ArrayList<Plane> planes, int round) {
     	continueSimulation = true;
-    	// make a copy of all the Planes (so the originals don't get affected)
-    	ArrayList<Plane> simPlanes = new ArrayList<Plane>();
-    	for (Plane p : planes) {
-    		simPlanes.add(new Plane(p));
-    	}
-    	// make an array of all the bearings
-    	double simBearings[] = new double[simPlanes.size()];
-    	for (int i = 0; i < simBearings.length; i++) {
-    		simBearings[i] = simPlanes.get(i).getBearing();
+    	return newSimulationContext().run(this, planes, round);
+    }
+    
+    /*
+     * Same as startSimulation(planes, round), but reuses the planes, bearings
+     * and result held by the context instead of creating new ones.
+     * The returned SimulationResult belongs to the context and is overwritten
+     * by the next simulation that uses it.
+     */
+    protected SimulationResult startSimulation(SimulationContext context, ArrayList<Plane> planes, int round) {
+    	continueSimulation = true;
+    	return context.run(this, planes, round);
+    }
+    
+
+
+    /*
+     * Runs one simulation per plan, in parallel on getSimulationPool(), each
+     * from its own copy of the planes and with its own stop flag.
+     * It returns the SimulationResult of each plan, in the same order.
+     */
+    protected List<SimulationResult> startSimulations(List<? extends SimulationPlan> plans, final ArrayList<Plane> planes, final int round) {
+    	List<ForkJoinTask<SimulationResult>> tasks = new ArrayList<ForkJoinTask<SimulationResult>>();
+    	for (final SimulationPlan plan : plans) {
+    		tasks.add(getSimulationPool().submit(new Callable<SimulationResult>() {
+    			public SimulationResult call() {
+    				return newSimulationContext().run(plan, planes, round);
+    			}
+    		}));
     	}
-    	// count how many have landed
-    	int landed = 0;
-    	for (double b : simBearings) {
-    		if (b == -2) landed++;
+    	List<SimulationResult> results = new ArrayList<SimulationResult>();
+    	for (ForkJoinTask<SimulationResult> task : tasks) {
+    		results.add(task.join());
     	}
-    	
-    	// now loop through the simulation
-    	while(landed != simBearings.length && continueSimulation) {
-    		// update the round number
-    		round++;
-    		// the player simulates the update of the planes
-    		simBearings = simulateUpdate(simPlanes, round, simBearings);
-    		// if it's null, then don't bother
-    		if (simBearings == null) return new SimulationResult(SimulationResult.NULL_BEARINGS, round, simPlanes);
-    		// make sure no planes took off too early
-			for (int i = 0; i < simPlanes.size(); i++) {
-				if (simBearings[i] > -1) {
-					if (simPlanes.get(i).getDepartureTime() > round || simPlanes.get(i).dependenciesHaveLanded(simBearings) == false)
-						return new SimulationResult(SimulationResult.TOO_EARLY, round, simPlanes);
-				}
-			}
-    		// update the locations
-    		for (int i = 0; i < simPlanes.size(); i++) {
-    			Plane p = simPlanes.get(i);
-    			if (simBearings[i] >= 0) {
-    				if (p.move(simBearings[i]) == Plane.LEGAL_MOVE) {
-	    				// see if it landed, i.e. it's within 0.5 of its destination
-	    				if (p.getLocation().distance(p.getDestination()) <= 0.5) {
-	    					// the plane has landed
-	    					p.setBearing(-2);
-	    					simBearings[i] = -2;
-	    					landed++;
-	    				}
+    	return results;
+    }
+    
+    /*
+     * Evaluates candidate bearings for the next round in parallel.
+     * Each candidate is used for the first simulated round, after which the
+     * simulation continues with simulateUpdate, which must therefore be safe
+     * to call from several threads at once.
+     */
+    protected List<SimulationResult> startSimulations(double[][] candidates, ArrayList<Plane> planes, int round) {
+    	List<SimulationPlan> plans = new ArrayList<SimulationPlan>();
+    	for (final double[] candidate : candidates) {
+    		plans.add(new SimulationPlan() {
+    			private boolean first = true;
+    			public double[] simulateUpdate(ArrayList<Plane> planes, int round, double[] bearings) {
+    				if (first) {
+    					first = false;
+    					return candidate.clone();
     				}
-    				// if an error occurs
-    				else if (p.isLegalMove(simBearings[i]) == false) 
-    					return new SimulationResult(SimulationResult.ILLEGAL_BEARING, round, simPlanes);
-    				else return new SimulationResult(SimulationResult.OUT_OF_BOUNDS, round, simPlanes);
+    				return Player.this.simulateUpdate(planes, round, bearings);
     			}
-    			else if (simBearings[i] < -2) return new SimulationResult(SimulationResult.ILLEGAL_BEARING, round, simPlanes);
-    		}
-    		// make sure the planes aren't too close to each other
-			// make sure planes aren't too close to each other
-			for(Plane l1 : simPlanes)
-			{
-				for(Plane l2: simPlanes)
-				{
-					if (!l1.equals(l2) && l1.getBearing() != -2 && l1.getBearing() != -1 && l2.getBearing() != -2 && l2.getBearing() != -1) 
-					{
-						if (l1.getLocation().distance(l2.getLocation()) < GameConfig.SAFETY_RADIUS)
-							return new SimulationResult(SimulationResult.TOO_CLOSE, round, simPlanes);
-					}
-				}
-			}
-
+    		});
     	}
-    
-    	if (continueSimulation) return new SimulationResult(SimulationResult.NORMAL, round, simPlanes);
-    	else return new SimulationResult(SimulationResult.STOPPED, round, simPlanes);
+    	return startSimulations(plans, planes, round);
     }
     
+    private SimulationContext newSimulationContext() {
+    	SimulationContext context = new SimulationContext();
+    	context.setFastMath(fastMath);
+    	return context;
+    }
 
+    /*
+     * The pool used by startSimulations; override to use a dedicated one.
+     */
+    protected ForkJoinPool getSimulationPool() {
+    	return ForkJoinPool.commonPool();
+    }
 
     /*
      * Call this method when you want to stop the simulation.
+     * Inside one of the simulations started by startSimulations, only that
+     * simulation is stopped.
      */
 	protected void stopSimulation() {
-		continueSimulation = false;
+		SimulationContext current = SimulationContext.current();
+		if (current != null)
+			current.stop();
+		if (current == null || current.usesSharedFlag())
+			continueSimulation = false;
 	}
 	
 
@@ -0,0 +1,183 @@
+package airplane.sim;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The fields of a Player class marked with Tunable, and how to set them.
+ *
+ * GameEngine sets the parameters of a GameConfig on each player it creates,
+ * before startNewGame, so a parameter may be used to set up a game as well
+ * as to play it.
+ */
+public final class PlayerParameters {
+
+	private PlayerParameters() {
+	}
+
+	/**
+	 * One Tunable field, with its range and its initial value.
+	 */
+	public static final class Parameter {
+		private final Field field;
+		private final Tunable range;
+		private final double defaultValue;
+
+		private Parameter(Field field, double defaultValue) {
+			this.field = field;
+			this.range = field.getAnnotation(Tunable.class);
+			this.defaultValue = defaultValue;
+		}
+
+		public String getName() {
+			return field.getName();
+		}
+
+		public double getMin() {
+			return range.min();
+		}
+
+		public double getMax() {
+			return range.max();
+		}
+
+		public double getStep() {
+			return range.step();
+		}
+
+		public boolean isInteger() {
+			return field.getType() == int.class;
+		}
+
+		/**
+		 * Returns the value the field is initialised with.
+		 */
+		public double getDefault() {
+			return defaultValue;
+		}
+
+		/**
+		 * Returns the values from min to max, step apart, that a grid search
+		 * tries.
+		 */
+		public double[] getValues() {
+			int n = (int) Math.floor((getMax() - getMin()) / getStep() + 1e-9) + 1;
+			double[] values = new double[n];
+			for (int k = 0; k < n; k++)
+				values[k] = getMin() + k * getStep();
+			return values;
+		}
+
+		/**
+		 * Returns the value as it would be written to the field, as a string.
+		 */
+		public String format(double value) {
+			return isInteger() ? Integer.toString((int) value) : Double.toString(value);
+		}
+
+		public String toString() {
+			return getName() + " in [" + format(getMin()) + ", " + format(getMax()) + "] step " + format(getStep())
+					+ ", default " + format(defaultValue);
+		}
+	}
+
+	/**
+	 * Returns the Tunable fields of the player class and its superclasses, in
+	 * the order they are declared.
+	 *
+	 * @throws IllegalArgumentException if a Tunable field is not an int or a
+	 *         double, or the class cannot be instantiated to read the initial
+	 *         values
+	 */
+	public static List<Parameter> of(Class<? extends Player> playerClass) {
+		List<Field> fields = tunableFields(playerClass);
+		List<Parameter> parameters = new ArrayList<Parameter>();
+		if (fields.isEmpty())
+			return parameters;
+		Player player;
+		try {
+			player = playerClass.getDeclaredConstructor().newInstance();
+		} catch (InvocationTargetException e) {
+			// the constructor itself threw
+			throw new IllegalArgumentException("cannot create a " + playerClass.getName() + ": " + e.getCause(),
+					e.getCause());
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalArgumentException("cannot create a " + playerClass.getName() + ": " + e, e);
+		}
+		for (Field field : fields)
+			parameters.add(new Parameter(field, get(field, player)));
+		return parameters;
+	}
+
+	/**
+	 * Sets the player's Tunable fields to the given values, by name.
+	 *
+	 * @throws IllegalArgumentException if a name is not that of a Tunable
+	 *         field, or a value is out of its range or not a whole number for
+	 *         an int field
+	 */
+	public static void apply(Player player, Map<String, Double> values) {
+		if (values.isEmpty())
+			return;
+		List<Field> fields = tunableFields(player.getClass());
+		for (Map.Entry<String, Double> entry : values.entrySet()) {
+			Field field = null;
+			for (Field f : fields) {
+				if (f.getName().equals(entry.getKey()))
+					field = f;
+			}
+			if (field == null)
+				throw new IllegalArgumentException(player.getClass().getName() + " has no tunable parameter " + entry.getKey());
+			double value = entry.getValue();
+			Tunable range = field.getAnnotation(Tunable.class);
+			if (value < range.min() || value > range.max())
+				throw new IllegalArgumentException(entry.getKey() + " must be between " + range.min() + " and " + range.max()
+						+ ": " + value);
+			try {
+				if (field.getType() == int.class) {
+					if (value != Math.rint(value))
+						throw new IllegalArgumentException(entry.getKey() + " must be a whole number: " + value);
+					field.setInt(player, (int) value);
+				}
+				else
+					field.setDouble(player, value);
+			} catch (IllegalAccessException e) {
+				throw new IllegalArgumentException("cannot set " + entry.getKey() + ": " + e);
+			}
+		}
+	}
+
+	private static List<Field> tunableFields(Class<?> playerClass) {
+		List<Field> fields = new ArrayList<Field>();
+		for (Class<?> c = playerClass; c != null && c != Player.class; c = c.getSuperclass()) {
+			List<Field> declared = new ArrayList<Field>();
+			for (Field field : c.getDeclaredFields()) {
+				if (!field.isAnnotationPresent(Tunable.class))
+					continue;
+				if (field.getType() != int.class && field.getType() != double.class)
+					throw new IllegalArgumentException("Tunable field " + c.getName() + "." + field.getName()
+							+ " must be an int or a double");
+				if (Modifier.isStatic(field.getModifiers()) || Modifier.isFinal(field.getModifiers()))
+					throw new IllegalArgumentException("Tunable field " + c.getName() + "." + field.getName()
+							+ " must not be static or final");
+				field.setAccessible(true);
+				declared.add(field);
+			}
+			// the superclass's fields come first
+			fields.addAll(0, declared);
+		}
+		return fields;
+	}
+
+	private static double get(Field field, Player player) {
+		try {
+			return field.getType() == int.class ? field.getInt(player) : field.getDouble(player);
+		} catch (IllegalAccessException e) {
+			throw new IllegalArgumentException("cannot read " + field.getName() + ": " + e);
+		}
+	}
+}
@@ -0,0 +1,459 @@
+package airplane.sim;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A record of a game that can be played back without the player: the
+ * flights, the bearings the player returned in every round, and every so
+ * many rounds a keyframe with the complete state of the game.
+ *
+ * A log is written by GameEngine while it plays (see
+ * GameEngine.setReplayFile) and read back by GameEngine.setUpReplay, which
+ * can then step through the game as the player played it, or seek to any
+ * round by restoring the last keyframe before it and replaying only the
+ * rounds after the keyframe.
+ *
+ * The file is only ever appended to, so a log cut short (e.g. because the
+ * program was stopped) can be replayed up to where it ends. It holds:
+ * <ul>
+ * <li>a header: the magic bytes "RPLY", the format version, the keyframe
+ * interval, the board and player names, and the flights;</li>
+ * <li>one record per round with the bearings that differ from the previous
+ * round's, as pairs of index gap and bearing, so that flights that stay on
+ * the ground or keep their bearing cost nothing;</li>
+ * <li>a keyframe record after round 0 and after every round that is a
+ * multiple of the interval, with the power used, the delay, the number of
+ * flights landed, and every flight's position and bearing.</li>
+ * </ul>
+ * Each record starts with its type, its round and its length, so that
+ * opening a log only reads those to find the keyframes.
+ */
+public final class ReplayLog {
+
+	public static final String EXTENSION = ".replay";
+	public static final int VERSION = 1;
+	public static final int DEFAULT_KEYFRAME_INTERVAL = 100;
+
+	private static final int MAGIC = 'R' << 24 | 'P' << 16 | 'L' << 8 | 'Y';
+	private static final byte BEARINGS = 1;
+	private static final byte KEYFRAME = 2;
+	private static final int RECORD_HEADER_SIZE = 9;
+
+	private final File file;
+	private final RandomAccessFile in;
+	private final int keyframeInterval;
+	private final String boardName;
+	private final String playerName;
+	private final FlightSchedule schedule;
+
+	// where the keyframes are, in order of round
+	private int[] keyframeRounds = new int[16];
+	private long[] keyframeOffsets = new long[16];
+	private int keyframeCount;
+	private int lastRound;
+	private long firstRecord;
+
+	// the length of the file when it was opened; anything added later is
+	// not read
+	private long length;
+	// where the next record to be read is, and the bearings of the round
+	// before it, which its bearings are given relative to
+	private long position;
+	private final double[] previous;
+	// the record read last
+	private final byte[] header = new byte[RECORD_HEADER_SIZE];
+	private final ByteBuffer headerBuffer = ByteBuffer.wrap(header);
+	private byte recordType;
+	private int recordRound;
+	private byte[] payload = new byte[64];
+
+	private ReplayLog(File file) throws IOException {
+		this.file = file;
+		in = new RandomAccessFile(file, "r");
+		try {
+			length = in.length();
+			if (length < 12 || in.readInt() != MAGIC)
+				throw new IOException(file + " is not a replay log");
+			int version = in.readInt();
+			if (version != VERSION)
+				throw new IOException(file + " has version " + version + " of the replay format; only version "
+						+ VERSION + " can be read");
+			keyframeInterval = in.readInt();
+			boardName = in.readUTF();
+			playerName = in.readUTF();
+			schedule = readSchedule();
+			previous = new double[schedule.size()];
+			firstRecord = in.getFilePointer();
+			indexRecords(firstRecord);
+			rewind();
+			if (keyframeCount == 0)
+				throw new IOException(file + " has no keyframe, so the game cannot be replayed");
+		} catch (IOException e) {
+			in.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Opens a log for reading.
+	 */
+	public static ReplayLog open(File file) throws IOException {
+		return new ReplayLog(file);
+	}
+
+	private FlightSchedule readSchedule() throws IOException {
+		int n = in.readInt();
+		int m = in.readInt();
+		if (n < 0 || m < 0)
+			throw new IOException(file + " is corrupt: it has " + n + " flights and " + m + " dependencies");
+		byte[] bytes = new byte[37 * n + 4 * (n + 1) + 4 * m];
+		in.readFully(bytes);
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		double[] originX = new double[n];
+		double[] originY = new double[n];
+		double[] destinationX = new double[n];
+		double[] destinationY = new double[n];
+		int[] departure = new int[n];
+		boolean[] listsDependencies = new boolean[n];
+		int[] dependencyStart = new int[n + 1];
+		int[] dependencyList = new int[m];
+		for (int i = 0; i < n; i++) {
+			originX[i] = buffer.getDouble();
+			originY[i] = buffer.getDouble();
+			destinationX[i] = buffer.getDouble();
+			destinationY[i] = buffer.getDouble();
+			departure[i] = buffer.getInt();
+			listsDependencies[i] = buffer.get() != 0;
+		}
+		for (int i = 0; i <= n; i++)
+			dependencyStart[i] = buffer.getInt();
+		for (int k = 0; k < m; k++)
+			dependencyList[k] = buffer.getInt();
+		if (dependencyStart[0] != 0 || dependencyStart[n] != m)
+			throw new IOException(file + " is corrupt: the dependency offsets do not cover the dependencies");
+		for (int i = 0; i < n; i++) {
+			if (dependencyStart[i + 1] < dependencyStart[i])
+				throw new IOException(file + " is corrupt: the dependency offsets of flight " + i + " are decreasing");
+		}
+		return new FlightSchedule(n, originX, originY, destinationX, destinationY, departure, listsDependencies,
+				dependencyStart, dependencyList);
+	}
+
+	/*
+	 * Reads the record headers from the given offset on, noting the
+	 * keyframes and the last round; a record that is cut short ends the log.
+	 */
+	private void indexRecords(long offset) throws IOException {
+		lastRound = -1;
+		int size;
+		while ((size = readHeader(offset)) >= 0) {
+			byte type = recordType;
+			int round = recordRound;
+			if (type == KEYFRAME) {
+				if (keyframeCount == keyframeRounds.length) {
+					keyframeRounds = Arrays.copyOf(keyframeRounds, 2 * keyframeCount);
+					keyframeOffsets = Arrays.copyOf(keyframeOffsets, 2 * keyframeCount);
+				}
+				keyframeRounds[keyframeCount] = round;
+				keyframeOffsets[keyframeCount++] = offset;
+			} else if (type == BEARINGS) {
+				lastRound = round;
+			} else {
+				throw new IOException(file + " is corrupt: unknown record type " + type + " at offset " + offset);
+			}
+			offset += RECORD_HEADER_SIZE + size;
+		}
+		// a game that ended in round 0 has only its first keyframe
+		if (lastRound < 0 && keyframeCount > 0)
+			lastRound = keyframeRounds[0];
+		// a record cut short is ignored from here on
+		length = offset;
+	}
+
+	/*
+	 * Reads the header of the record at the given offset into recordType and
+	 * recordRound.
+	 *
+	 * @return the length of the record's contents, or -1 if the log ends
+	 *         before the end of the record
+	 */
+	private int readHeader(long offset) throws IOException {
+		if (offset + RECORD_HEADER_SIZE > length)
+			return -1;
+		in.seek(offset);
+		in.readFully(header);
+		headerBuffer.clear();
+		recordType = headerBuffer.get();
+		recordRound = headerBuffer.getInt();
+		int size = headerBuffer.getInt();
+		if (size < 0 || offset + RECORD_HEADER_SIZE + size > length)
+			return -1;
+		return size;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public int getKeyframeInterval() {
+		return keyframeInterval;
+	}
+
+	/**
+	 * Returns the name of the board file the game was played on.
+	 */
+	public String getBoardName() {
+		return boardName;
+	}
+
+	/**
+	 * Returns the class name of the player that played the game.
+	 */
+	public String getPlayerName() {
+		return playerName;
+	}
+
+	/**
+	 * Returns the flights, as they were when the game was played.
+	 */
+	public FlightSchedule getSchedule() {
+		return schedule;
+	}
+
+	/**
+	 * Returns the last round whose bearings are in the log.
+	 */
+	public int getLastRound() {
+		return lastRound;
+	}
+
+	/*
+	 * Makes round 1 the next one readBearings() reads.
+	 */
+	void rewind() {
+		position = firstRecord;
+		Arrays.fill(previous, -1);
+	}
+
+	/*
+	 * Restores the board's counters and flights from the last keyframe at or
+	 * before the given round, and makes the round after the keyframe the
+	 * next one readBearings() reads.
+	 *
+	 * @return the round of the keyframe
+	 */
+	int readKeyframe(int round, Board board) throws IOException {
+		int k = 0;
+		while (k + 1 < keyframeCount && keyframeRounds[k + 1] <= round)
+			k++;
+		ByteBuffer buffer = readRecord(keyframeOffsets[k]);
+		board.powerUsed = buffer.getInt();
+		board.delay = buffer.getInt();
+		board.planesLanded = buffer.getInt();
+		FlightState flights = board.getFlightState();
+		for (int i = 0; i < flights.size(); i++) {
+			double x = buffer.getDouble();
+			double y = buffer.getDouble();
+			double bearing = buffer.getDouble();
+			flights.setPosition(i, x, y, bearing);
+			previous[i] = bearing;
+		}
+		return keyframeRounds[k];
+	}
+
+	/*
+	 * Reads the bearings of the next round into the given array, skipping
+	 * any keyframe in between.
+	 *
+	 * @return false if the log has no bearings for the round
+	 */
+	boolean readBearings(int round, double[] bearings) throws IOException {
+		ByteBuffer buffer;
+		while ((buffer = readRecord(position)) != null && recordType == KEYFRAME) {
+			// the bearings after a keyframe are given relative to its own
+			buffer.position(12);
+			for (int i = 0; i < previous.length; i++) {
+				buffer.getDouble();
+				buffer.getDouble();
+				previous[i] = buffer.getDouble();
+			}
+		}
+		if (buffer == null || recordRound != round)
+			return false;
+		int changed = readVarint(buffer);
+		for (int c = 0, i = -1; c < changed; c++) {
+			i += readVarint(buffer) + 1;
+			previous[i] = buffer.getDouble();
+		}
+		System.arraycopy(previous, 0, bearings, 0, previous.length);
+		return true;
+	}
+
+	/*
+	 * Reads the record at the given offset, and moves the read position past
+	 * it.
+	 *
+	 * @return the contents of the record, or null at the end of the log
+	 */
+	private ByteBuffer readRecord(long offset) throws IOException {
+		int size = readHeader(offset);
+		if (size < 0)
+			return null;
+		if (size > payload.length)
+			payload = new byte[Math.max(size, 2 * payload.length)];
+		in.readFully(payload, 0, size);
+		position = offset + RECORD_HEADER_SIZE + size;
+		return ByteBuffer.wrap(payload, 0, size);
+	}
+
+	private static int readVarint(ByteBuffer buffer) {
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = buffer.get();
+			value |= (b & 0x7f) << shift;
+			shift += 7;
+		} while (b < 0);
+		return value;
+	}
+
+	public void close() throws IOException {
+		in.close();
+	}
+
+	/**
+	 * Writes a log as a game is played. GameEngine creates one per game.
+	 */
+	public static final class Writer {
+
+		private final DataOutputStream out;
+		private final int keyframeInterval;
+		private final double[] previous;
+		private final ByteArrayOutputStream payload = new ByteArrayOutputStream(256);
+		private final DataOutputStream payloadOut = new DataOutputStream(payload);
+
+		/**
+		 * Creates the log file, replacing any file of that name, and writes
+		 * the header.
+		 */
+		public Writer(File file, int keyframeInterval, String boardName, String playerName, FlightSchedule schedule)
+				throws IOException {
+			if (keyframeInterval < 1)
+				throw new IllegalArgumentException("keyframe interval must be at least 1: " + keyframeInterval);
+			this.keyframeInterval = keyframeInterval;
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+			try {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(keyframeInterval);
+				out.writeUTF(boardName);
+				out.writeUTF(playerName);
+				writeSchedule(schedule);
+			} catch (IOException e) {
+				out.close();
+				throw e;
+			}
+			previous = new double[schedule.size()];
+			Arrays.fill(previous, -1);
+		}
+
+		private void writeSchedule(FlightSchedule schedule) throws IOException {
+			int n = schedule.size();
+			out.writeInt(n);
+			out.writeInt(schedule.getDependencyCount());
+			for (int i = 0; i < n; i++) {
+				out.writeDouble(schedule.getOriginX(i));
+				out.writeDouble(schedule.getOriginY(i));
+				out.writeDouble(schedule.getDestinationX(i));
+				out.writeDouble(schedule.getDestinationY(i));
+				out.writeInt(schedule.getDepartureTime(i));
+				out.writeByte(schedule.listsDependencies(i) ? 1 : 0);
+			}
+			int offset = 0;
+			for (int i = 0; i < n; i++) {
+				out.writeInt(offset);
+				offset += schedule.getDependencyCount(i);
+			}
+			out.writeInt(offset);
+			for (int i = 0; i < n; i++) {
+				for (int k = 0; k < schedule.getDependencyCount(i); k++)
+					out.writeInt(schedule.getDependency(i, k));
+			}
+		}
+
+		public int getKeyframeInterval() {
+			return keyframeInterval;
+		}
+
+		/**
+		 * Appends the bearings the player returned for a round.
+		 */
+		public void writeBearings(int round, double[] bearings) throws IOException {
+			int changed = 0;
+			for (int i = 0; i < previous.length; i++) {
+				if (Double.doubleToRawLongBits(bearings[i]) != Double.doubleToRawLongBits(previous[i]))
+					changed++;
+			}
+			writeVarint(changed);
+			for (int i = 0, last = -1; i < previous.length; i++) {
+				if (Double.doubleToRawLongBits(bearings[i]) != Double.doubleToRawLongBits(previous[i])) {
+					writeVarint(i - last - 1);
+					payloadOut.writeDouble(bearings[i]);
+					previous[i] = bearings[i];
+					last = i;
+				}
+			}
+			writeRecord(BEARINGS, round);
+		}
+
+		/**
+		 * Appends the state of the game at the end of a round, and writes out
+		 * everything so far, so that the log can be replayed up to here even
+		 * if it is never closed.
+		 */
+		public void writeKeyframe(int round, Board board) throws IOException {
+			FlightState flights = board.getFlightState();
+			payloadOut.writeInt(board.powerUsed);
+			payloadOut.writeInt(board.delay);
+			payloadOut.writeInt(board.planesLanded);
+			for (int i = 0; i < flights.size(); i++) {
+				payloadOut.writeDouble(flights.x[i]);
+				payloadOut.writeDouble(flights.y[i]);
+				payloadOut.writeDouble(flights.bearing[i]);
+				// the next round's bearings are given relative to these
+				previous[i] = flights.bearing[i];
+			}
+			writeRecord(KEYFRAME, round);
+			out.flush();
+		}
+
+		private void writeRecord(byte type, int round) throws IOException {
+			out.writeByte(type);
+			out.writeInt(round);
+			out.writeInt(payload.size());
+			payload.writeTo(out);
+			payload.reset();
+		}
+
+		private void writeVarint(int value) throws IOException {
+			while ((value & ~0x7f) != 0) {
+				payloadOut.writeByte((value & 0x7f) | 0x80);
+				value >>>= 7;
+			}
+			payloadOut.writeByte(value);
+		}
+
+		public void close() throws IOException {
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package airplane.sim;
+
+import java.io.File;
+import java.io.IOException;
+
+import airplane.sim.GameListener.GameUpdateType;
+
+/**
+ * Plays back a game recorded with HeadlessRunner -record (or
+ * GameEngine.setReplayFile) without loading the player that played it.
+ *
+ * Given only the log, it replays the whole game and prints the same line as
+ * HeadlessRunner. Given a round as well, it goes straight to the end of that
+ * round, replaying only the rounds since the last keyframe, and prints every
+ * flight that is in the air with its position and bearing; a second round
+ * prints every round from the first to the second, e.g. to watch the rounds
+ * before a game stopped with an error.
+ */
+public final class ReplayRunner implements GameListener
+{
+	private GameEngine engine;
+	private GameUpdateType outcome;
+
+	public ReplayRunner(GameEngine engine)
+	{
+		this.engine = engine;
+		engine.addGameListener(this);
+	}
+
+	public void gameUpdated(GameUpdateType type)
+	{
+		if (type == GameUpdateType.GAMEOVER || type == GameUpdateType.ERROR)
+			outcome = type;
+	}
+
+	/**
+	 * Replays the log from the start until the game is over or the log ends.
+	 *
+	 * @return GAMEOVER if all planes landed, ERROR if the game stopped with an
+	 *         error, or null if the log ended first
+	 */
+	public GameUpdateType replay(ReplayLog log)
+	{
+		outcome = null;
+		if (!engine.setUpReplay(log))
+			return GameUpdateType.ERROR;
+		while (engine.step())
+			;
+		return outcome;
+	}
+
+	private void printFlights()
+	{
+		FlightState flights = engine.getBoard().getFlightState();
+		System.out.println("round " + engine.getCurrentRound() + ": power " + engine.getPower() + ", delay "
+				+ engine.getDelay() + ", landed " + engine.getNumLanded() + " of " + flights.size());
+		for (int i = 0; i < flights.size(); i++)
+		{
+			if (flights.isAirborne(i))
+				System.out.println(i + ";" + flights.getX(i) + ";" + flights.getY(i) + ";" + flights.getBearing(i));
+		}
+	}
+
+	private final static void printUsage()
+	{
+		System.err.println("Usage: ReplayRunner <replay file> [round [last round]]");
+		System.err.println("Without a round, the whole game is replayed; with one, the flights in the air at the end of it are printed.");
+	}
+
+	public static final void main(String[] args)
+	{
+		if (args.length < 1 || args.length > 3)
+		{
+			printUsage();
+			System.exit(1);
+		}
+		ReplayLog log = null;
+		try
+		{
+			log = ReplayLog.open(new File(args[0]));
+		} catch (IOException e)
+		{
+			System.err.println("Error: could not read " + args[0] + ": " + e.getMessage());
+			System.exit(1);
+		}
+		int from = -1;
+		int to = -1;
+		try
+		{
+			if (args.length > 1)
+				from = to = Integer.parseInt(args[1]);
+			if (args.length > 2)
+				to = Integer.parseInt(args[2]);
+		} catch (NumberFormatException e)
+		{
+			printUsage();
+			System.exit(1);
+		}
+
+		GameEngine engine = new GameEngine("airplane.xml");
+		engine.getConfig().setHistoryPolicy(FlightHistory.Policy.OFF);
+		ReplayRunner runner = new ReplayRunner(engine);
+		if (from < 0)
+		{
+			GameUpdateType outcome = runner.replay(log);
+			String result = outcome == GameUpdateType.GAMEOVER ? "OK" : outcome == GameUpdateType.ERROR ? "ERROR" : "END_OF_LOG";
+			String error = engine.getErrorMessage() == null ? "" : engine.getErrorMessage();
+			System.out.println("board;player;result;round;power;delay;error");
+			System.out.println(log.getBoardName() + ";" + log.getPlayerName() + ";" + result + ";" + engine.getCurrentRound()
+					+ ";" + engine.getPower() + ";" + engine.getDelay() + ";" + error);
+		}
+		else if (engine.setUpReplay(log))
+		{
+			boolean running = engine.seek(from);
+			runner.printFlights();
+			while (running && engine.getCurrentRound() < to)
+			{
+				running = engine.step();
+				runner.printFlights();
+			}
+			if (engine.getCurrentRound() < from)
+				System.out.println("The log ends at round " + log.getLastRound());
+			if (engine.getErrorMessage() != null)
+				System.out.println(engine.getErrorMessage());
+		}
+		try
+		{
+			log.close();
+		} catch (IOException e)
+		{
+		}
+	}
+}
@@ -0,0 +1,423 @@
+package airplane.sim;
+
+import java.util.ArrayList;
+
+/**
+ * Reusable buffers for running simulations with Player.startSimulation.
+ *
+ * A context keeps its simulated Planes, its bearings array, its collision
+ * grid and its SimulationResult between calls, and resets them from the
+ * current state in O(n) at the start of each simulation. A player that
+ * simulates many times per round can keep one context and avoid creating new
+ * objects for every simulation and every simulated round.
+ *
+ * The result returned by run() (and the planes in it) belong to the context
+ * and are overwritten by the next simulation; copy anything that is needed
+ * afterwards. A context must only be used by one simulation at a time.
+ *
+ * Each context has its own stop flag, so simulations running in parallel
+ * (see Player.startSimulations) can be stopped independently.
+ *
+ * When the planes are those of a game (or copies of them), the context also
+ * keeps its own dependency counters, so checking that a plane's dependencies
+ * have landed takes constant time; a plane counts as landed once it has
+ * landed in the simulation.
+ *
+ * With setFastMath(true), the simulated planes are moved with FastMath's
+ * sine and cosine tables instead of Math.sin and Math.cos. Each move is then
+ * off by less than 1e-7, so a simulation may differ from the game in close
+ * calls at the edge of the board or at the safety distance.
+ *
+ * A search can also play a simulation one round at a time: start() sets it
+ * up, step() plays a round with the given bearings, snapshot() remembers
+ * where it is and restore() goes back there. Only the planes that have
+ * changed since the snapshot are put back, so trying several bearings from
+ * the same state costs no more than the rounds played; see UndoJournal for
+ * which snapshots stay valid. release() closes a snapshot that is no longer
+ * needed.
+ */
+public final class SimulationContext {
+
+	private Plane[] pool = new Plane[0];
+	private final ArrayList<Plane> planes = new ArrayList<Plane>();
+	private double[] bearings = new double[0];
+	private final CollisionGrid grid = new CollisionGrid(GameConfig.SAFETY_RADIUS);
+	private final SimulationResult result = new SimulationResult(SimulationResult.NORMAL, 0, planes);
+	// null unless the planes come with a dependency index
+	private DependencyIndex.Counters counters;
+	private boolean fastMath;
+	// the last round played, and how many planes have landed
+	private int round;
+	private int landed;
+	// null until the first snapshot
+	private UndoJournal journal;
+
+	// the context whose simulation is running on the current thread, if any
+	private static final ThreadLocal<SimulationContext> current = new ThreadLocal<SimulationContext>();
+
+	private volatile boolean stopped;
+	// set when the simulation also honours the player's shared continueSimulation flag
+	private Player sharedFlagOwner;
+
+	/**
+	 * Makes the simulated planes and bearings a copy of the given planes.
+	 */
+	public void reset(ArrayList<Plane> source) {
+		int n = source.size();
+		if (pool.length < n) {
+			Plane[] larger = new Plane[Math.max(n, pool.length * 2)];
+			System.arraycopy(pool, 0, larger, 0, pool.length);
+			for (int i = pool.length; i < larger.length; i++)
+				larger[i] = new Plane(0, 0, 0, 0, 0, null);
+			pool = larger;
+		}
+		if (bearings.length != n)
+			bearings = new double[n];
+
+		planes.clear();
+		for (int i = 0; i < n; i++) {
+			Plane p = pool[i];
+			p.set(source.get(i));
+			planes.add(p);
+			bearings[i] = p.getBearing();
+		}
+
+		if (journal != null && journal.getFlightCount() == n)
+			journal.clear();
+		else
+			journal = null;
+
+		DependencyIndex index = DependencyIndex.of(planes);
+		if (index == null)
+			counters = null;
+		else {
+			if (counters == null || counters.getIndex() != index)
+				counters = index.newCounters();
+			counters.setFrom(planes);
+		}
+	}
+
+	/**
+	 * Returns the simulated planes, as passed to Player.simulateUpdate.
+	 */
+	public ArrayList<Plane> getPlanes() {
+		return planes;
+	}
+
+	/**
+	 * Chooses between exact math (the default) and FastMath for moving the
+	 * simulated planes.
+	 */
+	public void setFastMath(boolean fastMath) {
+		this.fastMath = fastMath;
+	}
+
+	public boolean isFastMath() {
+		return fastMath;
+	}
+
+	/**
+	 * Stops the simulation running in this context after the current round.
+	 */
+	public void stop() {
+		stopped = true;
+	}
+
+	public boolean isStopped() {
+		return stopped;
+	}
+
+	/*
+	 * Returns the context of the simulation running on this thread, or null.
+	 */
+	static SimulationContext current() {
+		return current.get();
+	}
+
+	/*
+	 * True if stopping this simulation should also clear the player's
+	 * continueSimulation flag, as it always has for startSimulation.
+	 */
+	boolean usesSharedFlag() {
+		return sharedFlagOwner != null;
+	}
+
+	/**
+	 * Simulates from the given state by repeatedly calling the player's
+	 * simulateUpdate, until every plane has landed, the player calls
+	 * stopSimulation, or a rule is broken.
+	 */
+	SimulationResult run(final Player player, ArrayList<Plane> source, int round) {
+		SimulationPlan plan = new SimulationPlan() {
+			public double[] simulateUpdate(ArrayList<Plane> planes, int round, double[] bearings) {
+				return player.simulateUpdate(planes, round, bearings);
+			}
+		};
+		return run(plan, player, source, round);
+	}
+
+	/**
+	 * Simulates the plan from the given state until every plane has landed,
+	 * the plan stops this simulation, or a rule is broken. Only this
+	 * context's stop flag is checked.
+	 */
+	public SimulationResult run(SimulationPlan plan, ArrayList<Plane> source, int round) {
+		return run(plan, null, source, round);
+	}
+
+	private SimulationResult run(SimulationPlan plan, Player player, ArrayList<Plane> source, int round) {
+		stopped = false;
+		sharedFlagOwner = player;
+		SimulationContext previous = current.get();
+		current.set(this);
+		try {
+			return simulate(plan, source, round);
+		} finally {
+			current.set(previous);
+			sharedFlagOwner = null;
+		}
+	}
+
+	private boolean running() {
+		return !stopped && (sharedFlagOwner == null || sharedFlagOwner.continueSimulation);
+	}
+
+	/**
+	 * Sets up a simulation from the given planes in the given round, to be
+	 * played with step(). This closes every snapshot.
+	 */
+	public void start(ArrayList<Plane> source, int round) {
+		reset(source);
+		this.round = round;
+		// count how many have landed
+		landed = 0;
+		for (double b : bearings) {
+			if (b == -2) landed++;
+		}
+	}
+
+	/**
+	 * Plays the next round with the given bearings, by the same rules as
+	 * run(). As in simulateUpdate, the bearings of the planes that land are
+	 * set to -2.
+	 *
+	 * @return true if the round was legal and some plane has yet to land;
+	 *         otherwise getResult() tells what happened
+	 */
+	public boolean step(double[] simBearings) {
+		if (simBearings.length != planes.size())
+			throw new IllegalArgumentException("expected " + planes.size() + " bearings, got " + simBearings.length);
+		round++;
+		if (play(simBearings) != null)
+			return false;
+		if (landed == planes.size()) {
+			finish(SimulationResult.NORMAL, round);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the result of the last simulation, or of the round that ended
+	 * the one being played with step().
+	 */
+	public SimulationResult getResult() {
+		return result;
+	}
+
+	/**
+	 * Returns the last round played.
+	 */
+	public int getRound() {
+		return round;
+	}
+
+	public int getNumLanded() {
+		return landed;
+	}
+
+	/**
+	 * Remembers the state of the simulation, to go back to with restore().
+	 * Until the snapshot is closed, every round saves the planes that move,
+	 * so call release() once it is no longer needed.
+	 */
+	public Snapshot snapshot() {
+		if (journal == null)
+			journal = new UndoJournal(planes.size());
+		int id = journal.mark();
+		return new Snapshot(journal, id, journal.size(), round, landed);
+	}
+
+	/**
+	 * Puts the planes, the round and the landing counts back as they were
+	 * when the snapshot was taken, and closes the snapshots taken after it.
+	 *
+	 * @throws IllegalArgumentException if the snapshot is not of this
+	 *         simulation, or has been closed
+	 */
+	public void restore(Snapshot snapshot) {
+		if (snapshot.journal != journal || !journal.isOpen(snapshot.id))
+			throw new IllegalArgumentException("the snapshot is not of this simulation or has been closed");
+		while (journal.size() > snapshot.position) {
+			int i = journal.lastFlight();
+			Plane p = planes.get(i);
+			double from = p.bearing;
+			p.x = journal.lastX();
+			p.y = journal.lastY();
+			p.bearing = journal.lastBearing();
+			if (counters != null) {
+				if (from == -2 && p.bearing != -2)
+					counters.takeOff(i);
+				else if (from != -2 && p.bearing == -2)
+					counters.land(i);
+			}
+			journal.pop();
+		}
+		journal.rolledBackTo(snapshot.id);
+		round = snapshot.round;
+		landed = snapshot.landed;
+	}
+
+	/**
+	 * Closes the snapshot without changing the simulation. Once no snapshot
+	 * is open, the saved state of the planes is let go and rounds save
+	 * nothing more. Releasing a snapshot that is already closed does
+	 * nothing.
+	 *
+	 * @throws IllegalArgumentException if the snapshot is not of this
+	 *         simulation
+	 */
+	public void release(Snapshot snapshot) {
+		if (snapshot.journal != journal)
+			throw new IllegalArgumentException("the snapshot is not of this simulation");
+		journal.release(snapshot.id);
+	}
+
+	/*
+	 * The number of plane states saved for the open snapshots.
+	 */
+	int getSavedCount() {
+		return journal == null ? 0 : journal.size();
+	}
+
+	private SimulationResult simulate(SimulationPlan plan, ArrayList<Plane> source, int round) {
+		start(source, round);
+		double[] simBearings = bearings;
+
+		// now loop through the simulation
+		while (landed != simBearings.length && running()) {
+			// update the round number
+			this.round++;
+			// the player simulates the update of the planes
+			simBearings = plan.simulateUpdate(planes, this.round, simBearings);
+			// if it's null, then don't bother
+			if (simBearings == null)
+				return finish(SimulationResult.NULL_BEARINGS, this.round);
+			SimulationResult broken = play(simBearings);
+			if (broken != null)
+				return broken;
+		}
+
+		if (running())
+			return finish(SimulationResult.NORMAL, this.round);
+		else
+			return finish(SimulationResult.STOPPED, this.round);
+	}
+
+	/*
+	 * Plays this.round with the given bearings.
+	 *
+	 * @return null if the round was legal, or the result saying which rule
+	 *         was broken
+	 */
+	private SimulationResult play(double[] simBearings) {
+		// make sure no planes took off too early
+		for (int i = 0; i < planes.size(); i++) {
+			if (simBearings[i] > -1) {
+				Plane p = planes.get(i);
+				if (p.getDepartureTime() > round || dependenciesHaveLanded(p, i, simBearings) == false)
+					return finish(SimulationResult.TOO_EARLY, round);
+			}
+		}
+		// update the locations
+		for (int i = 0; i < planes.size(); i++) {
+			Plane p = planes.get(i);
+			if (simBearings[i] >= 0) {
+				if (journal != null && journal.needsSave(i))
+					journal.save(i, p.x, p.y, p.bearing, 0);
+				boolean hadLanded = p.getBearing() == -2;
+				int move = p.move(simBearings[i], fastMath);
+				if (move == Plane.LEGAL_MOVE) {
+					if (hadLanded && counters != null)
+						counters.takeOff(i);
+					// see if it landed, i.e. it's within 0.5 of its destination
+					if (p.distanceToDestination() <= 0.5) {
+						// the plane has landed
+						p.setBearing(-2);
+						simBearings[i] = -2;
+						landed++;
+						if (counters != null)
+							counters.land(i);
+					}
+				}
+				// if an error occurs
+				else if (move == Plane.ILLEGAL_MOVE)
+					return finish(SimulationResult.ILLEGAL_BEARING, round, i, p.checkMove(simBearings[i]));
+				else
+					return finish(SimulationResult.OUT_OF_BOUNDS, round, i, p.checkMove(simBearings[i]));
+			}
+			else if (simBearings[i] < -2)
+				return finish(SimulationResult.ILLEGAL_BEARING, round, i, Plane.INVALID_BEARING);
+		}
+		// make sure the planes aren't too close to each other
+		grid.addAirborne(planes);
+		if (grid.hasConflict())
+			return finish(SimulationResult.TOO_CLOSE, round);
+		return null;
+	}
+
+	private boolean dependenciesHaveLanded(Plane p, int i, double[] simBearings) {
+		if (counters != null)
+			return counters.haveLanded(i);
+		return p.dependenciesHaveLanded(simBearings);
+	}
+
+	private SimulationResult finish(int reason, int round) {
+		result.set(reason, round, planes);
+		return result;
+	}
+
+	private SimulationResult finish(int reason, int round, int plane, int violation) {
+		result.set(reason, round, planes, plane, violation);
+		return result;
+	}
+
+	/**
+	 * The state of a simulation at the end of a round, as remembered by
+	 * snapshot(). It holds no copy of the planes; see UndoJournal.
+	 */
+	public static final class Snapshot {
+
+		private final UndoJournal journal;
+		private final int id;
+		private final int position;
+		private final int round;
+		private final int landed;
+
+		private Snapshot(UndoJournal journal, int id, int position, int round, int landed) {
+			this.journal = journal;
+			this.id = id;
+			this.position = position;
+			this.round = round;
+			this.landed = landed;
+		}
+
+		public int getRound() {
+			return round;
+		}
+
+		public int getNumLanded() {
+			return landed;
+		}
+	}
+}
@@ -0,0 +1,20 @@
+package airplane.sim;
+
+import java.util.ArrayList;
+
+/**
+ * One candidate future to be evaluated by Player.startSimulations.
+ *
+ * Each plan is simulated from its own copy of the planes, in the same way as
+ * Player.simulateUpdate is used by Player.startSimulation. Plans are run in
+ * parallel, so a plan must not share mutable state with other plans. Calling
+ * stopSimulation() on the player, or stop() on the context, from inside
+ * simulateUpdate stops only the simulation of this plan.
+ */
+public interface SimulationPlan {
+
+	/**
+	 * Returns the bearings for the simulated planes in the given round.
+	 */
+	public double[] simulateUpdate(ArrayList<Plane> planes, int round, double[] bearings);
+}
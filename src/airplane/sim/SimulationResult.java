@@ -15,6 +15,10 @@ public class SimulationResult {
 	private int reason;
 	private int round;
 	private ArrayList<Plane> planes;
+	// for ILLEGAL_BEARING and OUT_OF_BOUNDS, the plane that broke the rule
+	// and which rule it was (see Plane.checkMove)
+	private int plane = -1;
+	private int violation = Plane.NO_VIOLATION;
 	
 	public SimulationResult(int _reason, int _round, ArrayList<Plane> _planes) {
 		reason = _reason;
@@ -22,8 +26,25 @@ public class SimulationResult {
 		planes = _planes;
 	}
 	
+	/*
+	 * Reused by SimulationContext so that each simulation does not create a new result.
+	 */
+	void set(int _reason, int _round, ArrayList<Plane> _planes) {
+		set(_reason, _round, _planes, -1, Plane.NO_VIOLATION);
+	}
+	
+	void set(int _reason, int _round, ArrayList<Plane> _planes, int _plane, int _violation) {
+		reason = _reason;
+		round = _round;
+		planes = _planes;
+		plane = _plane;
+		violation = _violation;
+	}
+	
 	public int getReason() { return reason;	}
 	public int getRound() { return round;	}
 	public ArrayList<Plane> getPlanes() { return planes; }
 	public boolean isSuccess() { return reason == NORMAL; }
+	public int getPlane() { return plane; }
+	public int getViolation() { return violation; }
 }
@@ -0,0 +1,34 @@
+package airplane.sim;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a field of a Player as a constant of its strategy that can be set
+ * from outside, through GameConfig.setPlayerParameter, e.g. by Tuner.
+ *
+ * The field must be an int or a double. It keeps the value it is
+ * initialised with unless the configuration sets another, which must lie
+ * between min and max; see PlayerParameters.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface Tunable {
+
+	/**
+	 * The smallest value worth trying.
+	 */
+	double min();
+
+	/**
+	 * The largest value worth trying.
+	 */
+	double max();
+
+	/**
+	 * The distance between the values a grid search tries.
+	 */
+	double step() default 1;
+}
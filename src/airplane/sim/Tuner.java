@@ -0,0 +1,388 @@
+package airplane.sim;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+
+import airplane.sim.PlayerParameters.Parameter;
+
+/**
+ * Searches the Tunable parameters of a player for the settings that do best
+ * over every board, and reports the Pareto front of total delay, total power
+ * used and makespan (the sum of the rounds each board took).
+ *
+ * The candidates are either every combination of the values each parameter's
+ * Tunable range gives (grid search) or a number of combinations drawn at
+ * random; the player's own settings are always among them. Their games are
+ * played in parallel by GameSweep, one candidate after the other, and a
+ * candidate is dropped as soon as one of its games fails, whether the player
+ * crashed, caused an error, timed out or ran out of rounds: the games of it
+ * that have not started yet are never played.
+ */
+public final class Tuner {
+
+    /**
+     * A setting of the parameters, and how it did on the boards played so
+     * far.
+     */
+    public static final class Candidate {
+        private final Map<String, Double> values;
+        private final boolean initial;
+        private int games;
+        private long delay;
+        private long power;
+        private long makespan;
+        private GameResult failure;
+
+        Candidate(Map<String, Double> values, boolean initial) {
+            this.values = values;
+            this.initial = initial;
+        }
+
+        /**
+         * Returns the value of each parameter, by name.
+         */
+        public Map<String, Double> getValues() {
+            return values;
+        }
+
+        /**
+         * True if these are the values the player is initialised with.
+         */
+        public boolean isInitial() {
+            return initial;
+        }
+
+        public int getGames() {
+            return games;
+        }
+
+        public long getDelay() {
+            return delay;
+        }
+
+        public long getPower() {
+            return power;
+        }
+
+        public long getMakespan() {
+            return makespan;
+        }
+
+        /**
+         * Returns the first game this candidate failed, or null if it has not
+         * failed any.
+         */
+        public GameResult getFailure() {
+            return failure;
+        }
+
+        /**
+         * True if this candidate is no worse than the other on any of delay,
+         * power and makespan, and better on at least one.
+         */
+        public boolean dominates(Candidate other) {
+            return delay <= other.delay && power <= other.power && makespan <= other.makespan
+                    && (delay < other.delay || power < other.power || makespan < other.makespan);
+        }
+
+        void add(GameResult result) {
+            games++;
+            if (!result.isSuccess()) {
+                if (failure == null)
+                    failure = result;
+                return;
+            }
+            delay += result.getDelay();
+            power += result.getPower();
+            makespan += result.getRound();
+        }
+    }
+
+    private final GameConfig config;
+    private final List<Parameter> parameters;
+    private final List<File> boards;
+
+    /**
+     * Tunes the player of the given configuration on every board in its
+     * board directory, with its other settings.
+     *
+     * @throws IllegalArgumentException if the player has no Tunable fields
+     */
+    public Tuner(GameConfig config) {
+        this.config = config;
+        this.parameters = PlayerParameters.of(config.getPlayerClass());
+        if (parameters.isEmpty())
+            throw new IllegalArgumentException(config.getPlayerClass().getName() + " has no tunable parameters");
+        this.boards = new ArrayList<File>(Arrays.asList(config.getBoardList()));
+    }
+
+    public List<Parameter> getParameters() {
+        return parameters;
+    }
+
+    public List<File> getBoards() {
+        return boards;
+    }
+
+    /**
+     * Returns the player's own settings followed by every combination of the
+     * values in the parameters' ranges.
+     */
+    public List<Candidate> grid() {
+        List<Candidate> candidates = new ArrayList<Candidate>();
+        candidates.add(initial());
+        Set<Map<String, Double>> seen = new HashSet<Map<String, Double>>();
+        seen.add(candidates.get(0).getValues());
+        int[] index = new int[parameters.size()];
+        while (true) {
+            Map<String, Double> values = new LinkedHashMap<String, Double>();
+            for (int k = 0; k < index.length; k++)
+                values.put(parameters.get(k).getName(), parameters.get(k).getValues()[index[k]]);
+            if (seen.add(values))
+                candidates.add(new Candidate(values, false));
+            // the next combination, the last parameter changing fastest
+            int k = index.length - 1;
+            while (k >= 0 && ++index[k] == parameters.get(k).getValues().length)
+                index[k--] = 0;
+            if (k < 0)
+                return candidates;
+        }
+    }
+
+    /**
+     * Returns the player's own settings followed by count other settings
+     * drawn at random: int parameters take a value of their grid, double
+     * parameters any value in their range.
+     */
+    public List<Candidate> random(int count, long seed) {
+        Random random = new Random(seed);
+        List<Candidate> candidates = new ArrayList<Candidate>();
+        candidates.add(initial());
+        Set<Map<String, Double>> seen = new HashSet<Map<String, Double>>();
+        seen.add(candidates.get(0).getValues());
+        // a small integer grid may have fewer settings than were asked for
+        int attempts = 0;
+        while (candidates.size() <= count && attempts++ < 100 * count) {
+            Map<String, Double> values = new LinkedHashMap<String, Double>();
+            for (Parameter p : parameters) {
+                double value;
+                if (p.isInteger()) {
+                    double[] grid = p.getValues();
+                    value = grid[random.nextInt(grid.length)];
+                }
+                else
+                    value = p.getMin() + random.nextDouble() * (p.getMax() - p.getMin());
+                values.put(p.getName(), value);
+            }
+            if (seen.add(values))
+                candidates.add(new Candidate(values, false));
+        }
+        return candidates;
+    }
+
+    private Candidate initial() {
+        Map<String, Double> values = new LinkedHashMap<String, Double>();
+        for (Parameter p : parameters)
+            values.put(p.getName(), p.getDefault());
+        return new Candidate(values, true);
+    }
+
+    /**
+     * Plays every candidate on every board, skipping the games of candidates
+     * that have already failed one.
+     *
+     * @return the number of games played
+     */
+    public int evaluate(final List<Candidate> candidates, GameSweep sweep) throws InterruptedException {
+        final Map<GameConfig, Candidate> owner = new IdentityHashMap<GameConfig, Candidate>();
+        // GameSweep reads the games and reports the results on this thread,
+        // so a failure is seen before the candidate's next game is started
+        Iterable<GameConfig> games = new Iterable<GameConfig>() {
+            public Iterator<GameConfig> iterator() {
+                return new Iterator<GameConfig>() {
+                    private int candidate;
+                    private int board;
+
+                    public boolean hasNext() {
+                        while (candidate < candidates.size() && (board == boards.size()
+                                || candidates.get(candidate).getFailure() != null)) {
+                            candidate++;
+                            board = 0;
+                        }
+                        return candidate < candidates.size();
+                    }
+
+                    public GameConfig next() {
+                        if (!hasNext())
+                            throw new NoSuchElementException();
+                        Candidate c = candidates.get(candidate);
+                        GameConfig game = (GameConfig) config.clone();
+                        game.setSelectedBoard(boards.get(board++));
+                        game.setPlayerParameters(c.getValues());
+                        owner.put(game, c);
+                        return game;
+                    }
+                };
+            }
+        };
+        return sweep.run(games, new GameSweep.Aggregator() {
+            public void add(GameConfig game, GameResult result) {
+                owner.remove(game).add(result);
+            }
+        });
+    }
+
+    /**
+     * Returns the candidates that finished every board and that no other
+     * such candidate dominates, by delay, then power, then makespan.
+     */
+    public List<Candidate> paretoFront(List<Candidate> candidates) {
+        List<Candidate> complete = new ArrayList<Candidate>();
+        for (Candidate c : candidates) {
+            if (c.getFailure() == null && c.getGames() == boards.size())
+                complete.add(c);
+        }
+        List<Candidate> front = new ArrayList<Candidate>();
+        for (Candidate c : complete) {
+            boolean dominated = false;
+            for (Candidate other : complete) {
+                if (other.dominates(c)) {
+                    dominated = true;
+                    break;
+                }
+            }
+            if (!dominated)
+                front.add(c);
+        }
+        Collections.sort(front, new Comparator<Candidate>() {
+            public int compare(Candidate a, Candidate b) {
+                if (a.getDelay() != b.getDelay())
+                    return Long.compare(a.getDelay(), b.getDelay());
+                if (a.getPower() != b.getPower())
+                    return Long.compare(a.getPower(), b.getPower());
+                return Long.compare(a.getMakespan(), b.getMakespan());
+            }
+        });
+        return front;
+    }
+
+    /**
+     * Returns the candidate's values as name=value pairs, as the command line
+     * takes them.
+     */
+    public String format(Candidate c) {
+        StringBuilder s = new StringBuilder();
+        for (Parameter p : parameters) {
+            if (s.length() > 0)
+                s.append(',');
+            s.append(p.getName()).append('=').append(p.format(c.getValues().get(p.getName())));
+        }
+        return s.toString();
+    }
+
+    private final static void printUsage() {
+        System.err.println("Usage: Tuner <player class> [config file] [-random n] [-seed s] [-threads n] [-timeout ms]");
+        System.err.println("Plays the player on every board with each setting of its tunable parameters, every combination"
+                + " or n random ones, and prints the settings on the Pareto front of delay, power and makespan.");
+    }
+
+    @SuppressWarnings("unchecked")
+    public static final void main(String[] args) throws InterruptedException {
+        if (args.length < 1) {
+            printUsage();
+            System.exit(1);
+        }
+        String configFile = "airplane.xml";
+        int samples = 0;
+        long seed = 0;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long timeout = 0;
+        try {
+            for (int i = 1; i < args.length; i++) {
+                if (args[i].equals("-random") && i + 1 < args.length)
+                    samples = Integer.parseInt(args[++i]);
+                else if (args[i].equals("-seed") && i + 1 < args.length)
+                    seed = Long.parseLong(args[++i]);
+                else if (args[i].equals("-threads") && i + 1 < args.length)
+                    threads = Integer.parseInt(args[++i]);
+                else if (args[i].equals("-timeout") && i + 1 < args.length)
+                    timeout = Long.parseLong(args[++i]);
+                else if (i == 1 && !args[i].startsWith("-"))
+                    configFile = args[i];
+                else {
+                    printUsage();
+                    System.exit(1);
+                }
+            }
+        } catch (NumberFormatException e) {
+            printUsage();
+            System.exit(1);
+        }
+
+        GameConfig config = new GameConfig(configFile);
+        try {
+            Class<?> playerClass = Class.forName(args[0]);
+            if (!Player.class.isAssignableFrom(playerClass)) {
+                System.err.println("Error: " + args[0] + " is not a Player");
+                System.exit(1);
+            }
+            config.setPlayerClass((Class<Player>) playerClass);
+        } catch (ClassNotFoundException e) {
+            System.err.println("Error: Class not found: " + args[0]);
+            System.exit(1);
+        }
+        // nothing is drawn, so there is no need to keep the paths
+        config.setHistoryPolicy(FlightHistory.Policy.OFF);
+        Tuner tuner = null;
+        try {
+            tuner = new Tuner(config);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+        }
+        for (Parameter p : tuner.getParameters())
+            System.out.println(p);
+        List<Candidate> candidates = samples > 0 ? tuner.random(samples, seed) : tuner.grid();
+
+        GameSweep sweep = new GameSweep(threads);
+        sweep.setTimeLimit(timeout);
+        long start = System.currentTimeMillis();
+        int played = tuner.evaluate(candidates, sweep);
+        int failed = 0;
+        for (Candidate c : candidates) {
+            if (c.getFailure() != null)
+                failed++;
+        }
+        System.out.println("Tried " + candidates.size() + " settings on " + tuner.getBoards().size() + " boards: " + played
+                + " games in " + (System.currentTimeMillis() - start) + " ms, " + failed + " settings failed a game");
+
+        Candidate initial = candidates.get(0);
+        if (initial.getFailure() != null)
+            System.out.println("The player's own settings failed on " + initial.getFailure().getBoard().getName() + ": "
+                    + initial.getFailure().getErrorMessage());
+        List<Candidate> front = tuner.paretoFront(candidates);
+        if (front.isEmpty()) {
+            System.out.println("No setting finished every board");
+            return;
+        }
+        System.out.println("delay;power;makespan;parameters");
+        for (Candidate c : front)
+            System.out.println(c.getDelay() + ";" + c.getPower() + ";" + c.getMakespan() + ";" + tuner.format(c)
+                    + (c.isInitial() ? " (the player's own)" : ""));
+        if (initial.getFailure() == null && !front.contains(initial))
+            System.out.println("The player's own settings, " + tuner.format(initial) + ", scored " + initial.getDelay() + ";"
+                    + initial.getPower() + ";" + initial.getMakespan());
+    }
+}
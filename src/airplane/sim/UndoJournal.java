@@ -0,0 +1,153 @@
+package airplane.sim;
+
+import java.util.Arrays;
+
+/**
+ * The old state of the flights that have changed since the oldest snapshot
+ * that can still be restored, used by GameEngine and SimulationContext to
+ * roll back.
+ *
+ * Taking a snapshot only pushes an id and starts a new epoch. The first time
+ * a flight is about to change in an epoch, its position, bearing and history
+ * length are saved (copy on write); later changes in the same epoch save
+ * nothing. Rolling back to a snapshot pops the entries saved since, newest
+ * first, so it costs as much as the number of flights that changed, not the
+ * number of flights.
+ *
+ * Snapshots nest: restoring one makes every snapshot taken after it invalid,
+ * while it and the snapshots before it stay valid and can be restored again,
+ * which is what a depth-first search needs. A snapshot stays open until it
+ * is restored past or released, and while any is open every change is
+ * saved, so the journal grows with every round played; releasing the last
+ * open snapshot empties it.
+ */
+final class UndoJournal {
+
+	private int[] flight = new int[16];
+	private double[] x = new double[16];
+	private double[] y = new double[16];
+	private double[] bearing = new double[16];
+	private long[] historyCount = new long[16];
+	private int size;
+
+	// the epoch in which each flight was last saved
+	private final int[] savedIn;
+	private int epoch;
+	private int lastId;
+	// the ids of the snapshots that can be restored, oldest first
+	private int[] open = new int[8];
+	private int openCount;
+
+	UndoJournal(int flights) {
+		savedIn = new int[flights];
+	}
+
+	int getFlightCount() {
+		return savedIn.length;
+	}
+
+	/*
+	 * True if flight i has to be saved before it changes.
+	 */
+	boolean needsSave(int i) {
+		return openCount > 0 && savedIn[i] != epoch;
+	}
+
+	void save(int i, double x, double y, double bearing, long historyCount) {
+		if (size == flight.length) {
+			int length = 2 * size;
+			flight = Arrays.copyOf(flight, length);
+			this.x = Arrays.copyOf(this.x, length);
+			this.y = Arrays.copyOf(this.y, length);
+			this.bearing = Arrays.copyOf(this.bearing, length);
+			this.historyCount = Arrays.copyOf(this.historyCount, length);
+		}
+		flight[size] = i;
+		this.x[size] = x;
+		this.y[size] = y;
+		this.bearing[size] = bearing;
+		this.historyCount[size] = historyCount;
+		size++;
+		savedIn[i] = epoch;
+	}
+
+	/*
+	 * Opens a snapshot at the current end of the journal and returns its id.
+	 */
+	int mark() {
+		if (openCount == open.length)
+			open = Arrays.copyOf(open, 2 * openCount);
+		epoch = ++lastId;
+		open[openCount++] = epoch;
+		return epoch;
+	}
+
+	int size() {
+		return size;
+	}
+
+	boolean isOpen(int id) {
+		return Arrays.binarySearch(open, 0, openCount, id) >= 0;
+	}
+
+	/*
+	 * The latest entry, which pop() removes.
+	 */
+	int lastFlight() {
+		return flight[size - 1];
+	}
+
+	double lastX() {
+		return x[size - 1];
+	}
+
+	double lastY() {
+		return y[size - 1];
+	}
+
+	double lastBearing() {
+		return bearing[size - 1];
+	}
+
+	long lastHistoryCount() {
+		return historyCount[size - 1];
+	}
+
+	void pop() {
+		size--;
+	}
+
+	/*
+	 * Closes the snapshots taken after the given one, once its entries have
+	 * been popped, and starts a new epoch so that the flights are saved again
+	 * before they next change.
+	 */
+	void rolledBackTo(int id) {
+		while (openCount > 0 && open[openCount - 1] > id)
+			openCount--;
+		epoch = ++lastId;
+	}
+
+	/*
+	 * Closes the given snapshot if it is open, without rolling back. Once no
+	 * snapshot is open, the saved state is forgotten and nothing more is
+	 * saved until the next mark().
+	 */
+	void release(int id) {
+		int k = Arrays.binarySearch(open, 0, openCount, id);
+		if (k < 0)
+			return;
+		System.arraycopy(open, k + 1, open, k, openCount - k - 1);
+		openCount--;
+		if (openCount == 0)
+			size = 0;
+	}
+
+	/*
+	 * Closes every snapshot and forgets the saved state.
+	 */
+	void clear() {
+		openCount = 0;
+		size = 0;
+	}
+}
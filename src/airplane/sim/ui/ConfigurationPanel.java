@@ -143,7 +143,7 @@ public final class ConfigurationPanel extends JPanel implements ChangeListener,
 			config.setMaxRounds(((Integer) ((JSpinner) arg0.getSource()).getValue()).intValue());
 		else if(arg0.getSource().equals(stopSlider)) {
 			stopLabel.setText(Integer.toString(stopSlider.getValue()) + "%");
-			config.threshold = stopSlider.getValue();
+			config.setThreshold(stopSlider.getValue());
 		}
 		else
 			throw new RuntimeException("Unknown State Changed Event!!");
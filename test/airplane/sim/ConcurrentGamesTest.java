@@ -0,0 +1,95 @@
+package airplane.sim;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import airplane.sim.GameListener.GameUpdateType;
+
+/**
+ * Engines must not share any game state: every configured player plays every
+ * bundled board on a number of engines at once, each on a thread of its own,
+ * and each result must be the same as when the game is played on its own.
+ */
+public class ConcurrentGamesTest {
+
+	private static final int THREADS = 4;
+
+	@Test
+	public void concurrentGamesMatchSerialGames() throws Exception {
+		GameConfig config = new GameConfig("airplane.xml");
+		config.setHistoryPolicy(FlightHistory.Policy.OFF);
+		final List<GameConfig> games = new ArrayList<GameConfig>();
+		for (Class<Player> player : config.getPlayerList()) {
+			for (File board : config.getBoardList()) {
+				GameConfig game = (GameConfig) config.clone();
+				game.setPlayerClass(player);
+				game.setSelectedBoard(board);
+				games.add(game);
+			}
+		}
+
+		final List<String> serial = new ArrayList<String>();
+		Engine engine = new Engine(config);
+		for (GameConfig game : games)
+			serial.add(engine.play(game));
+
+		final CyclicBarrier start = new CyclicBarrier(THREADS);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<List<String>>> threads = new ArrayList<Future<List<String>>>();
+			for (int t = 0; t < THREADS; t++) {
+				// every thread plays every game, starting at a different one
+				final int offset = t * games.size() / THREADS;
+				threads.add(executor.submit(new Callable<List<String>>() {
+					public List<String> call() throws Exception {
+						Engine engine = new Engine((GameConfig) games.get(0).clone());
+						List<String> results = new ArrayList<String>();
+						for (int i = 0; i < games.size(); i++)
+							results.add(null);
+						start.await();
+						for (int k = 0; k < games.size(); k++) {
+							int i = (offset + k) % games.size();
+							results.set(i, engine.play(games.get(i)));
+						}
+						return results;
+					}
+				}));
+			}
+			for (Future<List<String>> thread : threads)
+				assertEquals(serial, thread.get());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/*
+	 * One engine, used for one game after the other.
+	 */
+	private static final class Engine {
+		private final GameEngine engine;
+		private final HeadlessRunner runner;
+
+		Engine(GameConfig config) {
+			engine = new GameEngine(config);
+			runner = new HeadlessRunner(engine);
+		}
+
+		String play(GameConfig game) {
+			GameConfig config = engine.getConfig();
+			config.setPlayerClass(game.getPlayerClass());
+			config.setSelectedBoard(game.getSelectedBoard());
+			GameUpdateType outcome = runner.runGame();
+			return GameController.resultOf(config, engine, outcome).toString();
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package airplane.sim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import airplane.g0.SerializedPlayer;
+
+/**
+ * A flight may leave the ground in the round of its departure time or later,
+ * never before.
+ */
+public class DepartureTimeTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private GameEngine engine;
+
+	@Before
+	public void setUp() throws IOException {
+		File board = Games.writeBoard(folder.newFile("board.txt"), "10,10;50,50;0", "90,90;60,20;5");
+		engine = Games.newGame(SerializedPlayer.class, board);
+	}
+
+	@Test
+	public void takingOffBeforeTheDepartureTimeIsAnError() {
+		double[] bearings = {towardsDestination(0), towardsDestination(1)};
+		assertRejectedBeforeAnythingMoves(bearings);
+	}
+
+	@Test
+	public void anyBearingAboveMinusOneCountsAsTakingOff() {
+		assertRejectedBeforeAnythingMoves(new double[] {-1, -0.5});
+	}
+
+	@Test
+	public void flightsInTheAirDoNotMoveInTheRejectedRound() {
+		for (int round = 1; round <= 3; round++)
+			assertTrue(engine.step(new double[] {towardsDestination(0), -1}));
+		assertRejectedBeforeAnythingMoves(new double[] {towardsDestination(0), towardsDestination(1)});
+	}
+
+	/*
+	 * Checks that the round is rejected as a take-off before the departure
+	 * time, with the power, the delay and every flight as they were before
+	 * it, even those that come before the early flight.
+	 */
+	private void assertRejectedBeforeAnythingMoves(double[] bearings) {
+		FlightState flights = engine.getBoard().getFlightState();
+		int power = engine.getPower();
+		int delay = engine.getDelay();
+		double[] before = new double[3 * flights.size()];
+		for (int i = 0; i < flights.size(); i++) {
+			before[3 * i] = flights.getX(i);
+			before[3 * i + 1] = flights.getY(i);
+			before[3 * i + 2] = flights.getBearing(i);
+		}
+		assertFalse(engine.step(bearings));
+		assertEquals("Error! Plane took off before its departure time!", engine.getErrorMessage());
+		assertEquals(power, engine.getPower());
+		assertEquals(delay, engine.getDelay());
+		for (int i = 0; i < flights.size(); i++) {
+			assertEquals(before[3 * i], flights.getX(i), 0);
+			assertEquals(before[3 * i + 1], flights.getY(i), 0);
+			assertEquals(before[3 * i + 2], flights.getBearing(i), 0);
+		}
+	}
+
+	@Test
+	public void takingOffOnTheDepartureTimeIsAllowed() {
+		for (int round = 1; round < 5; round++)
+			assertTrue(engine.step(new double[] {towardsDestination(0), -1}));
+		assertTrue(engine.step(new double[] {towardsDestination(0), towardsDestination(1)}));
+		assertEquals(5, engine.getCurrentRound());
+		assertEquals(6, engine.getPower());
+		assertEquals(null, engine.getErrorMessage());
+	}
+
+	@Test
+	public void waitingAfterTheDepartureTimeIsDelay() {
+		for (int round = 1; round <= 7; round++)
+			assertTrue(engine.step(new double[] {-1, -1}));
+		// flight 0 is due from round 0 and flight 1 from round 5
+		assertEquals(7 + 3, engine.getDelay());
+	}
+
+	private double towardsDestination(int i) {
+		return Player.calculateBearing(engine.getBoard().getFlightState().getPlanes().get(i));
+	}
+}
@@ -0,0 +1,120 @@
+package airplane.sim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import airplane.g0.SerializedPlayer;
+
+/**
+ * A schedule whose dependencies can never all be met is rejected when it is
+ * loaded; the dependencies of any other schedule are indexed both ways.
+ */
+public class DependencyIndexTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void selfDependencyIsALoadError() throws IOException {
+		assertRejected("depends on itself", "1,1;2,2;0", "3,3;4,4;0;1");
+	}
+
+	@Test
+	public void selfDependencyStopsTheGameFromBeingSetUp() throws IOException {
+		File board = Games.writeBoard(folder.newFile("self.txt"), "1,1;2,2;0", "3,3;4,4;0;0,1");
+		assertFalse(new GameEngine(Games.newConfig(SerializedPlayer.class, board)).setUpGame());
+	}
+
+	@Test
+	public void missingDependencyIsALoadError() throws IOException {
+		assertRejected("depends on flight 2, which does not exist", "1,1;2,2;0", "3,3;4,4;0;0,2");
+		assertRejected("depends on flight -1, which does not exist", "1,1;2,2;0;-1");
+	}
+
+	@Test
+	public void cycleIsALoadError() throws IOException {
+		// 3 is stuck behind the cycle without being on it
+		String message = assertRejected("cycle", "1,1;2,2;0;2", "3,3;4,4;0;0", "5,5;6,6;0;1", "7,7;8,8;0;0", "9,9;1,1;0");
+		assertTrue(message, message.contains("The dependencies of 4 flights can never be met"));
+		assertTrue(message, message.contains("0 -> 2 -> 1 -> 0"));
+	}
+
+	@Test
+	public void dependenciesAreIndexedBothWays() throws IOException {
+		DependencyIndex index = load("1,1;2,2;0", "3,3;4,4;0;0", "5,5;6,6;0;0,1", "7,7;8,8;0; ");
+		assertEquals(4, index.size());
+		assertEquals(0, index.getDependencyCount(0));
+		assertEquals(2, index.getDependencyCount(2));
+		assertEquals(1, index.getDependency(2, 1));
+		assertEquals(0, index.getDependencyCount(3));
+		assertEquals(2, index.getDependentCount(0));
+		assertEquals(1, index.getDependent(0, 0));
+		assertEquals(2, index.getDependent(0, 1));
+		assertEquals(1, index.getDependentCount(1));
+		assertEquals(2, index.getDependent(1, 0));
+		assertEquals(0, index.getDependentCount(2));
+	}
+
+	@Test
+	public void countersFollowLandingsAndTakeOffs() throws IOException {
+		DependencyIndex.Counters counters = load("1,1;2,2;0", "3,3;4,4;0;0", "5,5;6,6;0;0,1").newCounters();
+		assertTrue(counters.haveLanded(0));
+		assertFalse(counters.haveLanded(1));
+		assertFalse(counters.haveLanded(2));
+
+		counters.land(0);
+		// landing twice counts once
+		counters.land(0);
+		assertTrue(counters.hasLanded(0));
+		assertTrue(counters.haveLanded(1));
+		assertFalse(counters.haveLanded(2));
+		counters.land(1);
+		assertTrue(counters.haveLanded(2));
+
+		counters.takeOff(0);
+		counters.takeOff(0);
+		assertFalse(counters.hasLanded(0));
+		assertFalse(counters.haveLanded(1));
+		assertFalse(counters.haveLanded(2));
+
+		counters.reset();
+		assertFalse(counters.hasLanded(1));
+		assertFalse(counters.haveLanded(1));
+	}
+
+	private DependencyIndex load(String... lines) throws IOException {
+		return new DependencyIndex(FlightFileReader.readAll(Games.writeBoard(folder.newFile(), lines)));
+	}
+
+	/*
+	 * Checks that both the index and Board.load reject the schedule, and
+	 * returns the index's message.
+	 */
+	private String assertRejected(String expected, String... lines) throws IOException {
+		File file = Games.writeBoard(folder.newFile(), lines);
+		String message = null;
+		try {
+			new DependencyIndex(FlightFileReader.readAll(file));
+			fail("the dependencies were accepted");
+		} catch (IOException e) {
+			message = e.getMessage();
+			assertTrue(message, message.contains(expected));
+		}
+		try {
+			new Board(100, 100).load(file);
+			fail("the board was loaded");
+		} catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains(expected));
+		}
+		return message;
+	}
+}
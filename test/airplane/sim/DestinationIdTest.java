@@ -0,0 +1,57 @@
+package airplane.sim;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import airplane.g0.SerializedPlayer;
+
+/**
+ * Planes share a destination id exactly when they fly to the same point.
+ */
+public class DestinationIdTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void idsFollowTheFirstAppearanceOfEachDestination() throws IOException {
+		File board = Games.writeBoard(folder.newFile("board.txt"), "1,1;50,50;0", "2,2;10,20;0", "3,3;50,50;1",
+				"4,4;20,10;2", "5,5;10,20;3");
+		assertArrayEquals(new int[] {0, 1, 0, 2, 1}, FlightFileReader.readAll(board).getDestinationIds());
+
+		GameEngine engine = Games.newGame(SerializedPlayer.class, board);
+		List<Plane> planes = engine.getBoard().getFlightState().getPlanes();
+		for (int i = 0; i < planes.size(); i++)
+			assertEquals(new int[] {0, 1, 0, 2, 1}[i], planes.get(i).getDestinationId());
+		assertEquals(1, new Plane(planes.get(4)).getDestinationId());
+	}
+
+	@Test
+	public void bundledBoardsMatchTheDestinationPoints() throws IOException {
+		File[] boards = new File("flights").listFiles();
+		assertTrue(boards != null && boards.length > 0);
+		for (File board : boards) {
+			if (!board.getName().endsWith(".txt"))
+				continue;
+			FlightSchedule schedule = FlightFileReader.readAll(board);
+			int[] ids = schedule.getDestinationIds();
+			for (int i = 0; i < schedule.size(); i++) {
+				assertTrue(board.getName(), ids[i] >= 0 && ids[i] < schedule.size());
+				for (int j = 0; j < i; j++) {
+					boolean same = schedule.getDestinationX(i) == schedule.getDestinationX(j)
+							&& schedule.getDestinationY(i) == schedule.getDestinationY(j);
+					assertEquals(board.getName() + ", flights " + j + " and " + i, same, ids[i] == ids[j]);
+				}
+			}
+		}
+	}
+}
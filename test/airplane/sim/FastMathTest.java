@@ -0,0 +1,228 @@
+package airplane.sim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * FastMath keeps to the bounds it documents, all the way round the circle
+ * and on the boundaries between quadrants, and a player that does not ask
+ * for it simulates exactly as the game plays.
+ */
+public class FastMathTest {
+
+	private static final double SINE_BOUND = 5e-8;
+	private static final double ATAN_BOUND = 1e-5;
+
+	// on the boundaries, and just either side of them and of the table steps
+	private static final double[] OFFSETS = {0, 1e-18, -1e-18, 1e-12, -1e-12, 1e-9, -1e-9, 1e-6, -1e-6, 1.0 / 64,
+			-1.0 / 64, 1.0 / 32, -1.0 / 32, 1.0 / 32 - 1e-9, -1.0 / 32 + 1e-9};
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void sineAndCosineStayWithinTheirBound() {
+		for (int k = -1100000; k <= 1100000; k++) {
+			double degrees = k * 0.00131;
+			assertSineAndCosine(degrees);
+		}
+		Random random = new Random(19);
+		for (int n = 0; n < 200000; n++)
+			assertSineAndCosine(random.nextDouble() * 1440 - 720);
+	}
+
+	@Test
+	public void sineAndCosineStayWithinTheirBoundAroundTheAxes() {
+		for (int k = -8; k <= 8; k++) {
+			for (double offset : OFFSETS)
+				assertSineAndCosine(k * 90 + offset);
+		}
+		assertSineAndCosine(Math.nextDown(360.0));
+		assertSineAndCosine(Math.nextUp(-360.0));
+	}
+
+	@Test
+	public void atan2StaysWithinItsBound() {
+		double[] radii = {1e-6, 1, 100, 1e6};
+		for (double r : radii) {
+			for (int k = -180000; k <= 180000; k++) {
+				double radians = Math.toRadians(k * 0.001);
+				assertAtan2(r * Math.sin(radians), r * Math.cos(radians));
+			}
+		}
+		Random random = new Random(20);
+		for (int n = 0; n < 200000; n++)
+			assertAtan2(random.nextDouble() * 200 - 100, random.nextDouble() * 200 - 100);
+	}
+
+	@Test
+	public void atan2StaysWithinItsBoundOnTheQuadrantBoundaries() {
+		// on the axes, on the diagonals between the two halves of the table,
+		// and just off both
+		double[] magnitudes = {0, 1e-300, 1e-9, Math.nextDown(1.0), 1, Math.nextUp(1.0), 1 + 1e-9, 100, 1e9};
+		List<Double> values = new ArrayList<Double>();
+		for (double m : magnitudes) {
+			values.add(m);
+			values.add(-m);
+		}
+		for (double y : values) {
+			for (double x : values)
+				assertAtan2(y, x);
+		}
+		// and the edges, exactly as Math.atan2 has them
+		assertEquals(180, FastMath.atan2Deg(0.0, -1), 0);
+		assertEquals(-180, FastMath.atan2Deg(-0.0, -1), 0);
+		assertEquals(90, FastMath.atan2Deg(1, 0), 0);
+		assertEquals(-90, FastMath.atan2Deg(-1, 0), 0);
+		assertEquals(0, FastMath.atan2Deg(0.0, 1), 0);
+	}
+
+	@Test
+	public void bearingsStayWithinTheBound() {
+		Random random = new Random(21);
+		for (int n = 0; n < 200000; n++) {
+			double x1 = random.nextDouble() * 100;
+			double y1 = random.nextDouble() * 100;
+			double x2 = random.nextDouble() * 100;
+			double y2 = random.nextDouble() * 100;
+			assertBearing(x1, y1, x2, y2);
+			// due north, south, east and west, and just off them
+			assertBearing(x1, y1, x1, y2);
+			assertBearing(x1, y1, x2, y1);
+			assertBearing(x1, y1, Math.nextUp(x1), y2);
+			assertBearing(x1, y1, x2, Math.nextDown(y1));
+		}
+	}
+
+	@Test
+	public void exactMathSimulatesAsTheGamePlays() throws IOException {
+		// flights in most directions, none of them coming close to another
+		File board = Games.writeBoard(folder.newFile("board.txt"), "5,5;95,60;0", "95,95;10,70;0", "95,40;60,5;3",
+				"50,95;50,85;1", "5,90;5,80;2");
+		List<String> game = play(Games.newGame(StraightPlayer.class, board));
+
+		StraightPlayer exact = new StraightPlayer();
+		exact.setFastMath(false);
+		assertEquals(game, exact.simulate(planes(board)));
+
+		// and the comparison can tell FastMath apart
+		StraightPlayer fast = new StraightPlayer();
+		fast.setFastMath(true);
+		assertFalse(game.equals(fast.simulate(planes(board))));
+	}
+
+	private static ArrayList<Plane> planes(File board) {
+		return Games.newGame(StraightPlayer.class, board).getBoard().getFlightState().getPlanes();
+	}
+
+	private static void assertSineAndCosine(double degrees) {
+		double radians = Math.toRadians(degrees);
+		assertEquals("sine of " + degrees, Math.sin(radians), FastMath.sinDeg(degrees), SINE_BOUND);
+		assertEquals("cosine of " + degrees, Math.cos(radians), FastMath.cosDeg(degrees), SINE_BOUND);
+	}
+
+	private static void assertAtan2(double y, double x) {
+		assertEquals("atan2 of " + y + ", " + x, Math.toDegrees(Math.atan2(y, x)), FastMath.atan2Deg(y, x),
+				ATAN_BOUND);
+	}
+
+	private static void assertBearing(double x1, double y1, double x2, double y2) {
+		double difference = Math.abs(Player.calculateBearingFast(x1, y1, x2, y2) - Player.calculateBearing(x1, y1, x2, y2));
+		// 359.99999 and 0 are as close as 0 and 0.00001
+		difference = Math.min(difference, 360 - difference);
+		assertTrue("bearing from " + x1 + ", " + y1 + " to " + x2 + ", " + y2 + " is off by " + difference,
+				difference <= ATAN_BOUND);
+	}
+
+	/*
+	 * Plays the game to the end with every flight going straight to its
+	 * destination as soon as it is due, returning the state before each round
+	 * and at the end.
+	 */
+	private static List<String> play(GameEngine engine) {
+		FlightState flights = engine.getBoard().getFlightState();
+		List<String> rounds = new ArrayList<String>();
+		while (true) {
+			rounds.add(state(flights.getPlanes()));
+			int round = engine.getCurrentRound() + 1;
+			double[] bearings = new double[flights.size()];
+			for (int i = 0; i < bearings.length; i++)
+				bearings[i] = StraightPlayer.bearing(flights.getPlane(i), round);
+			if (!engine.step(bearings))
+				break;
+		}
+		assertEquals(null, engine.getErrorMessage());
+		rounds.add(state(flights.getPlanes()));
+		return rounds;
+	}
+
+	/*
+	 * Every plane's position and bearing, with the doubles written as their
+	 * bits.
+	 */
+	private static String state(List<Plane> planes) {
+		StringBuilder state = new StringBuilder();
+		for (Plane p : planes) {
+			state.append(Double.doubleToLongBits(p.getX())).append(',').append(Double.doubleToLongBits(p.getY()))
+					.append(',').append(Double.doubleToLongBits(p.getBearing())).append(';');
+		}
+		return state.toString();
+	}
+
+	/*
+	 * Flies every plane straight to its destination as soon as it is due.
+	 */
+	public static class StraightPlayer extends Player {
+
+		private List<String> rounds;
+
+		public String getName() {
+			return "StraightPlayer";
+		}
+
+		public void startNewGame(ArrayList<Plane> planes) {
+		}
+
+		public double[] updatePlanes(ArrayList<Plane> planes, int round, double[] bearings) {
+			for (int i = 0; i < bearings.length; i++)
+				bearings[i] = bearing(planes.get(i), round);
+			return bearings;
+		}
+
+		/*
+		 * Simulates the game from its start, returning the state before each
+		 * round and at the end, as play() does.
+		 */
+		List<String> simulate(ArrayList<Plane> planes) {
+			rounds = new ArrayList<String>();
+			SimulationResult result = startSimulation(planes, 0);
+			assertTrue(result.isSuccess());
+			rounds.add(state(result.getPlanes()));
+			return rounds;
+		}
+
+		protected double[] simulateUpdate(ArrayList<Plane> planes, int round, double[] bearings) {
+			rounds.add(state(planes));
+			return updatePlanes(planes, round, bearings);
+		}
+
+		static double bearing(Plane p, int round) {
+			if (p.getBearing() == -2)
+				return -2;
+			if (p.getBearing() == -1 && p.getDepartureTime() > round)
+				return -1;
+			return calculateBearing(p);
+		}
+	}
+}
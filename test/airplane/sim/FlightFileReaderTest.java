@@ -0,0 +1,266 @@
+package airplane.sim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * FlightFileReader must read exactly what the String.split and
+ * Double.parseDouble based loader it replaced read, down to the bits of each
+ * coordinate.
+ */
+public class FlightFileReaderTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void bundledBoardsMatchStringParser() throws IOException {
+		File[] boards = new File("flights").listFiles();
+		assertTrue(boards != null && boards.length > 0);
+		for (File board : boards) {
+			if (board.getName().endsWith(".txt"))
+				assertSameFlights(board);
+		}
+	}
+
+	@Test
+	public void generatedBoardMatchesStringParser() throws IOException {
+		FlightScheduleGenerator generator = new FlightScheduleGenerator(5000);
+		generator.setSeed(7);
+		generator.setChains(0.3, 4);
+		File file = folder.newFile("generated.txt");
+		generator.write(file);
+		assertSameFlights(file);
+	}
+
+	@Test
+	public void numbersAreBitIdenticalToParseDouble() throws IOException {
+		Random random = new Random(1);
+		File file = folder.newFile("numbers.txt");
+		Writer out = new FileWriter(file);
+		try {
+			for (int i = 0; i < 20000; i++)
+				out.write(number(random) + "," + number(random) + ";" + number(random) + "," + number(random) + ";" + i + "\n");
+		} finally {
+			out.close();
+		}
+		assertSameFlights(file);
+	}
+
+	@Test
+	public void malformedLinesAreSkipped() throws IOException {
+		File file = write("malformed.txt",
+				"1,2;3,4;0",
+				"",
+				"1,2;3,4",
+				"1;3,4;5",
+				"1,;3,4;5",
+				"1,,;3,4;5",
+				"1,2;3,4;;",
+				" 5.5 , 6.25 ; 7,8 ; 9 ; 0 , 1,,2 ",
+				"1,2,3;4,5;6;",
+				"1,2;3,4;7;\r");
+		assertSameFlights(file);
+		FlightSchedule schedule = FlightFileReader.readAll(file);
+		assertEquals(4, schedule.size());
+		assertFalse(schedule.listsDependencies(0));
+		assertEquals(3, schedule.getDependencyCount(1));
+		assertEquals(2, schedule.getDependency(1, 2));
+		assertFalse(schedule.listsDependencies(3));
+	}
+
+	@Test
+	public void lineEndingsMatchBufferedReader() throws IOException {
+		// old Mac, Windows and mixed line endings, with empty lines between
+		File mac = writeText("mac.txt", "1,2;3,4;0\r5,6;7,8;1\r\r9,10;11,12;2;0,1\r");
+		assertSameFlights(mac);
+		assertEquals(3, FlightFileReader.readAll(mac).size());
+		File windows = writeText("windows.txt", "1,2;3,4;0\r\n5,6;7,8;1\r\n\r\n9,10;11,12;2;0,1");
+		assertSameFlights(windows);
+		assertEquals(3, FlightFileReader.readAll(windows).size());
+		File mixed = writeText("mixed.txt", "1,2;3,4;0\n5,6;7,8;1\r\n9,10;11,12;2\r\r\n\n\r13,14;15,16;3;2\r");
+		assertSameFlights(mixed);
+		assertEquals(4, FlightFileReader.readAll(mixed).size());
+
+		// a "\r\n" split between two reads of the buffer, which is 64 KB
+		StringBuilder text = new StringBuilder("1,2;3,4;0");
+		while (text.length() < (1 << 16) - 1)
+			text.append(' ');
+		text.append("\r\n5,6;7,8;1\r");
+		File split = writeText("split.txt", text.toString());
+		assertSameFlights(split);
+		assertEquals(2, FlightFileReader.readAll(split).size());
+
+		// and at random, across many reads of the buffer
+		String[] endings = {"\n", "\r", "\r\n", "\r\r", "\n\r"};
+		Random random = new Random(2);
+		text = new StringBuilder();
+		for (int i = 0; i < 20000; i++)
+			text.append(number(random) + "," + number(random) + ";" + number(random) + "," + number(random) + ";" + i)
+					.append(endings[random.nextInt(endings.length)]);
+		assertSameFlights(writeText("random.txt", text.toString()));
+	}
+
+	@Test
+	public void nextDepartingByStopsAtLaterFlights() throws IOException {
+		File file = write("sorted.txt", "1,1;2,2;0", "1,1;2,2;0", "1,1;2,2;3", "1,1;2,2;5");
+		FlightFileReader reader = new FlightFileReader(file);
+		try {
+			assertTrue(reader.nextDepartingBy(0));
+			assertTrue(reader.nextDepartingBy(0));
+			assertFalse(reader.nextDepartingBy(0));
+			assertFalse(reader.nextDepartingBy(2));
+			assertTrue(reader.nextDepartingBy(4));
+			assertEquals(2, reader.getIndex());
+			assertEquals(3, reader.getDepartureTime());
+			assertFalse(reader.nextDepartingBy(4));
+			assertTrue(reader.nextDepartingBy(5));
+			assertFalse(reader.nextDepartingBy(100));
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void nextDepartingByRejectsUnsortedFiles() throws IOException {
+		File file = write("unsorted.txt", "1,1;2,2;4", "1,1;2,2;2");
+		FlightFileReader reader = new FlightFileReader(file);
+		try {
+			assertTrue(reader.nextDepartingBy(10));
+			reader.nextDepartingBy(10);
+			fail("an unsorted file was streamed");
+		} catch (IOException e) {
+			// expected
+		} finally {
+			reader.close();
+		}
+	}
+
+	/*
+	 * Short decimals, which take the fast path, and long ones, exponents and
+	 * signs, which do not.
+	 */
+	private static String number(Random random) {
+		switch (random.nextInt(6)) {
+		case 0:
+			return Integer.toString(random.nextInt(101));
+		case 1:
+			return (random.nextInt(1000) / 10.0) + "";
+		case 2:
+			return String.format(Locale.ROOT, "%." + (1 + random.nextInt(14)) + "f", random.nextDouble() * 100);
+		case 3:
+			return Double.toString(random.nextDouble() * 100);
+		case 4:
+			return "-" + random.nextInt(100) + "." + random.nextInt(100000);
+		default:
+			return random.nextInt(100) + "e-" + random.nextInt(3);
+		}
+	}
+
+	private File write(String name, String... lines) throws IOException {
+		File file = folder.newFile(name);
+		Writer out = new FileWriter(file);
+		try {
+			for (String line : lines)
+				out.write(line + "\n");
+		} finally {
+			out.close();
+		}
+		return file;
+	}
+
+	private File writeText(String name, String text) throws IOException {
+		File file = folder.newFile(name);
+		Writer out = new FileWriter(file);
+		try {
+			out.write(text);
+		} finally {
+			out.close();
+		}
+		return file;
+	}
+
+	private static void assertSameFlights(File file) throws IOException {
+		List<double[]> expected = parseWithStrings(file);
+		FlightSchedule schedule = FlightFileReader.readAll(file);
+		assertEquals(file.getName(), expected.size(), schedule.size());
+		for (int i = 0; i < schedule.size(); i++) {
+			double[] e = expected.get(i);
+			String where = file.getName() + ", flight " + i;
+			assertBits(where, e[0], schedule.getOriginX(i));
+			assertBits(where, e[1], schedule.getOriginY(i));
+			assertBits(where, e[2], schedule.getDestinationX(i));
+			assertBits(where, e[3], schedule.getDestinationY(i));
+			assertEquals(where, (int) e[4], schedule.getDepartureTime(i));
+			assertEquals(where, e[5] >= 0, schedule.listsDependencies(i));
+			int count = Math.max(0, (int) e[5]);
+			assertEquals(where, count, schedule.getDependencyCount(i));
+			for (int k = 0; k < count; k++)
+				assertEquals(where, (int) e[6 + k], schedule.getDependency(i, k));
+		}
+	}
+
+	private static void assertBits(String where, double expected, double actual) {
+		assertEquals(where + ": " + expected + " read as " + actual, Double.doubleToLongBits(expected),
+				Double.doubleToLongBits(actual));
+	}
+
+	/*
+	 * The loader FlightFileReader replaced, with dependency entries trimmed.
+	 * Each flight is origin, destination, departure, the number of
+	 * dependencies (-1 for no dependency field) and the dependencies.
+	 */
+	private static List<double[]> parseWithStrings(File file) throws IOException {
+		List<double[]> flights = new ArrayList<double[]>();
+		BufferedReader in = new BufferedReader(new FileReader(file));
+		try {
+			String line;
+			while ((line = in.readLine()) != null) {
+				String[] flight = line.split(";");
+				if (flight.length < 3)
+					continue;
+				String[] origin = flight[0].trim().split(",");
+				String[] destination = flight[1].trim().split(",");
+				if (origin.length < 2 || destination.length < 2)
+					continue;
+				List<Integer> dependencies = new ArrayList<Integer>();
+				if (flight.length > 3) {
+					for (String d : flight[3].trim().split(",")) {
+						if (d.trim().length() > 0)
+							dependencies.add(Integer.parseInt(d.trim()));
+					}
+				}
+				double[] f = new double[6 + dependencies.size()];
+				f[0] = Double.parseDouble(origin[0]);
+				f[1] = Double.parseDouble(origin[1]);
+				f[2] = Double.parseDouble(destination[0]);
+				f[3] = Double.parseDouble(destination[1]);
+				f[4] = Integer.parseInt(flight[2].trim());
+				f[5] = flight.length > 3 ? dependencies.size() : -1;
+				for (int k = 0; k < dependencies.size(); k++)
+					f[6 + k] = dependencies.get(k);
+				flights.add(f);
+			}
+		} finally {
+			in.close();
+		}
+		return flights;
+	}
+}
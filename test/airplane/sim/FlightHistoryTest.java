@@ -0,0 +1,165 @@
+package airplane.sim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * A COMPRESSED history reads back every position within 2e-6 of the one
+ * added, a RING history keeps exactly the last positions, and truncate()
+ * leaves each as if the later positions had never been added.
+ */
+public class FlightHistoryTest {
+
+	private static final double BOUND = 2e-6;
+
+	@Test
+	public void compressedStaysWithinItsBound() {
+		Random random = new Random(21);
+		double[][] path = flight(random, 20000);
+		FlightHistory history = FlightHistory.compressed();
+		for (double[] p : path)
+			history.add(p[0], p[1]);
+		assertEquals(path.length, history.size());
+		assertEquals(path.length, history.getCount());
+
+		// in order, as drawing reads them, backwards and at random
+		for (int k = 0; k < path.length; k++)
+			assertClose(k, path[k], history);
+		for (int k = path.length - 1; k >= 0; k--)
+			assertClose(k, path[k], history);
+		for (int n = 0; n < 20000; n++) {
+			int k = random.nextInt(path.length);
+			assertClose(k, path[k], history);
+		}
+	}
+
+	@Test
+	public void compressedStaysWithinItsBoundAfterTruncating() {
+		Random random = new Random(22);
+		double[][] path = flight(random, 5000);
+		FlightHistory history = FlightHistory.compressed();
+		int size = 0;
+		while (size < path.length) {
+			// add a stretch, then take part of it back as a restore would
+			int end = Math.min(path.length, size + 1 + random.nextInt(300));
+			for (int k = size; k < end; k++)
+				history.add(path[k][0], path[k][1]);
+			size = Math.max(size, end - random.nextInt(150));
+			history.truncate(size);
+			assertEquals(size, history.size());
+			// reading part of the way through before adding moves the cursor
+			if (size > 0)
+				assertClose(size / 2, path[size / 2], history);
+		}
+		for (int k = 0; k < path.length; k++)
+			assertClose(k, path[k], history);
+	}
+
+	@Test
+	public void ringKeepsTheLastPositionsExactly() {
+		Random random = new Random(23);
+		double[][] path = flight(random, 1000);
+		FlightHistory history = FlightHistory.ring(100);
+		for (int n = 0; n < path.length; n++) {
+			history.add(path[n][0], path[n][1]);
+			int size = Math.min(n + 1, 100);
+			assertEquals(size, history.size());
+			assertEquals(n + 1, history.getCount());
+			for (int k = 0; k < size; k++) {
+				assertEquals(path[n + 1 - size + k][0], history.getX(k), 0);
+				assertEquals(path[n + 1 - size + k][1], history.getY(k), 0);
+			}
+		}
+	}
+
+	@Test
+	public void ringTruncateDropsTheLatestPositions() {
+		FlightHistory history = FlightHistory.ring(4);
+		for (int n = 0; n < 10; n++)
+			history.add(n, -n);
+		history.truncate(8);
+		assertEquals(8, history.getCount());
+		// 6 and 7 are kept; 4 and 5 were overwritten and do not come back
+		assertEquals(2, history.size());
+		assertEquals(6, history.getX(0), 0);
+		assertEquals(-7, history.getY(1), 0);
+		history.add(20, 21);
+		assertEquals(3, history.size());
+		assertEquals(20, history.getX(2), 0);
+
+		history.truncate(3);
+		assertEquals(0, history.size());
+		assertEquals(3, history.getCount());
+		history.add(1, 2);
+		assertEquals(1, history.size());
+		assertEquals(2, history.getY(0), 0);
+		// truncating to a later count does nothing
+		history.truncate(10);
+		assertEquals(4, history.getCount());
+	}
+
+	@Test
+	public void offKeepsNothing() {
+		FlightHistory history = FlightHistory.create(FlightHistory.Policy.OFF, 10);
+		assertTrue(history == FlightHistory.off());
+		history.add(1, 2);
+		assertEquals(0, history.size());
+		assertEquals(0, history.getCount());
+		assertEquals(0, history.toList().size());
+		try {
+			history.getX(0);
+			fail("OFF returned a position");
+		} catch (IndexOutOfBoundsException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void createGoesByPolicy() {
+		for (FlightHistory.Policy policy : FlightHistory.Policy.values())
+			assertEquals(policy, FlightHistory.create(policy, 5).getPolicy());
+		FlightHistory history = FlightHistory.create(FlightHistory.Policy.COMPRESSED, 5);
+		history.add(3, 4);
+		history.add(4, 4);
+		history.clear();
+		assertEquals(0, history.size());
+		assertEquals(0, history.getCount());
+	}
+
+	/*
+	 * A plane's path: moves of Plane.VELOCITY in a bearing that drifts and
+	 * now and then turns, within the 100 by 100 board.
+	 */
+	private static double[][] flight(Random random, int length) {
+		double[][] path = new double[length][];
+		double x = random.nextDouble() * 100;
+		double y = random.nextDouble() * 100;
+		double bearing = random.nextDouble() * 360;
+		for (int k = 0; k < length; k++) {
+			path[k] = new double[] {x, y};
+			bearing += random.nextInt(20) == 0 ? random.nextDouble() * 180 - 90 : random.nextDouble() * 10 - 5;
+			double radians = Math.toRadians(bearing - 90);
+			double nx = x + Math.cos(radians) * Plane.VELOCITY;
+			double ny = y + Math.sin(radians) * Plane.VELOCITY;
+			if (nx < 0 || nx > 100 || ny < 0 || ny > 100) {
+				bearing += 180;
+				radians = Math.toRadians(bearing - 90);
+				nx = x + Math.cos(radians) * Plane.VELOCITY;
+				ny = y + Math.sin(radians) * Plane.VELOCITY;
+			}
+			x = nx;
+			y = ny;
+		}
+		return path;
+	}
+
+	private static void assertClose(int k, double[] expected, FlightHistory history) {
+		assertEquals("x of position " + k, expected[0], history.getX(k), BOUND);
+		assertEquals("y of position " + k, expected[1], history.getY(k), BOUND);
+	}
+}
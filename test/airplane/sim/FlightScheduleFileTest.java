@@ -0,0 +1,173 @@
+package airplane.sim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * A schedule written to a ".flights" file, or back to text, must read back
+ * exactly as it was.
+ */
+public class FlightScheduleFileTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void bundledBoardsRoundTrip() throws IOException {
+		File[] boards = new File("flights").listFiles();
+		assertTrue(boards != null && boards.length > 0);
+		for (File board : boards) {
+			if (board.getName().endsWith(".txt"))
+				assertRoundTrips(FlightFileReader.readAll(board), board.getName());
+		}
+	}
+
+	@Test
+	public void largeGeneratedBoardRoundTrips() throws IOException {
+		// larger than the buffer the writer flushes from
+		FlightScheduleGenerator generator = new FlightScheduleGenerator(60000);
+		generator.setSeed(3);
+		generator.setChains(0.5, 6);
+		File text = folder.newFile("generated.txt");
+		generator.write(text);
+		FlightSchedule schedule = FlightFileReader.readAll(text);
+		assertTrue(schedule.getDependencyCount() > 0);
+		assertRoundTrips(schedule, "generated");
+	}
+
+	@Test
+	public void arbitraryDoublesRoundTrip() throws IOException {
+		Random random = new Random(5);
+		File text = folder.newFile("doubles.txt");
+		Writer out = new FileWriter(text);
+		try {
+			for (int i = 0; i < 5000; i++)
+				out.write(random.nextDouble() * 100 + "," + Math.nextUp(random.nextDouble()) + ";" + random.nextDouble() * 1e-3
+						+ "," + random.nextDouble() * 1e7 + ";" + i + "\n");
+		} finally {
+			out.close();
+		}
+		assertRoundTrips(FlightFileReader.readAll(text), "doubles");
+	}
+
+	@Test
+	public void emptyDependencyListStaysDifferentFromNone() throws IOException {
+		File text = write("lists.txt", "1,2;3,4;0", "1,2;3,4;1; ", "1,2;3,4;2;0,1");
+		FlightSchedule schedule = FlightFileReader.readAll(text);
+		assertFalse(schedule.listsDependencies(0));
+		assertTrue(schedule.listsDependencies(1));
+		assertEquals(0, schedule.getDependencyCount(1));
+		assertRoundTrips(schedule, "lists");
+	}
+
+	@Test
+	public void loadGoesByExtension() throws IOException {
+		File text = write("two.txt", "1,2;3,4;0", "5,6;7,8;1;0");
+		FlightSchedule schedule = FlightScheduleFile.load(text);
+		File binary = folder.newFile("two" + FlightScheduleFile.EXTENSION);
+		FlightScheduleFile.write(schedule, binary);
+		assertTrue(FlightScheduleFile.isBinary(binary));
+		assertFalse(FlightScheduleFile.isBinary(text));
+		assertSameSchedule("two", schedule, FlightScheduleFile.load(binary));
+	}
+
+	@Test
+	public void corruptFilesAreRejected() throws IOException {
+		FlightSchedule schedule = FlightFileReader.readAll(write("one.txt", "1,2;3,4;0;", "5,6;7,8;1;0"));
+		File binary = folder.newFile("one" + FlightScheduleFile.EXTENSION);
+
+		FlightScheduleFile.write(schedule, binary);
+		RandomAccessFile raf = new RandomAccessFile(binary, "rw");
+		try {
+			raf.setLength(raf.length() - 1);
+		} finally {
+			raf.close();
+		}
+		assertRejected(binary);
+
+		FlightScheduleFile.write(schedule, binary);
+		overwrite(binary, 0, 'X');
+		assertRejected(binary);
+
+		FlightScheduleFile.write(schedule, binary);
+		// the version
+		overwrite(binary, 4, 2);
+		assertRejected(binary);
+
+		assertRejected(write("short" + FlightScheduleFile.EXTENSION, "FLTS"));
+	}
+
+	private void assertRoundTrips(FlightSchedule schedule, String name) throws IOException {
+		File binary = folder.newFile(name + FlightScheduleFile.EXTENSION);
+		FlightScheduleFile.write(schedule, binary);
+		FlightSchedule fromBinary = FlightScheduleFile.read(binary);
+		assertSameSchedule(name + " (binary)", schedule, fromBinary);
+
+		File text = folder.newFile(name + ".copy.txt");
+		FlightScheduleFile.writeText(fromBinary, text);
+		assertSameSchedule(name + " (text)", schedule, FlightFileReader.readAll(text));
+	}
+
+	private static void assertSameSchedule(String name, FlightSchedule expected, FlightSchedule actual) {
+		assertEquals(name, expected.size(), actual.size());
+		assertEquals(name, expected.getDependencyCount(), actual.getDependencyCount());
+		for (int i = 0; i < expected.size(); i++) {
+			String where = name + ", flight " + i;
+			assertEquals(where, Double.doubleToLongBits(expected.getOriginX(i)), Double.doubleToLongBits(actual.getOriginX(i)));
+			assertEquals(where, Double.doubleToLongBits(expected.getOriginY(i)), Double.doubleToLongBits(actual.getOriginY(i)));
+			assertEquals(where, Double.doubleToLongBits(expected.getDestinationX(i)),
+					Double.doubleToLongBits(actual.getDestinationX(i)));
+			assertEquals(where, Double.doubleToLongBits(expected.getDestinationY(i)),
+					Double.doubleToLongBits(actual.getDestinationY(i)));
+			assertEquals(where, expected.getDepartureTime(i), actual.getDepartureTime(i));
+			assertEquals(where, expected.listsDependencies(i), actual.listsDependencies(i));
+			assertEquals(where, expected.getDependencyCount(i), actual.getDependencyCount(i));
+			for (int k = 0; k < expected.getDependencyCount(i); k++)
+				assertEquals(where, expected.getDependency(i, k), actual.getDependency(i, k));
+		}
+	}
+
+	private static void assertRejected(File binary) {
+		try {
+			FlightScheduleFile.read(binary);
+			fail(binary.getName() + " was read");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	private static void overwrite(File file, long position, int value) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.seek(position);
+			raf.write(value);
+		} finally {
+			raf.close();
+		}
+	}
+
+	private File write(String name, String... lines) throws IOException {
+		File file = folder.newFile(name);
+		Writer out = new FileWriter(file);
+		try {
+			for (String line : lines)
+				out.write(line + "\n");
+		} finally {
+			out.close();
+		}
+		return file;
+	}
+}
@@ -0,0 +1,82 @@
+package airplane.sim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import airplane.g0.SerializedPlayer;
+
+/**
+ * A player that crashes, even with an Error, loses its own game and nothing
+ * else.
+ */
+public class GameControllerTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void anErrorIsReportedAsACrash() {
+		GameConfig config = Games.newConfig(RecursivePlayer.class, new File("flights/Simple.txt"));
+		GameResult result = new GameController(1).GamePlay(config);
+		assertFalse(result.isSuccess());
+		assertTrue(result.getErrorMessage(), result.getErrorMessage().startsWith("Player crashed: java.lang.StackOverflowError"));
+	}
+
+	@Test
+	public void aCrashDoesNotStopTheTournament() throws IOException {
+		Properties properties = new Properties();
+		properties.setProperty("airplane.classes", RecursivePlayer.class.getName() + " " + SerializedPlayer.class.getName());
+		properties.setProperty("airplane.board.dir", new File("flights").getAbsolutePath());
+		File file = folder.newFile("tournament.xml");
+		OutputStream out = new FileOutputStream(file);
+		try {
+			properties.storeToXML(out, null);
+		} finally {
+			out.close();
+		}
+		GameConfig config = new GameConfig(file.getPath());
+		config.setHistoryPolicy(FlightHistory.Policy.OFF);
+		assertEquals(2, config.getPlayerList().size());
+
+		List<GameResult> results = new GameController(2).playTournament(config);
+		int boards = config.getBoardList().length;
+		assertEquals(2 * boards, results.size());
+		for (int k = 0; k < boards; k++) {
+			assertEquals(RecursivePlayer.class, results.get(k).getPlayerClass());
+			assertTrue(results.get(k).getErrorMessage().startsWith("Player crashed: java.lang.StackOverflowError"));
+			assertEquals(SerializedPlayer.class, results.get(boards + k).getPlayerClass());
+			assertTrue(results.get(boards + k).getErrorMessage() == null
+					|| !results.get(boards + k).getErrorMessage().startsWith("Player crashed"));
+		}
+	}
+
+	/*
+	 * Recurses without end on its first round.
+	 */
+	public static class RecursivePlayer extends Player {
+
+		public String getName() {
+			return "RecursivePlayer";
+		}
+
+		public void startNewGame(ArrayList<Plane> planes) {
+		}
+
+		public double[] updatePlanes(ArrayList<Plane> planes, int round, double[] bearings) {
+			return updatePlanes(planes, round + 1, bearings);
+		}
+	}
+}
@@ -0,0 +1,52 @@
+package airplane.sim;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Helpers for the tests that play games.
+ */
+final class Games {
+
+	private Games() {
+	}
+
+	/**
+	 * Returns the configuration in airplane.xml with the given player and
+	 * board selected.
+	 */
+	@SuppressWarnings("unchecked")
+	static GameConfig newConfig(Class<? extends Player> player, File board) {
+		GameConfig config = new GameConfig("airplane.xml");
+		config.setPlayerClass((Class<Player>) player);
+		config.setSelectedBoard(board);
+		return config;
+	}
+
+	/**
+	 * Returns an engine with a game of the given player on the given board
+	 * set up, ready for its first round.
+	 */
+	static GameEngine newGame(Class<? extends Player> player, File board) {
+		GameEngine engine = new GameEngine(newConfig(player, board));
+		if (!engine.setUpGame())
+			throw new IllegalStateException("could not set up " + board + ": " + engine.getErrorMessage());
+		return engine;
+	}
+
+	/**
+	 * Writes a flight file with the given lines.
+	 */
+	static File writeBoard(File file, String... lines) throws IOException {
+		Writer out = new FileWriter(file);
+		try {
+			for (String line : lines)
+				out.write(line + "\n");
+		} finally {
+			out.close();
+		}
+		return file;
+	}
+}
@@ -0,0 +1,98 @@
+package airplane.sim;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import airplane.g0.SerializedPlayer;
+import airplane.g17.GroupSeventeenPlayerScramble;
+import airplane.g4.Group4Player2;
+import airplane.g4.Group4Player3;
+import airplane.g4.Group4Player4;
+
+/**
+ * Players must work on any list of planes, not only on those of a game:
+ * planes built by hand have no destination ids, and the players that keep
+ * per-destination state must play them exactly as they play the game's own.
+ */
+public class HandBuiltPlanesTest {
+
+	private static final int MAX_ROUNDS = 10000;
+
+	@SuppressWarnings("unchecked")
+	private static final Class<? extends Player>[] PLAYERS = new Class[] {Group4Player2.class, Group4Player3.class,
+			Group4Player4.class, GroupSeventeenPlayerScramble.class};
+
+	@Test
+	public void destinationIdsAreWorkedOutForHandBuiltPlanes() {
+		for (File board : boards()) {
+			ArrayList<Plane> game = gamePlanes(board);
+			ArrayList<Plane> handBuilt = handBuilt(game);
+			assertEquals(-1, handBuilt.get(0).getDestinationId());
+			assertArrayEquals(board.getName(), Player.getDestinationIds(game), Player.getDestinationIds(handBuilt));
+		}
+	}
+
+	@Test
+	public void playersPlayHandBuiltPlanesAsTheyPlayTheGames() throws Exception {
+		for (Class<? extends Player> playerClass : PLAYERS) {
+			for (File board : boards()) {
+				ArrayList<Plane> game = gamePlanes(board);
+				String where = playerClass.getSimpleName() + " on " + board.getName();
+				assertEquals(where, play(playerClass, game), play(playerClass, handBuilt(game)));
+			}
+		}
+	}
+
+	private static File[] boards() {
+		File[] boards = new File("flights").listFiles();
+		assertTrue(boards != null && boards.length > 0);
+		ArrayList<File> text = new ArrayList<File>();
+		for (File board : boards) {
+			if (board.getName().endsWith(".txt"))
+				text.add(board);
+		}
+		return text.toArray(new File[text.size()]);
+	}
+
+	private static ArrayList<Plane> gamePlanes(File board) {
+		return Games.newGame(SerializedPlayer.class, board).getBoard().getFlightState().getPlanes();
+	}
+
+	private static ArrayList<Plane> handBuilt(ArrayList<Plane> planes) {
+		ArrayList<Plane> copies = new ArrayList<Plane>();
+		for (Plane p : planes)
+			copies.add(new Plane(p.getX(), p.getY(), p.getDestX(), p.getDestY(), p.getDepartureTime(), p.getDependencies()));
+		return copies;
+	}
+
+	/*
+	 * Plays the planes with a new player in a simulation, and returns how it
+	 * ended and where every plane was.
+	 */
+	private static String play(Class<? extends Player> playerClass, ArrayList<Plane> planes) throws Exception {
+		final Player player = playerClass.getDeclaredConstructor().newInstance();
+		player.startNewGame(planes);
+		final SimulationContext context = new SimulationContext();
+		SimulationResult result = context.run(new SimulationPlan() {
+			public double[] simulateUpdate(ArrayList<Plane> planes, int round, double[] bearings) {
+				if (round >= MAX_ROUNDS)
+					context.stop();
+				return player.updatePlanes(planes, round, bearings);
+			}
+		}, planes, 0);
+		StringBuilder state = new StringBuilder();
+		state.append(result.getReason()).append(';').append(result.getRound());
+		for (Plane p : result.getPlanes()) {
+			state.append('\n').append(Double.doubleToLongBits(p.getX())).append(',')
+					.append(Double.doubleToLongBits(p.getY())).append(',')
+					.append(Double.doubleToLongBits(p.getBearing()));
+		}
+		return state.toString();
+	}
+}
@@ -0,0 +1,142 @@
+package airplane.sim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * IntUnionFind must group the elements as a plain relabelling union-find
+ * does, with the components in the order of their first added member and the
+ * members in the order they were added.
+ */
+public class IntUnionFindTest {
+
+	@Test
+	public void componentsMatchReference() {
+		Random random = new Random(11);
+		// starts small, so that it has to grow
+		IntUnionFind sets = new IntUnionFind(1);
+		for (int round = 0; round < 500; round++) {
+			sets.reset();
+			Reference reference = new Reference();
+			int range = 1 + random.nextInt(round < 250 ? 50 : 2000);
+			int adds = random.nextInt(range + 1);
+			for (int k = 0; k < adds; k++) {
+				int x = random.nextInt(range);
+				sets.add(x);
+				reference.add(x);
+			}
+			assertEquals(reference.added.size(), sets.size());
+			int unions = reference.added.isEmpty() ? 0 : random.nextInt(2 * reference.added.size());
+			for (int k = 0; k < unions; k++) {
+				int x = reference.added.get(random.nextInt(reference.added.size()));
+				int y = reference.added.get(random.nextInt(reference.added.size()));
+				assertEquals("round " + round, reference.union(x, y), sets.union(x, y));
+			}
+			for (int x : reference.added)
+				assertEquals(reference.label[x] == reference.label[reference.added.get(0)],
+						sets.find(x) == sets.find(reference.added.get(0)));
+			assertEquals("round " + round, reference.components(), components(sets));
+		}
+	}
+
+	@Test
+	public void resetForgetsOnlyWhatWasAdded() {
+		IntUnionFind sets = new IntUnionFind();
+		sets.add(3);
+		sets.add(40);
+		sets.union(3, 40);
+		sets.reset();
+		assertFalse(sets.contains(3));
+		assertFalse(sets.contains(40));
+		assertEquals(0, sets.size());
+		assertEquals(0, sets.computeComponents());
+
+		sets.add(40);
+		sets.add(3);
+		// adding twice has no effect
+		sets.add(3);
+		assertTrue(sets.contains(3));
+		assertFalse(sets.contains(-1));
+		assertFalse(sets.contains(1000));
+		assertEquals(2, sets.computeComponents());
+		assertEquals(40, sets.getMember(sets.getComponentStart(0)));
+		assertEquals(3, sets.getMember(sets.getComponentStart(1)));
+	}
+
+	@Test
+	public void longChainsDoNotOverflowTheStack() {
+		int n = 1000000;
+		IntUnionFind sets = new IntUnionFind();
+		for (int x = 0; x < n; x++)
+			sets.add(x);
+		for (int x = 1; x < n; x++)
+			assertTrue(sets.union(x, x - 1));
+		assertFalse(sets.union(0, n - 1));
+		assertEquals(1, sets.computeComponents());
+		assertEquals(n, sets.getComponentSize(0));
+	}
+
+	private static List<List<Integer>> components(IntUnionFind sets) {
+		List<List<Integer>> components = new ArrayList<List<Integer>>();
+		int count = sets.computeComponents();
+		assertEquals(count, sets.getComponentCount());
+		for (int c = 0; c < count; c++) {
+			List<Integer> members = new ArrayList<Integer>();
+			for (int k = sets.getComponentStart(c); k < sets.getComponentEnd(c); k++)
+				members.add(sets.getMember(k));
+			assertEquals(members.size(), sets.getComponentSize(c));
+			components.add(members);
+		}
+		return components;
+	}
+
+	/*
+	 * Union-find by relabelling: every element carries the label of its set,
+	 * and a union relabels one of the sets.
+	 */
+	private static final class Reference {
+		final int[] label = new int[2000];
+		final List<Integer> added = new ArrayList<Integer>();
+
+		void add(int x) {
+			if (added.contains(x))
+				return;
+			added.add(x);
+			label[x] = x;
+		}
+
+		boolean union(int x, int y) {
+			int from = label[y];
+			int to = label[x];
+			if (from == to)
+				return false;
+			for (int z : added) {
+				if (label[z] == from)
+					label[z] = to;
+			}
+			return true;
+		}
+
+		List<List<Integer>> components() {
+			List<List<Integer>> components = new ArrayList<List<Integer>>();
+			List<Integer> labels = new ArrayList<Integer>();
+			for (int x : added) {
+				int c = labels.indexOf(label[x]);
+				if (c < 0) {
+					c = labels.size();
+					labels.add(label[x]);
+					components.add(new ArrayList<Integer>());
+				}
+				components.get(c).add(x);
+			}
+			return components;
+		}
+	}
+}
@@ -0,0 +1,172 @@
+package airplane.sim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import airplane.g4.Group4Player4;
+import airplane.sim.GameListener.GameUpdateType;
+
+/**
+ * Seeking a replay to a round must leave the game exactly where replaying it
+ * from the start up to that round does, whatever round it was at before.
+ */
+public class ReplaySeekTest {
+
+	// small, so that seeking restores many keyframes and replays up to six
+	// rounds after them
+	private static final int KEYFRAME_INTERVAL = 7;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void seekMatchesSequentialReplay() throws IOException {
+		File log = record(new File("flights/Scramble.txt"));
+		List<String> rounds = replay(log);
+		int last = rounds.size() - 1;
+		assertTrue("too short a game to seek in: " + last + " rounds", last > 3 * KEYFRAME_INTERVAL);
+
+		ReplayLog replay = ReplayLog.open(log);
+		try {
+			assertEquals(last, replay.getLastRound());
+			GameEngine engine = newEngine();
+			assertTrue(engine.setUpReplay(replay));
+			// every round going forwards, every round going backwards, and at random
+			for (int r = 0; r <= last; r++)
+				assertSeeks(engine, r, rounds);
+			for (int r = last; r >= 0; r--)
+				assertSeeks(engine, r, rounds);
+			Random random = new Random(22);
+			for (int n = 0; n < 200; n++)
+				assertSeeks(engine, random.nextInt(last + 1), rounds);
+		} finally {
+			replay.close();
+		}
+	}
+
+	@Test
+	public void steppingOnFromASeekMatchesSequentialReplay() throws IOException {
+		File log = record(new File("flights/Scramble.txt"));
+		List<String> rounds = replay(log);
+		int last = rounds.size() - 1;
+
+		ReplayLog replay = ReplayLog.open(log);
+		try {
+			GameEngine engine = newEngine();
+			assertTrue(engine.setUpReplay(replay));
+			Random random = new Random(23);
+			for (int n = 0; n < 20; n++) {
+				int r = random.nextInt(last + 1);
+				engine.seek(r);
+				while (engine.step())
+					assertEquals("round " + engine.getCurrentRound() + " after seeking to " + r,
+							rounds.get(engine.getCurrentRound()), state(engine));
+				assertEquals(last, engine.getCurrentRound());
+				assertEquals(rounds.get(last), state(engine));
+			}
+		} finally {
+			replay.close();
+		}
+	}
+
+	@Test
+	public void seekPastTheEndOfTheLogStopsAtItsEnd() throws IOException {
+		File log = record(new File("flights/Simple.txt"));
+		List<String> rounds = replay(log);
+		int last = rounds.size() - 1;
+
+		ReplayLog replay = ReplayLog.open(log);
+		try {
+			GameEngine engine = newEngine();
+			assertTrue(engine.setUpReplay(replay));
+			assertFalse(engine.seek(last + 10));
+			assertEquals(last, engine.getCurrentRound());
+			assertEquals(rounds.get(last), state(engine));
+		} finally {
+			replay.close();
+		}
+	}
+
+	/*
+	 * Plays the board to the end, recording it, and returns the log.
+	 */
+	private File record(File board) throws IOException {
+		File log = folder.newFile(board.getName() + ReplayLog.EXTENSION);
+		GameEngine engine = new GameEngine(Games.newConfig(Group4Player4.class, board));
+		engine.getConfig().setHistoryPolicy(FlightHistory.Policy.OFF);
+		engine.setReplayFile(log, KEYFRAME_INTERVAL);
+		assertEquals(GameUpdateType.GAMEOVER, new HeadlessRunner(engine).runGame());
+		return log;
+	}
+
+	/*
+	 * Replays the log from the start, returning the state at the end of each
+	 * round, starting with round 0.
+	 */
+	private static List<String> replay(File log) throws IOException {
+		List<String> rounds = new ArrayList<String>();
+		ReplayLog replay = ReplayLog.open(log);
+		try {
+			GameEngine engine = newEngine();
+			assertTrue(engine.setUpReplay(replay));
+			rounds.add(state(engine));
+			while (engine.step()) {
+				assertEquals(rounds.size(), engine.getCurrentRound());
+				rounds.add(state(engine));
+			}
+			// the round that ends the game
+			assertEquals(rounds.size(), engine.getCurrentRound());
+			rounds.add(state(engine));
+		} finally {
+			replay.close();
+		}
+		return rounds;
+	}
+
+	private static GameEngine newEngine() {
+		GameEngine engine = new GameEngine("airplane.xml");
+		engine.getConfig().setHistoryPolicy(FlightHistory.Policy.OFF);
+		return engine;
+	}
+
+	private static void assertSeeks(GameEngine engine, int r, List<String> rounds) {
+		int from = engine.getCurrentRound();
+		// the last round ends the game, which seek() reports as not running
+		assertEquals(r < rounds.size() - 1, engine.seek(r));
+		assertEquals("seeking from round " + from + " to " + r, rounds.get(r), state(engine));
+	}
+
+	/*
+	 * The round, the score so far and the exact position and bearing of every
+	 * flight and of its Plane, with the doubles written as their bits.
+	 */
+	private static String state(GameEngine engine) {
+		FlightState flights = engine.getBoard().getFlightState();
+		StringBuilder state = new StringBuilder();
+		state.append(engine.getCurrentRound()).append(';').append(engine.getPower()).append(';')
+				.append(engine.getDelay()).append(';').append(engine.getNumLanded()).append(';')
+				.append(engine.getErrorMessage());
+		for (int i = 0; i < flights.size(); i++) {
+			state.append('\n').append(Double.doubleToLongBits(flights.getX(i))).append(',')
+					.append(Double.doubleToLongBits(flights.getY(i))).append(',')
+					.append(Double.doubleToLongBits(flights.getBearing(i))).append(',').append(flights.isAirborne(i));
+			// and as the board draws it
+			Plane plane = flights.getPlanes().get(i);
+			state.append(';').append(Double.doubleToLongBits(plane.getX())).append(',')
+					.append(Double.doubleToLongBits(plane.getY())).append(',')
+					.append(Double.doubleToLongBits(plane.getBearing()));
+		}
+		return state.toString();
+	}
+}
@@ -0,0 +1,252 @@
+package airplane.sim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import airplane.g0.SerializedPlayer;
+
+/**
+ * Nested snapshots of a game and of a simulation restore exactly the state
+ * they were taken in, and once every snapshot is released the journal is
+ * empty and stays empty.
+ */
+public class SnapshotTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private GameEngine engine;
+
+	@Before
+	public void setUp() throws IOException {
+		// far enough apart that no two flights ever come close
+		File board = Games.writeBoard(folder.newFile("board.txt"), "5,10;95,10;0", "5,50;95,50;2", "5,90;95,90;4",
+				"95,30;5,30;6", "95,70;5,70;8");
+		GameConfig config = Games.newConfig(SerializedPlayer.class, board);
+		// so that restoring has histories to truncate
+		config.setHistoryPolicy(FlightHistory.Policy.COMPRESSED);
+		engine = new GameEngine(config);
+		assertTrue(engine.setUpGame());
+	}
+
+	@Test
+	public void nestedRestoresPutBackTheStateTheyWereTakenIn() {
+		play(3, 0);
+		String atA = state(engine);
+		GameEngine.Snapshot a = engine.snapshot();
+		play(5, 0);
+		String atB = state(engine);
+		GameEngine.Snapshot b = engine.snapshot();
+		play(6, 0);
+
+		engine.restore(b);
+		assertEquals(atB, state(engine));
+		// a different branch from b, then back to b again
+		play(4, 3);
+		engine.restore(b);
+		assertEquals(atB, state(engine));
+
+		play(2, 0);
+		engine.restore(a);
+		assertEquals(atA, state(engine));
+		assertClosed(b);
+		play(7, 5);
+		engine.restore(a);
+		assertEquals(atA, state(engine));
+		engine.release(a);
+	}
+
+	@Test
+	public void releasingTheLastSnapshotEmptiesTheJournal() {
+		UndoJournal journal = engine.getBoard().getFlightState().getJournal();
+		play(2, 0);
+		GameEngine.Snapshot a = engine.snapshot();
+		play(3, 0);
+		GameEngine.Snapshot b = engine.snapshot();
+		play(3, 0);
+		assertTrue(journal.size() > 0);
+
+		engine.release(b);
+		assertClosed(b);
+		// a still restores, with what was saved after b
+		engine.restore(a);
+		assertEquals(2, engine.getCurrentRound());
+		play(8, 0);
+		engine.release(a);
+		assertEquals(0, journal.size());
+		play(10, 0);
+		assertEquals(0, journal.size());
+		// releasing twice does nothing
+		engine.release(a);
+	}
+
+	@Test
+	public void releasingAnOlderSnapshotKeepsTheNewerOne() {
+		UndoJournal journal = engine.getBoard().getFlightState().getJournal();
+		GameEngine.Snapshot a = engine.snapshot();
+		play(4, 0);
+		String atB = state(engine);
+		GameEngine.Snapshot b = engine.snapshot();
+		play(5, 0);
+
+		engine.release(a);
+		assertClosed(a);
+		engine.restore(b);
+		assertEquals(atB, state(engine));
+		play(3, 0);
+		engine.release(b);
+		assertEquals(0, journal.size());
+
+		// a new snapshot saves again
+		GameEngine.Snapshot c = engine.snapshot();
+		String atC = state(engine);
+		play(3, 0);
+		assertTrue(journal.size() > 0);
+		engine.restore(c);
+		assertEquals(atC, state(engine));
+	}
+
+	@Test
+	public void snapshotsOfAnotherGameAreRejected() {
+		GameEngine.Snapshot a = engine.snapshot();
+		assertTrue(engine.setUpGame());
+		try {
+			engine.release(a);
+			fail("a snapshot of the last game was released");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void simulationSnapshotsNestAndRelease() {
+		play(2, 0);
+		ArrayList<Plane> planes = engine.getBoard().getFlightState().getPlanes();
+		SimulationContext context = new SimulationContext();
+		context.start(planes, engine.getCurrentRound());
+		SimulationContext.Snapshot a = context.snapshot();
+		String atA = state(context);
+		simulate(context, 4);
+		SimulationContext.Snapshot b = context.snapshot();
+		String atB = state(context);
+		simulate(context, 5);
+
+		context.restore(b);
+		assertEquals(atB, state(context));
+		simulate(context, 2);
+		context.restore(a);
+		assertEquals(atA, state(context));
+		try {
+			context.restore(b);
+			fail("a closed snapshot was restored");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		// b is already closed
+		context.release(b);
+		simulate(context, 3);
+		assertTrue(context.getSavedCount() > 0);
+		context.release(a);
+		assertEquals(0, context.getSavedCount());
+		simulate(context, 3);
+		assertEquals(0, context.getSavedCount());
+	}
+
+	/*
+	 * Plays the given number of rounds, with the flights that are due taking
+	 * off once they are the given number of rounds late and then flying
+	 * straight to their destinations.
+	 */
+	private void play(int rounds, int late) {
+		FlightState flights = engine.getBoard().getFlightState();
+		for (int n = 0; n < rounds; n++) {
+			int round = engine.getCurrentRound() + 1;
+			double[] bearings = new double[flights.size()];
+			for (int i = 0; i < bearings.length; i++) {
+				if (flights.getBearing(i) == -1 && flights.getDepartureTime(i) + late > round)
+					bearings[i] = -1;
+				else
+					bearings[i] = bearing(flights, i);
+			}
+			assertTrue(engine.getErrorMessage(), engine.step(bearings));
+		}
+	}
+
+	private static void simulate(SimulationContext context, int rounds) {
+		ArrayList<Plane> planes = context.getPlanes();
+		for (int n = 0; n < rounds; n++) {
+			int round = context.getRound() + 1;
+			double[] bearings = new double[planes.size()];
+			for (int i = 0; i < bearings.length; i++) {
+				Plane p = planes.get(i);
+				if (p.getBearing() == -2)
+					bearings[i] = -2;
+				else if (p.getBearing() == -1 && p.getDepartureTime() > round)
+					bearings[i] = -1;
+				else
+					bearings[i] = Player.calculateBearing(p);
+			}
+			assertTrue(context.step(bearings));
+		}
+	}
+
+	private static double bearing(FlightState flights, int i) {
+		if (flights.getBearing(i) == -2)
+			return -2;
+		return Player.calculateBearing(flights.getX(i), flights.getY(i), flights.getDestinationX(i),
+				flights.getDestinationY(i));
+	}
+
+	private void assertClosed(GameEngine.Snapshot snapshot) {
+		try {
+			engine.restore(snapshot);
+			fail("a closed snapshot was restored");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	/*
+	 * The round, the score, the departure schedule as a player sees it, and
+	 * every flight's position, bearing and history, with the doubles written
+	 * as their bits.
+	 */
+	private static String state(GameEngine engine) {
+		FlightState flights = engine.getBoard().getFlightState();
+		StringBuilder state = new StringBuilder();
+		state.append(engine.getCurrentRound()).append(';').append(engine.getPower()).append(';')
+				.append(engine.getDelay()).append(';').append(engine.getNumLanded());
+		DepartureSchedule departures = engine.getBoard().departures;
+		for (int i = 0; i < flights.size(); i++) {
+			Plane p = flights.getPlane(i);
+			state.append('\n').append(Double.doubleToLongBits(flights.getX(i))).append(',')
+					.append(Double.doubleToLongBits(flights.getY(i))).append(',')
+					.append(Double.doubleToLongBits(flights.getBearing(i))).append(';')
+					.append(Double.doubleToLongBits(p.getX())).append(',').append(Double.doubleToLongBits(p.getY()))
+					.append(',').append(Double.doubleToLongBits(p.getBearing())).append(';')
+					.append(departures.isReady(i)).append(';').append(p.getFlightHistory().size());
+		}
+		return state.toString();
+	}
+
+	private static String state(SimulationContext context) {
+		StringBuilder state = new StringBuilder();
+		state.append(context.getRound()).append(';').append(context.getNumLanded());
+		for (Plane p : context.getPlanes()) {
+			state.append('\n').append(Double.doubleToLongBits(p.getX())).append(',')
+					.append(Double.doubleToLongBits(p.getY())).append(',')
+					.append(Double.doubleToLongBits(p.getBearing()));
+		}
+		return state.toString();
+	}
+}